@@ -4,9 +4,14 @@ import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import study.querydsl.repository.support.DerivedColumnQueryFactory;
 
 import javax.persistence.EntityManager;
 
+@EnableAsync
+@EnableScheduling
 @SpringBootApplication
 public class QuerydslApplication {
 
@@ -14,9 +19,12 @@ public class QuerydslApplication {
         SpringApplication.run(QuerydslApplication.class, args);
     }
 
+    /**
+     * lower(username), 나이 구간 식은 계산 컬럼으로 바꿔서 실행한다. (DerivedColumns)
+     */
     @Bean
     public JPAQueryFactory queryFactory(EntityManager em) {
-        return new JPAQueryFactory(em);
+        return new DerivedColumnQueryFactory(em);
     }
 
 }
@@ -0,0 +1,60 @@
+package study.querydsl.cache;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Member, Team 데이터 버전
+ * <p>
+ * 회원/팀에 대한 쓰기(엔티티 저장, 수정, 삭제, 벌크 연산)가 발생할 때마다 단조 증가하는 버전.
+ * 조회 API는 이 버전으로 ETag를 만들고, 클라이언트가 보낸 If-None-Match 가 같으면
+ * DB를 조회하지 않고 304로 응답한다.
+ *
+ * 쓰기 SQL이 나가는 시점과 트랜잭션이 끝나는 시점(커밋/롤백) 두 번 버전을 올린다.
+ * 커밋 전에 다른 요청이 이전 데이터를 새 버전으로 캐시하는 경우를 막기 위해서다.
+ *
+ * 버전은 재시작하면 0부터 다시 시작하므로 ETag 에는 기동할 때 만든 임의의 값(epoch)을 함께 넣는다.
+ * 재시작 전에 받은 ETag 가 다른 데이터의 같은 버전 번호와 일치해서 304 를 받는 일이 없도록.
+ */
+@Component
+public class DataVersion {
+
+    private final AtomicLong version = new AtomicLong();
+    private final String epoch = Long.toHexString(new SecureRandom().nextLong());
+
+    public long current() {
+        return version.get();
+    }
+
+    public String etag() {
+        return etag(current());
+    }
+
+    /**
+     * version 시점의 데이터에 대한 ETag (e.g. 스냅샷을 만든 시점의 버전)
+     */
+    public String etag(long version) {
+        return "members-" + epoch + "-v" + version;
+    }
+
+    public void markChanged() {
+        version.incrementAndGet();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(this)) {
+            //트랜잭션당 한번만 등록
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(DataVersion.this);
+                    version.incrementAndGet();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package study.querydsl.cache;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class DataVersionConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer dataVersionStatementInspector(DataVersion dataVersion) {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR,
+                new DataVersionStatementInspector(dataVersion));
+    }
+}
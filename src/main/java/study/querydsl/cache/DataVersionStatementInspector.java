@@ -0,0 +1,31 @@
+package study.querydsl.cache;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.regex.Pattern;
+
+/**
+ * 하이버네이트가 실행하는 모든 SQL을 검사해서 member, team 테이블에 대한 쓰기가 있으면 데이터 버전을 올린다.
+ * 엔티티 변경 감지로 나가는 SQL 뿐만 아니라 Querydsl 벌크 연산(update, delete)도 여기서 함께 잡힌다.
+ */
+public class DataVersionStatementInspector implements StatementInspector {
+
+    //use_sql_comments 옵션으로 붙는 /* ... */ 주석은 건너뛴다.
+    private static final Pattern WRITE_STATEMENT = Pattern.compile(
+            "^\\s*(?:/\\*.*?\\*/\\s*)*(?:insert\\s+into|update|delete\\s+from|delete)\\s+(?:member|team)\\b",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private final DataVersion dataVersion;
+
+    public DataVersionStatementInspector(DataVersion dataVersion) {
+        this.dataVersion = dataVersion;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        if (WRITE_STATEMENT.matcher(sql).find()) {
+            dataVersion.markChanged();
+        }
+        return sql;
+    }
+}
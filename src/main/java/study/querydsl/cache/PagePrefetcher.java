@@ -0,0 +1,315 @@
+package study.querydsl.cache;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.governance.QueryDeadline;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 다음 페이지 미리 조회 (/v3/members)
+ * <p>
+ * 페이지 N을 응답하면서 같은 검색 조건의 페이지 N+1 을 백그라운드에서 미리 조회해 둔다.
+ * 사용자가 다음 페이지를 누르면 DB를 조회하지 않고 캐시된 페이지를 바로 응답한다.
+ *
+ * 캐시는 검색 조건 + 페이지 단위로 최근 N건(LRU)만 TTL 동안 보관한다.
+ * 회원/팀 데이터가 바뀌면(DataVersion) 캐시 전체를 버린다.
+ * 미리 조회는 크기가 제한된 스레드 풀에서 실행하고, 큐가 가득 차면 미리 조회를 포기한다.
+ * 미리 조회도 페이지 조회와 같은 시간 예산(query.governance.page.timeout-ms) 안에서 실행한다. (QueryDeadline)
+ */
+@Slf4j
+@Component
+public class PagePrefetcher implements DisposableBean {
+
+    private final MemberRepository memberRepository;
+    private final DataVersion dataVersion;
+    private final long ttlNanos;
+    private final long pageTimeoutMs;
+    private final ThreadPoolExecutor executor;
+    private final Map<Key, Entry> pages;
+    private long cachedVersion;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder prefetchHits = new LongAdder();
+    private final LongAdder prefetched = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder wasted = new LongAdder();
+
+    public PagePrefetcher(MemberRepository memberRepository, DataVersion dataVersion,
+                          @Value("${cache.prefetch.capacity:200}") int capacity,
+                          @Value("${cache.prefetch.ttl-ms:30000}") long ttlMs,
+                          @Value("${cache.prefetch.threads:2}") int threads,
+                          @Value("${cache.prefetch.queue-capacity:16}") int queueCapacity,
+                          @Value("${query.governance.page.timeout-ms:3000}") long pageTimeoutMs) {
+        this.memberRepository = memberRepository;
+        this.pageTimeoutMs = pageTimeoutMs;
+        this.dataVersion = dataVersion;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.cachedVersion = dataVersion.current();
+        this.pages = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > capacity) {
+                    discard(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "page-prefetch-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * searchPageComplex 와 같은 결과, 캐시에 있으면 캐시에서 응답하고 다음 페이지를 미리 조회한다.
+     */
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        //트랜잭션 안에서는 아직 커밋되지 않은 변경이 보여야 하므로 캐시를 사용하지 않는다.
+        if (pageable.isUnpaged() || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return memberRepository.searchPageComplex(condition, pageable);
+        }
+        requests.increment();
+
+        Key key = new Key(condition, pageable);
+        Page<MemberTeamDto> page = cached(key);
+        if (page == null) {
+            long version = dataVersion.current();
+            page = memberRepository.searchPageComplex(key.condition(), pageable);
+            put(key, new Entry(CompletableFuture.completedFuture(page), version, false));
+        }
+
+        if (page.hasNext()) {
+            prefetch(new Key(condition, pageable.next()));
+        }
+        return page;
+    }
+
+    public Stats stats() {
+        synchronized (this) {
+            return new Stats(requests.sum(), hits.sum(), prefetchHits.sum(), prefetched.sum(),
+                    rejected.sum(), wasted.sum(), pages.size());
+        }
+    }
+
+    /**
+     * 캐시에 있는 페이지 조회(미리 조회 포함)의 완료 future, 없으면 null (테스트에서 미리 조회를 기다릴 때 사용)
+     */
+    synchronized CompletableFuture<Page<MemberTeamDto>> pending(MemberSearchCondition condition, Pageable pageable) {
+        Entry entry = pages.get(new Key(condition, pageable));
+        return entry == null ? null : entry.future;
+    }
+
+    public synchronized void clear() {
+        pages.values().forEach(this::discard);
+        pages.clear();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 완료된 페이지만 사용한다.
+     * 아직 실행 중인 미리 조회는 곧 끝나므로 기다리고, 큐에서 대기 중이면 포기하고 직접 조회한다.
+     */
+    private Page<MemberTeamDto> cached(Key key) {
+        Entry entry;
+        synchronized (this) {
+            invalidateIfChanged();
+            entry = pages.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.isExpired(ttlNanos) || !entry.started && !entry.future.isDone()) {
+                pages.remove(key);
+                discard(entry);
+                return null;
+            }
+        }
+
+        Page<MemberTeamDto> page;
+        try {
+            page = entry.future.join();
+        } catch (RuntimeException e) {
+            log.debug("Prefetch failed for {}", key, e);
+            synchronized (this) {
+                pages.remove(key, entry);
+            }
+            return null;
+        }
+
+        hits.increment();
+        if (entry.prefetched && !entry.used) {
+            prefetchHits.increment();
+        }
+        entry.used = true;
+        return page;
+    }
+
+    private void prefetch(Key key) {
+        Entry entry = new Entry(new CompletableFuture<>(), dataVersion.current(), true);
+        synchronized (this) {
+            invalidateIfChanged();
+            if (pages.containsKey(key) || entry.version != cachedVersion) {
+                return;
+            }
+            pages.put(key, entry);
+        }
+
+        try {
+            executor.execute(() -> {
+                if (entry.future.isCancelled()) {
+                    return;
+                }
+                entry.started = true;
+                try {
+                    entry.future.complete(QueryDeadline.within(pageTimeoutMs,
+                            () -> memberRepository.searchPageComplex(key.condition(), key.pageable)));
+                } catch (RuntimeException e) {
+                    entry.future.completeExceptionally(e);
+                }
+            });
+            prefetched.increment();
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            synchronized (this) {
+                pages.remove(key, entry);
+            }
+        }
+    }
+
+    /**
+     * 조회를 시작하기 전의 버전으로 저장해서, 조회 도중 데이터가 바뀌었다면 저장하지 않는다.
+     */
+    private synchronized void put(Key key, Entry entry) {
+        invalidateIfChanged();
+        if (entry.version == cachedVersion) {
+            pages.put(key, entry);
+        }
+    }
+
+    private void invalidateIfChanged() {
+        long version = dataVersion.current();
+        if (version != cachedVersion) {
+            cachedVersion = version;
+            clear();
+        }
+    }
+
+    private void discard(Entry entry) {
+        if (entry.prefetched && !entry.used) {
+            wasted.increment();
+        }
+        entry.future.cancel(false);
+    }
+
+    /**
+     * 검색 조건 + 페이지 (MemberSearchCondition 은 변경 가능하므로 값을 복사해 둔다.)
+     */
+    @EqualsAndHashCode
+    private static class Key {
+        private final String username;
+        private final String teamName;
+        private final Integer ageGoe;
+        private final Integer ageLoe;
+        private final Pageable pageable;
+
+        Key(MemberSearchCondition condition, Pageable pageable) {
+            this.username = condition.getUsername();
+            this.teamName = condition.getTeamName();
+            this.ageGoe = condition.getAgeGoe();
+            this.ageLoe = condition.getAgeLoe();
+            this.pageable = pageable;
+        }
+
+        MemberSearchCondition condition() {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setUsername(username);
+            condition.setTeamName(teamName);
+            condition.setAgeGoe(ageGoe);
+            condition.setAgeLoe(ageLoe);
+            return condition;
+        }
+
+        @Override
+        public String toString() {
+            return condition() + " " + pageable;
+        }
+    }
+
+    private static class Entry {
+        private final CompletableFuture<Page<MemberTeamDto>> future;
+        private final long version;
+        private final long createdAt = System.nanoTime();
+        private final boolean prefetched;
+        private volatile boolean started;
+        private volatile boolean used;
+
+        Entry(CompletableFuture<Page<MemberTeamDto>> future, long version, boolean prefetched) {
+            this.future = future;
+            this.version = version;
+            this.prefetched = prefetched;
+            this.started = !prefetched;
+        }
+
+        boolean isExpired(long ttlNanos) {
+            return System.nanoTime() - createdAt > ttlNanos;
+        }
+    }
+
+    @Getter
+    public static class Stats {
+        private final long requests;
+        private final long hits;
+        private final long prefetchHits;
+        private final long prefetched;
+        private final long rejected;
+        private final long wasted; //사용되지 않고 버려진 미리 조회(만료, LRU 제거, 데이터 변경)
+        private final int size;
+
+        Stats(long requests, long hits, long prefetchHits, long prefetched, long rejected, long wasted, int size) {
+            this.requests = requests;
+            this.hits = hits;
+            this.prefetchHits = prefetchHits;
+            this.prefetched = prefetched;
+            this.rejected = rejected;
+            this.wasted = wasted;
+            this.size = size;
+        }
+
+        public double getHitRate() {
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+
+        public double getPrefetchHitRate() {
+            return prefetched == 0 ? 0 : (double) prefetchHits / prefetched;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package study.querydsl.codec;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.paging.AdaptivePage;
+import study.querydsl.paging.CountStrategy;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * MemberTeamDto 목록/페이지 전용 바이너리 포맷
+ * <p>
+ * JSON은 모든 행마다 필드명과 teamName 문자열을 반복한다.
+ * 이 포맷은 필드명 없이 고정된 순서로 쓰고, 팀(teamId, teamName)은 앞쪽 사전에 한번만 쓴 뒤
+ * 각 행에서는 사전 인덱스만 참조한다. 숫자는 가변 길이(varint)로 쓴다.
+ *
+ * <pre>
+ * header : magic(2) version(1) kind(1: 0=list, 1=page)
+ * page   : number(varint) size(varint) totalElements(varint) countStrategy(varint, CountStrategy 순서) totalExact(1: 0/1)
+ * teams  : count(varint) { teamId(nullable varint) teamName(nullable string) }
+ * rows   : count(varint) { memberId(nullable varint) username(nullable string) age(zigzag varint) teamIndex(varint, 0=없음) }
+ * </pre>
+ * nullable 값은 0을 null로 쓰고 실제 값은 +1 해서 쓴다.
+ * 페이지는 전체 건수를 어떻게 계산했는지(AdaptivePage)도 쓴다. 일반 Page 는 EXACT, 정확한 건수
+ * 버전 1(countStrategy, totalExact 없음)은 읽지 않는다.
+ * 서버 응답(MemberTeamBinaryHttpMessageConverter)과 내부 서비스 클라이언트가 같이 사용한다.
+ */
+public final class MemberTeamBinaryCodec {
+
+    public static final String MEDIA_TYPE_VALUE = "application/x-member-team";
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+
+    private static final int MAGIC = 0x4D54;
+    private static final int VERSION = 2;
+    private static final int KIND_LIST = 0;
+    private static final int KIND_PAGE = 1;
+
+    private MemberTeamBinaryCodec() {
+    }
+
+    public static void encodeList(List<MemberTeamDto> content, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        writeHeader(data, KIND_LIST);
+        writeContent(data, content);
+        data.flush();
+    }
+
+    public static void encodePage(Page<MemberTeamDto> page, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        writeHeader(data, KIND_PAGE);
+        writeVarLong(data, page.getNumber());
+        writeVarLong(data, page.getSize());
+        writeVarLong(data, page.getTotalElements());
+        if (page instanceof AdaptivePage) {
+            AdaptivePage<MemberTeamDto> adaptive = (AdaptivePage<MemberTeamDto>) page;
+            writeVarLong(data, adaptive.getCountStrategy().ordinal());
+            data.writeBoolean(adaptive.isTotalExact());
+        } else {
+            writeVarLong(data, CountStrategy.EXACT.ordinal());
+            data.writeBoolean(true);
+        }
+        writeContent(data, page.getContent());
+        data.flush();
+    }
+
+    public static List<MemberTeamDto> decodeList(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        readHeader(data, KIND_LIST);
+        return readContent(data);
+    }
+
+    /**
+     * 전체 건수가 정확하지 않을 수 있으므로 countStrategy, totalExact 를 담은 AdaptivePage 로 돌려준다.
+     */
+    public static AdaptivePage<MemberTeamDto> decodePage(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        readHeader(data, KIND_PAGE);
+        int number = (int) readVarLong(data);
+        int size = (int) readVarLong(data);
+        long total = readVarLong(data);
+        int strategy = (int) readVarLong(data);
+        if (strategy >= CountStrategy.values().length) {
+            throw new IOException("Invalid count strategy: " + strategy);
+        }
+        boolean totalExact = data.readBoolean();
+        List<MemberTeamDto> content = readContent(data);
+
+        //정렬 정보는 전송하지 않는다.
+        Pageable pageable = size > 0 ? PageRequest.of(number, size) : Pageable.unpaged();
+        return new AdaptivePage<>(content, pageable, total, CountStrategy.values()[strategy], totalExact);
+    }
+
+    private static void writeHeader(DataOutputStream data, int kind) throws IOException {
+        data.writeShort(MAGIC);
+        data.writeByte(VERSION);
+        data.writeByte(kind);
+    }
+
+    private static void readHeader(DataInputStream data, int expectedKind) throws IOException {
+        if (data.readUnsignedShort() != MAGIC) {
+            throw new IOException("Not a member-team payload");
+        }
+        int version = data.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported member-team payload version: " + version);
+        }
+        int kind = data.readUnsignedByte();
+        if (kind != expectedKind) {
+            throw new IOException("Unexpected member-team payload kind: " + kind);
+        }
+    }
+
+    private static void writeContent(DataOutputStream data, List<MemberTeamDto> content) throws IOException {
+        //팀 사전 (teamId, teamName) -> 1부터 시작하는 인덱스
+        Map<List<Object>, Integer> teams = new LinkedHashMap<>();
+        for (MemberTeamDto dto : content) {
+            if (dto.getTeamId() != null || dto.getTeamName() != null) {
+                teams.putIfAbsent(Arrays.asList(dto.getTeamId(), dto.getTeamName()), teams.size() + 1);
+            }
+        }
+
+        writeVarLong(data, teams.size());
+        for (List<Object> team : teams.keySet()) {
+            writeNullableLong(data, (Long) team.get(0));
+            writeNullableString(data, (String) team.get(1));
+        }
+
+        writeVarLong(data, content.size());
+        for (MemberTeamDto dto : content) {
+            writeNullableLong(data, dto.getMemberId());
+            writeNullableString(data, dto.getUsername());
+            writeVarLong(data, zigZag(dto.getAge()));
+            Integer teamIndex = teams.get(Arrays.asList(dto.getTeamId(), dto.getTeamName()));
+            writeVarLong(data, teamIndex != null ? teamIndex : 0);
+        }
+    }
+
+    private static List<MemberTeamDto> readContent(DataInputStream data) throws IOException {
+        int teamCount = (int) readVarLong(data);
+        Long[] teamIds = new Long[teamCount + 1];
+        String[] teamNames = new String[teamCount + 1];
+        for (int i = 1; i <= teamCount; i++) {
+            teamIds[i] = readNullableLong(data);
+            teamNames[i] = readNullableString(data);
+        }
+
+        int rowCount = (int) readVarLong(data);
+        List<MemberTeamDto> content = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            Long memberId = readNullableLong(data);
+            String username = readNullableString(data);
+            int age = unZigZag(readVarLong(data));
+            int teamIndex = (int) readVarLong(data);
+            if (teamIndex > teamCount) {
+                throw new IOException("Invalid team index: " + teamIndex);
+            }
+            content.add(new MemberTeamDto(memberId, username, age, teamIds[teamIndex], teamNames[teamIndex]));
+        }
+        return content;
+    }
+
+    private static void writeNullableLong(DataOutputStream data, Long value) throws IOException {
+        writeVarLong(data, value == null ? 0 : value + 1);
+    }
+
+    private static Long readNullableLong(DataInputStream data) throws IOException {
+        long value = readVarLong(data);
+        return value == 0 ? null : value - 1;
+    }
+
+    private static void writeNullableString(DataOutputStream data, String value) throws IOException {
+        if (value == null) {
+            writeVarLong(data, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(data, bytes.length + 1L);
+        data.write(bytes);
+    }
+
+    private static String readNullableString(DataInputStream data) throws IOException {
+        long length = readVarLong(data);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[(int) (length - 1)];
+        data.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long zigZag(int value) {
+        return ((long) value << 1) ^ (value >> 31);
+    }
+
+    private static int unZigZag(long value) {
+        return (int) (value >>> 1) ^ -(int) (value & 1);
+    }
+
+    private static void writeVarLong(DataOutputStream data, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            data.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        data.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream data) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = data.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,99 @@
+package study.querydsl.codec;
+
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * List&lt;MemberTeamDto&gt;, Page&lt;MemberTeamDto&gt; 를 application/x-member-team 으로 읽고 쓴다.
+ * 반환 타입의 제네릭 정보로 판단하기 때문에 다른 타입의 목록에는 적용되지 않는다.
+ */
+public class MemberTeamBinaryHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public MemberTeamBinaryHttpMessageConverter() {
+        super(MemberTeamBinaryCodec.MEDIA_TYPE);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return List.class.isAssignableFrom(clazz) || Page.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return isMemberTeamContainer(type) && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return isMemberTeamContainer(type) && canWrite(mediaType);
+    }
+
+    @Override
+    protected void writeInternal(Object content, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        //행 단위로 응답 스트림에 바로 쓴다.
+        OutputStream out = new BufferedOutputStream(outputMessage.getBody());
+        if (content instanceof Page) {
+            MemberTeamBinaryCodec.encodePage(castPage(content), out);
+        } else if (content instanceof List) {
+            MemberTeamBinaryCodec.encodeList(castList(content), out);
+        } else {
+            throw new HttpMessageNotWritableException("Unsupported content: " + content.getClass());
+        }
+        out.flush();
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage)
+            throws IOException, HttpMessageNotReadableException {
+        Class<?> rawType = type instanceof ParameterizedType
+                ? (Class<?>) ((ParameterizedType) type).getRawType()
+                : contextClass;
+        return readInternal(rawType, inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage)
+            throws IOException, HttpMessageNotReadableException {
+        if (Page.class.isAssignableFrom(clazz)) {
+            return MemberTeamBinaryCodec.decodePage(inputMessage.getBody());
+        }
+        return MemberTeamBinaryCodec.decodeList(inputMessage.getBody());
+    }
+
+    private boolean isMemberTeamContainer(Type type) {
+        if (!(type instanceof ParameterizedType)) {
+            return false;
+        }
+        ParameterizedType parameterizedType = (ParameterizedType) type;
+        Type rawType = parameterizedType.getRawType();
+        Type[] arguments = parameterizedType.getActualTypeArguments();
+        return rawType instanceof Class
+                && supports((Class<?>) rawType)
+                && arguments.length == 1
+                && arguments[0] == MemberTeamDto.class;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Page<MemberTeamDto> castPage(Object content) {
+        return (Page<MemberTeamDto>) content;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<MemberTeamDto> castList(Object content) {
+        return (List<MemberTeamDto>) content;
+    }
+}
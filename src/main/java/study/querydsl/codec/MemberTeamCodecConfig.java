@@ -0,0 +1,42 @@
+package study.querydsl.codec;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
+
+@Configuration
+public class MemberTeamCodecConfig implements WebMvcConfigurer {
+
+    /**
+     * 기본 컨버터들 뒤에 추가한다.
+     * Accept: application/x-member-team 을 명시한 요청만 바이너리로 응답하고 나머지는 기존처럼 JSON.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new MemberTeamBinaryHttpMessageConverter());
+    }
+
+    /**
+     * 같은 URL, 같은 ETag 로 JSON 과 바이너리 두 가지 표현을 응답하므로 캐시가 Accept 별로 따로 저장하도록 Vary: Accept
+     * 304 응답에도 붙도록 핸들러 실행 전에 추가한다.
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                if (!response.getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT)) {
+                    response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+                }
+                return true;
+            }
+        }).addPathPatterns("/v1/members/**", "/v2/members/**", "/v3/members/**");
+    }
+}
@@ -1,37 +1,231 @@
 package study.querydsl.controller;
 
+import com.querydsl.core.types.Predicate;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.data.domain.Page;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.querydsl.binding.QuerydslPredicate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import study.querydsl.cache.DataVersion;
+import study.querydsl.cache.PagePrefetcher;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entitiy.Member;
+import study.querydsl.export.MemberExporter;
+import study.querydsl.governance.QueryGovernor;
 import study.querydsl.repository.MemberJpaRepository;
 import study.querydsl.repository.MemberRepository;
 import study.querydsl.repository.MemberRepositoryCustom;
+import study.querydsl.snapshot.MemberSnapshot;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 
+@Lazy(false) //spring.main.lazy-initialization 을 켜도 첫 요청 전에 준비한다.
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
 
+    private static final int MAX_BATCH_SIZE = 20;
+
     private final MemberJpaRepository memberJpaRepository;
     private final MemberRepository memberRepository;
+    private final DataVersion dataVersion;
+    private final PagePrefetcher pagePrefetcher;
+    private final MemberExporter memberExporter;
+    private final MemberQueryPolicy memberQueryPolicy;
+    private final MemberSnapshot memberSnapshot;
+    private final QueryGovernor queryGovernor;
 
+    /**
+     * 데이터 버전이 바뀌지 않았다면(If-None-Match == ETag) 쿼리를 실행하지 않고 304로 응답한다.
+     * 결과 건수, 실행 시간, 동시 실행 수를 제한한다. (QueryGovernor)
+     * 결과가 잘렸으면 X-Result-Truncated: true
+     */
     @GetMapping("/v1/members")
-    public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition) {
-        return memberJpaRepository.search(condition);
+    public WebAsyncTask<ResponseEntity<List<MemberTeamDto>>> searchMemberV1(MemberSearchCondition condition, WebRequest request) {
+        if (request.checkNotModified(dataVersion.etag())) {
+            return null;
+        }
+        return queryGovernor.list(limit -> memberJpaRepository.search(condition, limit));
+    }
+
+    /**
+     * consistency=snapshot 이면 DB 대신 메모리 스냅샷에서 조회한다. (최대 snapshot.max-staleness-ms 만큼 지난 데이터)
+     * ETag 는 스냅샷을 만든 시점의 데이터 버전
+     */
+    @GetMapping(value = "/v1/members", params = "consistency=snapshot")
+    public List<MemberTeamDto> searchMemberSnapshotV1(MemberSearchCondition condition, WebRequest request) {
+        if (request.checkNotModified(dataVersion.etag(memberSnapshot.version()))) {
+            return null;
+        }
+        return memberSnapshot.search(condition);
+    }
+
+    /**
+     * source=view 이면 member, team 조인 대신 조회 모델(member_team_view)에서 조회한다.
+     * /v1/members 와 같이 QueryGovernor 로 제한한다.
+     */
+    @GetMapping(value = "/v1/members", params = "source=view")
+    public WebAsyncTask<ResponseEntity<List<MemberTeamDto>>> searchMemberViewV1(MemberSearchCondition condition,
+                                                                               WebRequest request) {
+        if (request.checkNotModified(dataVersion.etag())) {
+            return null;
+        }
+        return queryGovernor.list(limit -> memberRepository.searchView(condition, limit));
+    }
+
+    /**
+     * fields 파라미터로 필요한 필드만 조회 e.g) /v1/members?fields=memberId,username
+     */
+    @GetMapping(value = "/v1/members", params = "fields")
+    public WebAsyncTask<ResponseEntity<List<Map<String, Object>>>> searchMemberFieldsV1(
+            MemberSearchCondition condition, @RequestParam List<String> fields, WebRequest request) {
+        if (request.checkNotModified(dataVersion.etag())) {
+            return null;
+        }
+        return queryGovernor.list(limit -> {
+            try {
+                return memberRepository.searchFields(condition, fields, limit);
+            } catch (InvalidDataAccessApiUsageException e) {
+                //리포지토리에서 던진 IllegalArgumentException 은 스프링 예외로 변환된다.
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+            }
+        });
     }
 
     @GetMapping("/v2/members")
-    public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable) {
-        return memberRepository.searchPageSimple(condition, pageable);
+    public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable, WebRequest request) {
+        if (request.checkNotModified(dataVersion.etag())) {
+            return null;
+        }
+        return queryGovernor.page(() -> memberRepository.searchPageSimple(condition, pageable));
     }
 
+    /**
+     * 다음 페이지는 미리 조회해 둔다. (PagePrefetcher)
+     */
     @GetMapping("/v3/members")
-    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable) {
-        return memberRepository.searchPageComplex(condition, pageable);
+    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable, WebRequest request) {
+        if (request.checkNotModified(dataVersion.etag())) {
+            return null;
+        }
+        return queryGovernor.page(() -> pagePrefetcher.searchPageComplex(condition, pageable));
+    }
+
+    @GetMapping(value = "/v3/members", params = "source=view")
+    public Page<MemberTeamDto> searchMemberViewV3(MemberSearchCondition condition, Pageable pageable, WebRequest request) {
+        if (request.checkNotModified(dataVersion.etag())) {
+            return null;
+        }
+        return queryGovernor.page(() -> memberRepository.searchPageView(condition, pageable));
+    }
+
+    /**
+     * 무한 스크롤용, count 쿼리 없이 다음 페이지 존재 여부(last)만 응답한다.
+     * 정렬은 id, username, age 만 가능하고 같은 값이면 id 순서이다.
+     */
+    @GetMapping("/v3/members/slice")
+    public Slice<MemberTeamDto> searchMemberSliceV3(MemberSearchCondition condition, Pageable pageable, WebRequest request) {
+        if (request.checkNotModified(dataVersion.etag())) {
+            return null;
+        }
+        try {
+            return queryGovernor.page(() -> memberRepository.searchSlice(condition, pageable));
+        } catch (InvalidDataAccessApiUsageException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    @GetMapping(value = "/v3/members", params = "fields")
+    public Page<Map<String, Object>> searchMemberFieldsV3(MemberSearchCondition condition, @RequestParam List<String> fields,
+                                                          Pageable pageable, WebRequest request) {
+        if (request.checkNotModified(dataVersion.etag())) {
+            return null;
+        }
+        try {
+            return queryGovernor.page(() -> memberRepository.searchPageFields(condition, fields, pageable));
+        } catch (InvalidDataAccessApiUsageException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 쿼리 파라미터를 Predicate 로 바인딩해서 조회 e.g) /members/query?username=mem&age=10&age=30&sort=age,desc
+     * 허용 속성과 연산자는 MemberRepository.customize, 조건 필수, 페이지 크기, offset, 정렬 제한은 MemberQueryPolicy
+     */
+    @GetMapping("/members/query")
+    public Page<MemberTeamDto> queryMembers(@QuerydslPredicate(root = Member.class, bindings = MemberRepository.class) Predicate predicate,
+                                            Pageable pageable) {
+        Pageable allowed;
+        try {
+            allowed = memberQueryPolicy.validate(predicate, pageable);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        return queryGovernor.page(() -> memberRepository.searchPredicate(predicate, allowed));
+    }
+
+    /**
+     * 여러 검색 조건을 한번의 요청, 한번의 쿼리로 조회한다.
+     * 결과는 요청한 조건 순서대로 조건별 목록으로 반환한다.
+     * 조건 수와 조건 없는 검색은 막고, 실행 시간은 페이지 조회와 같은 예산으로 제한한다.
+     * 조건마다 결과 건수를 제한하고, 잘렸으면 X-Result-Truncated 에 조건 순서대로 true (QueryGovernor.batch)
+     */
+    @PostMapping("/v1/members/batch")
+    public ResponseEntity<List<List<MemberTeamDto>>> searchMemberBatch(@RequestBody List<MemberSearchCondition> conditions) {
+        if (conditions.size() > MAX_BATCH_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + MAX_BATCH_SIZE + " conditions are allowed per batch");
+        }
+        try {
+            return queryGovernor.batch(limit -> memberRepository.searchBatch(conditions, limit));
+        } catch (InvalidDataAccessApiUsageException e) {
+            //조건이 없는 검색은 전체 조회가 되므로 받지 않는다.
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 회원 + 팀 전체를 CSV로 내려준다. 구간별로 병렬 조회해서 조회가 끝난 구간부터 바로 응답에 쓴다.
+     * ordered=false 이면 식별자 순서를 보장하지 않는 대신 더 빠르다.
+     */
+    @GetMapping("/v1/members/export")
+    public ResponseEntity<StreamingResponseBody> exportMembers(@RequestParam(defaultValue = "true") boolean ordered) {
+        StreamingResponseBody body = out -> memberExporter.export(out, ordered);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=members.csv")
+                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .body(body);
+    }
+
+    /**
+     * 쿼리 시간 예산 초과, 조회 대기열 초과
+     */
+    @ExceptionHandler({QueryTimeoutException.class, javax.persistence.QueryTimeoutException.class,
+            TaskRejectedException.class})
+    public ResponseEntity<Void> queryRejected(Exception e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .build();
     }
 }
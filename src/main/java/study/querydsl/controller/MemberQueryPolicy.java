@@ -0,0 +1,170 @@
+package study.querydsl.controller;
+
+import com.querydsl.core.types.Constant;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Operator;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Predicate;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static study.querydsl.entitiy.QMember.member;
+import static study.querydsl.repository.support.MemberConditions.SORTABLE;
+
+/**
+ * /members/query 허용 범위
+ * <p>
+ * 바인딩된 Predicate 의 모양(속성 + 연산자, 값 제외)이 인덱스를 탈 수 있는 조합인지 검사한다.
+ * 모양별 검사 결과는 캐시해서 같은 모양의 요청은 다시 검사하지 않는다.
+ * 조건 없는 전체 조회(전체 count 포함)는 받지 않고, 허용 속성 조건이 하나 이상 있어야 한다.
+ * 페이지 크기는 MAX_PAGE_SIZE 로 자르고, 건너뛰는 행(offset)은 MAX_OFFSET 까지만 허용한다.
+ * 정렬은 인덱스가 있는 회원 속성(MemberConditions.SORTABLE)만 허용한다.
+ * 허용하지 않는 요청은 IllegalArgumentException
+ */
+@Component
+public class MemberQueryPolicy {
+
+    static final int MAX_PAGE_SIZE = 100;
+    static final int MAX_IN_VALUES = 100;
+    //offset 은 건너뛰는 행도 모두 읽으므로 깊은 페이지는 조건을 좁혀서 조회한다.
+    static final long MAX_OFFSET = 10_000;
+    private static final int MAX_SHAPES = 1000;
+
+    private static final Map<Path<?>, Set<Operator>> FILTERABLE = new HashMap<>();
+
+    static {
+        FILTERABLE.put(member.id, ops(Ops.EQ, Ops.IN));
+        FILTERABLE.put(member.username, ops(Ops.STARTS_WITH));
+        FILTERABLE.put(member.age, ops(Ops.EQ, Ops.BETWEEN, Ops.GOE, Ops.LOE));
+        FILTERABLE.put(member.team.id, ops(Ops.EQ, Ops.IN));
+        FILTERABLE.put(member.team.name, ops(Ops.EQ, Ops.IN));
+    }
+
+    private final Map<String, String> shapes = new ConcurrentHashMap<>();
+
+    public Pageable validate(Predicate predicate, Pageable pageable) {
+        Expression<?> expression = predicate == null ? null : ExpressionUtils.extract(predicate); //BooleanBuilder -> 내부 조건
+        checkInValues(expression);
+
+        Set<String> shape = new TreeSet<>();
+        collect(expression, shape);
+        if (shape.isEmpty()) {
+            throw new IllegalArgumentException("At least one filter is required, allowed: " + FILTERABLE.keySet());
+        }
+        String key = String.join(",", shape);
+        String rejected = shapes.get(key);
+        if (rejected == null) {
+            rejected = check(expression);
+            if (shapes.size() < MAX_SHAPES) {
+                shapes.put(key, rejected);
+            }
+        }
+        if (!rejected.isEmpty()) {
+            throw new IllegalArgumentException(rejected);
+        }
+
+        for (Sort.Order order : pageable.getSort()) {
+            if (!SORTABLE.contains(order.getProperty())) {
+                throw new IllegalArgumentException("Sort not allowed: " + order.getProperty() + ", allowed: " + SORTABLE);
+            }
+        }
+        Pageable allowed = pageable;
+        if (pageable.isUnpaged()) {
+            allowed = PageRequest.of(0, MAX_PAGE_SIZE, pageable.getSort());
+        } else if (pageable.getPageSize() > MAX_PAGE_SIZE) {
+            allowed = PageRequest.of(pageable.getPageNumber(), MAX_PAGE_SIZE, pageable.getSort());
+        }
+        if (allowed.getOffset() > MAX_OFFSET) {
+            throw new IllegalArgumentException("Offset too large: " + allowed.getOffset() + ", max: " + MAX_OFFSET);
+        }
+        return allowed;
+    }
+
+    int cachedShapes() {
+        return shapes.size();
+    }
+
+    /**
+     * 값은 빼고 "속성:연산자" 만 모은다. in 절은 값 개수가 허용 범위를 넘는지만 따로 검사한다.
+     */
+    private static void collect(Expression<?> expression, Set<String> shape) {
+        if (!(expression instanceof Operation)) {
+            return;
+        }
+        Operation<?> operation = (Operation<?>) expression;
+        Operator operator = operation.getOperator();
+        if (operator == Ops.AND || operator == Ops.OR || operator == Ops.NOT) {
+            if (operator != Ops.AND) {
+                shape.add(operator.toString());
+            }
+            for (Expression<?> arg : operation.getArgs()) {
+                collect(arg, shape);
+            }
+            return;
+        }
+        shape.add(operation.getArg(0) + ":" + operator);
+    }
+
+    /**
+     * @return 거절 사유, 허용이면 빈 문자열
+     */
+    private static String check(Expression<?> expression) {
+        if (!(expression instanceof Operation)) {
+            return "";
+        }
+        Operation<?> operation = (Operation<?>) expression;
+        Operator operator = operation.getOperator();
+        if (operator == Ops.AND) {
+            for (Expression<?> arg : operation.getArgs()) {
+                String rejected = check(arg);
+                if (!rejected.isEmpty()) {
+                    return rejected;
+                }
+            }
+            return "";
+        }
+        Expression<?> target = operation.getArg(0);
+        Set<Operator> allowed = target instanceof Path ? FILTERABLE.get(target) : null;
+        if (allowed == null || !allowed.contains(operator)) {
+            return "Filter not allowed: " + target + " " + operator;
+        }
+        return "";
+    }
+
+    /**
+     * in 절 값 개수는 모양에 포함되지 않으므로 캐시와 관계없이 매번 검사한다.
+     */
+    private static void checkInValues(Expression<?> expression) {
+        if (!(expression instanceof Operation)) {
+            return;
+        }
+        Operation<?> operation = (Operation<?>) expression;
+        if (operation.getOperator() == Ops.IN && operation.getArg(1) instanceof Constant) {
+            Object values = ((Constant<?>) operation.getArg(1)).getConstant();
+            if (values instanceof Collection && ((Collection<?>) values).size() > MAX_IN_VALUES) {
+                throw new IllegalArgumentException("Too many values for " + operation.getArg(0) + ", max: " + MAX_IN_VALUES);
+            }
+        }
+        for (Expression<?> arg : operation.getArgs()) {
+            checkInValues(arg);
+        }
+    }
+
+    private static Set<Operator> ops(Operator... operators) {
+        return new HashSet<>(Arrays.asList(operators));
+    }
+}
@@ -0,0 +1,100 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.cache.PagePrefetcher;
+import study.querydsl.governance.AdmissionController;
+import study.querydsl.monitor.ConnectionPoolMonitor;
+import study.querydsl.monitor.IndexAdvisor;
+import study.querydsl.monitor.SlowQueryLog;
+import study.querydsl.monitor.StartupMetrics;
+import study.querydsl.paging.AdaptiveCountPolicy;
+import study.querydsl.readmodel.MemberTeamViewChecker;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/monitor")
+@RequiredArgsConstructor
+public class MonitorController {
+
+    private final ConnectionPoolMonitor connectionPoolMonitor;
+    private final StartupMetrics startupMetrics;
+    private final SlowQueryLog slowQueryLog;
+    private final IndexAdvisor indexAdvisor;
+    private final PagePrefetcher pagePrefetcher;
+    private final MemberTeamViewChecker memberTeamViewChecker;
+    private final AdmissionController admissionController;
+    private final AdaptiveCountPolicy adaptiveCountPolicy;
+
+    @GetMapping("/pool")
+    public ConnectionPoolMonitor.PoolSnapshot pool() {
+        return connectionPoolMonitor.snapshot();
+    }
+
+    @GetMapping("/startup")
+    public Map<String, Long> startup() {
+        return startupMetrics.snapshot();
+    }
+
+    @GetMapping("/slow-queries")
+    public List<SlowQueryLog.SlowQuery> slowQueries() {
+        return slowQueryLog.recent();
+    }
+
+    @DeleteMapping("/slow-queries")
+    public void clearSlowQueries() {
+        slowQueryLog.clear();
+    }
+
+    @GetMapping("/index-advice")
+    public List<IndexAdvisor.Recommendation> indexAdvice() {
+        return indexAdvisor.recommendations();
+    }
+
+    @GetMapping("/prefetch")
+    public PagePrefetcher.Stats prefetch() {
+        return pagePrefetcher.stats();
+    }
+
+    @DeleteMapping("/prefetch")
+    public void clearPrefetch() {
+        pagePrefetcher.clear();
+    }
+
+    @GetMapping("/read-model")
+    public MemberTeamViewChecker.Report readModel() {
+        return memberTeamViewChecker.check();
+    }
+
+    /**
+     * 벌크 연산 등으로 조회 모델이 원본과 달라졌을 때 다시 만든다.
+     */
+    @PostMapping("/read-model/rebuild")
+    public int rebuildReadModel() {
+        return memberTeamViewChecker.rebuild();
+    }
+
+    @GetMapping("/admission")
+    public AdmissionController.Stats admission() {
+        return admissionController.stats();
+    }
+
+    /**
+     * 조건 모양별 count 방법과 count 쿼리 평균 시간
+     */
+    @GetMapping("/count-strategy")
+    public Map<String, AdaptiveCountPolicy.ShapeSnapshot> countStrategy() {
+        return adaptiveCountPolicy.stats();
+    }
+
+    @DeleteMapping("/count-strategy")
+    public void clearCountStrategy() {
+        adaptiveCountPolicy.clear();
+    }
+}
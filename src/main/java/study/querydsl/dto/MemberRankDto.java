@@ -0,0 +1,27 @@
+package study.querydsl.dto;
+
+import com.querydsl.core.annotations.QueryProjection;
+import lombok.Data;
+
+@Data
+public class MemberRankDto {
+    private Long memberId;
+    private String username;
+    private int age;
+    private Long teamId;
+    private String teamName;
+    private long teamRank; //팀 안에서 나이 순위 (나이가 많을수록 1에 가깝다)
+    private double agePercentRank; //전체 회원 중 나이 백분위 (0 ~ 1)
+
+    @QueryProjection
+    public MemberRankDto(Long memberId, String username, int age, Long teamId, String teamName,
+                         long teamRank, double agePercentRank) {
+        this.memberId = memberId;
+        this.username = username;
+        this.age = age;
+        this.teamId = teamId;
+        this.teamName = teamName;
+        this.teamRank = teamRank;
+        this.agePercentRank = agePercentRank;
+    }
+}
@@ -0,0 +1,31 @@
+package study.querydsl.entitiy;
+
+/**
+ * 나이 구간 (0~20: 2, 21~30: 1, 나머지: 3)
+ * <p>
+ * Member.ageBucket 컬럼 정의(SQL)와 DerivedColumns.ageBucket(Querydsl 식)이 모두 이 상수로 만들어진다.
+ * 구간을 바꾸려면 여기만 수정하면 된다. (기존 DB는 컬럼을 다시 만들어야 한다)
+ */
+public final class AgeBucket {
+
+    public static final int YOUNG_FROM = 0;
+    public static final int YOUNG_TO = 20;
+    public static final int YOUNG = 2;
+
+    public static final int ADULT_FROM = 21;
+    public static final int ADULT_TO = 30;
+    public static final int ADULT = 1;
+
+    public static final int OTHER = 3;
+
+    /**
+     * age_bucket 계산 컬럼 식, 어노테이션(columnDefinition)에서 사용하기 위해 컴파일 타임 상수로 만든다.
+     */
+    public static final String SQL = "case"
+            + " when age between " + YOUNG_FROM + " and " + YOUNG_TO + " then " + YOUNG
+            + " when age between " + ADULT_FROM + " and " + ADULT_TO + " then " + ADULT
+            + " else " + OTHER + " end";
+
+    private AgeBucket() {
+    }
+}
@@ -2,12 +2,24 @@ package study.querydsl.entitiy;
 
 import lombok.*;
 
+import org.hibernate.Hibernate;
+import study.querydsl.readmodel.MemberTeamViewListener;
+
 import javax.persistence.*;
 
 @Entity
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "username", "age"})
+@EntityListeners(MemberTeamViewListener.class) //member_team_view 동기화
+@NamedEntityGraph(name = "Member.team", attributeNodes = @NamedAttributeNode("team")) //FetchPlan.graph("Member.team")
+@Table(indexes = {
+        @Index(name = "idx_member_team_age", columnList = "team_id, age"), //팀 + 나이 범위 검색
+        @Index(name = "idx_member_username", columnList = "username"),
+        @Index(name = "idx_member_age_id", columnList = "age, id"), //나이 정렬 키셋 페이징
+        @Index(name = "idx_member_username_lower", columnList = "username_lower"),
+        @Index(name = "idx_member_age_bucket", columnList = "age_bucket")
+})
 public class Member {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -18,6 +30,25 @@ public class Member {
     @JoinColumn(name = "team_id") //외래키 이름
     private Team team;
 
+    /**
+     * DB가 계산해서 저장하는 컬럼 (H2 generated column)
+     * 벌크 수정을 포함해서 username, age 가 바뀔 때마다 DB가 다시 계산하므로 항상 맞는 값이다.
+     * 조회 조건, 정렬에서만 사용하고 엔티티에서는 읽지 않는다. (저장 후 다시 조회하지 않는다)
+     * lower(username), 나이 구간 case 식은 DerivedColumns 가 이 컬럼으로 바꿔서 인덱스를 타게 한다.
+     *
+     * columnDefinition 은 H2 문법이다. 다른 DB 로 바꾸면 DDL 을 그 DB 문법으로 바꿔야 한다.
+     * (e.g. PostgreSQL 은 generated always as (...) stored)
+     */
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    @Column(name = "username_lower", insertable = false, updatable = false,
+            columnDefinition = "varchar(255) generated always as (lower(username))")
+    private String usernameLower;
+
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    @Column(name = "age_bucket", insertable = false, updatable = false,
+            columnDefinition = "integer generated always as (" + AgeBucket.SQL + ")")
+    private Integer ageBucket;
+
     public Member(String username) {
         this(username, 0);
     }
@@ -35,8 +66,13 @@ public class Member {
     }
 
     //연관관계 편의 메서드
+    //양쪽 컬렉션을 모두 맞추지만 로딩되지 않은 Team.members 를 로딩하지는 않는다.
+    //이전 팀이 초기화되지 않은 프록시면 members 도 로딩된 적이 없으므로 프록시를 초기화하지 않고 넘어간다.
     public void changeTeam(Team team) {
+        if (this.team != null && Hibernate.isInitialized(this.team)) {
+            this.team.removeMember(this);
+        }
         this.team = team;
-        team.getMembers().add(this);
+        team.addMember(this);
     }
 }
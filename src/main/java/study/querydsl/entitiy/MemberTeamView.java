@@ -0,0 +1,41 @@
+package study.querydsl.entitiy;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+/**
+ * 회원 + 팀 조회 모델 (MemberTeamDto 와 같은 컬럼)
+ * <p>
+ * 조회할 때마다 member, team 을 조인하지 않도록 팀 이름까지 회원 행에 미리 저장해 둔다.
+ * 애플리케이션에서 직접 저장하지 않고 MemberTeamViewSync 가 커밋 직전에 원본 테이블에서 다시 만든다.
+ */
+@Entity
+@Immutable
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+@Table(name = "member_team_view", indexes = {
+        @Index(name = "idx_member_team_view_team_name_age", columnList = "team_name, age"),
+        @Index(name = "idx_member_team_view_username", columnList = "username"),
+        @Index(name = "idx_member_team_view_age", columnList = "age")
+})
+public class MemberTeamView {
+    @Id
+    @Column(name = "member_id")
+    private Long memberId;
+    private String username;
+    private int age;
+    @Column(name = "team_id")
+    private Long teamId;
+    @Column(name = "team_name")
+    private String teamName;
+}
@@ -1,6 +1,10 @@
 package study.querydsl.entitiy;
 
 import lombok.*;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.LazyCollection;
+import org.hibernate.annotations.LazyCollectionOption;
+import study.querydsl.readmodel.MemberTeamViewListener;
 
 import javax.persistence.*;
 import java.util.ArrayList;
@@ -10,15 +14,47 @@ import java.util.List;
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"name"})
+@EntityListeners(MemberTeamViewListener.class) //member_team_view 동기화
+@Table(indexes = @Index(name = "idx_team_name", columnList = "name"))
 public class Team {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     private String name;
+    /**
+     * EXTRA: size(), contains() 를 호출해도 컬렉션 전체를 로딩하지 않고 count / exists 쿼리로 처리한다.
+     */
     @OneToMany(mappedBy = "team")
+    @LazyCollection(LazyCollectionOption.EXTRA)
     private List<Member> members = new ArrayList<>();
 
     public Team(String name) {
         this.name = name;
     }
+
+    public int countMembers() {
+        return members.size();
+    }
+
+    public boolean hasMember(Member member) {
+        return members.contains(member);
+    }
+
+    /**
+     * Member.changeTeam 에서 사용 (팀 프록시를 통해서도 호출되도록 public)
+     * 연관관계의 주인이 아닌(mappedBy) 컬렉션이 아직 로딩되지 않았다면 하이버네이트는 추가 연산을 큐에 쌓아두기만 한다.
+     * 팀 회원 수와 관계 없이 컬렉션을 로딩하지 않는다.
+     */
+    public void addMember(Member member) {
+        members.add(member);
+    }
+
+    /**
+     * 컬렉션이 로딩되어 있을 때만 제거한다. 로딩되지 않았다면 외래키(member.team_id) 변경만으로 충분하다.
+     */
+    public void removeMember(Member member) {
+        if (Hibernate.isInitialized(members)) {
+            members.remove(member);
+        }
+    }
 }
@@ -0,0 +1,297 @@
+package study.querydsl.export;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.monitor.ConnectionPoolMonitor;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static study.querydsl.entitiy.QMember.member;
+import static study.querydsl.entitiy.QTeam.team;
+
+/**
+ * 회원 + 팀 전체 내보내기 (CSV)
+ * <p>
+ * member.id 범위를 일정한 크기의 구간으로 나누고, 구간마다 별도의 읽기 전용 EntityManager 로 동시에 조회한다.
+ * 조회가 끝난 구간부터 파일이나 HTTP 응답으로 바로 쓴다.
+ * - ordered: 식별자 순서대로 쓴다. 앞 구간이 끝날 때까지 뒤 구간은 기다린다.
+ * - unordered: 먼저 끝난 구간부터 쓴다.
+ *
+ * 동시에 조회하는 구간 수(병렬도)는 export.parallelism 과 커넥션 풀 크기 - 1 중 작은 값이다.
+ * 다른 요청이 사용할 커넥션을 최소 하나는 남겨둔다.
+ * 조회 스레드 풀은 모든 내보내기가 함께 사용하므로 내보내기가 동시에 여러 개 실행되어도 병렬도를 넘지 않는다.
+ * 내보내기 하나당 메모리에는 최대 (병렬도 x 2)개 구간만 올라온다.
+ */
+@Slf4j
+@Component
+public class MemberExporter implements DisposableBean {
+
+    private static final String HEADER = "memberId,username,age,teamId,teamName";
+
+    private final EntityManagerFactory emf;
+    private final int parallelism;
+    private final long partitionSize;
+    private final ExecutorService executor;
+    private final AtomicInteger runningFetches = new AtomicInteger();
+    private final AtomicInteger peakFetches = new AtomicInteger();
+
+    public MemberExporter(EntityManagerFactory emf, ConnectionPoolMonitor connectionPoolMonitor,
+                          @Value("${export.parallelism:0}") int parallelism,
+                          @Value("${export.partition-size:50000}") long partitionSize) {
+        this.emf = emf;
+        this.parallelism = parallelism(connectionPoolMonitor,
+                parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.partitionSize = partitionSize;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(this.parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "member-export-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    public ExportResult export(Path file, boolean ordered) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (OutputStream out = Files.newOutputStream(file)) {
+            return export(out, ordered);
+        }
+    }
+
+    /**
+     * out 은 닫지 않는다.
+     */
+    public ExportResult export(OutputStream out, boolean ordered) throws IOException {
+        long start = System.nanoTime();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(HEADER);
+        writer.write('\n');
+
+        List<long[]> partitions = partitions();
+        int threads = Math.max(1, Math.min(parallelism, partitions.size()));
+
+        //실패하거나 클라이언트 연결이 끊어지면 이 내보내기의 남은 구간 조회만 취소한다.
+        List<Future<?>> submitted = new ArrayList<>();
+        long rows;
+        try {
+            rows = ordered
+                    ? writeOrdered(partitions, threads * 2, writer, submitted)
+                    : writeUnordered(partitions, threads * 2, writer, submitted);
+        } finally {
+            submitted.forEach(future -> future.cancel(true));
+        }
+        writer.flush();
+
+        ExportResult result = new ExportResult(rows, partitions.size(), threads, ordered,
+                (System.nanoTime() - start) / 1_000_000);
+        log.info("Exported {}", result);
+        return result;
+    }
+
+    /**
+     * 앞에서부터 window 개 구간을 조회하고, 가장 앞 구간을 쓸 때마다 다음 구간을 조회한다.
+     */
+    private long writeOrdered(List<long[]> partitions, int window, Writer writer,
+                              List<Future<?>> submitted) throws IOException {
+        Deque<Future<List<MemberTeamDto>>> inFlight = new ArrayDeque<>();
+        int next = 0;
+        long rows = 0;
+        while (next < partitions.size() || !inFlight.isEmpty()) {
+            while (next < partitions.size() && inFlight.size() < window) {
+                long[] range = partitions.get(next++);
+                Future<List<MemberTeamDto>> future = executor.submit(() -> fetch(range[0], range[1]));
+                submitted.add(future);
+                inFlight.addLast(future);
+            }
+            rows += write(await(inFlight.removeFirst()), writer);
+        }
+        return rows;
+    }
+
+    private long writeUnordered(List<long[]> partitions, int window, Writer writer,
+                                List<Future<?>> submitted) throws IOException {
+        CompletionService<List<MemberTeamDto>> completion = new ExecutorCompletionService<>(executor);
+        int next = 0;
+        int running = 0;
+        long rows = 0;
+        while (next < partitions.size() || running > 0) {
+            while (next < partitions.size() && running < window) {
+                long[] range = partitions.get(next++);
+                submitted.add(completion.submit(() -> fetch(range[0], range[1])));
+                running++;
+            }
+            try {
+                rows += write(await(completion.take()), writer);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Export interrupted", e);
+            }
+            running--;
+        }
+        return rows;
+    }
+
+    /**
+     * [min(id), max(id)] 를 partitionSize 크기의 [from, to) 구간으로 나눈다.
+     */
+    private List<long[]> partitions() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            Tuple bounds = new JPAQueryFactory(em)
+                    .select(member.id.min(), member.id.max())
+                    .from(member)
+                    .fetchOne();
+            List<long[]> partitions = new ArrayList<>();
+            Long min = bounds == null ? null : bounds.get(member.id.min());
+            Long max = bounds == null ? null : bounds.get(member.id.max());
+            if (min == null || max == null) {
+                return partitions;
+            }
+            for (long from = min; from <= max; from += partitionSize) {
+                partitions.add(new long[]{from, Math.min(from + partitionSize, max + 1)});
+            }
+            return partitions;
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * 지금까지 동시에 실행된 구간 조회 수의 최대값
+     */
+    int peakConcurrentFetches() {
+        return peakFetches.get();
+    }
+
+    private List<MemberTeamDto> fetch(long from, long to) {
+        peakFetches.accumulateAndGet(runningFetches.incrementAndGet(), Math::max);
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.unwrap(Session.class).setDefaultReadOnly(true);
+            return new JPAQueryFactory(em)
+                    .select(new QMemberTeamDto(
+                            member.id.as("memberId"),
+                            member.username,
+                            member.age,
+                            team.id.as("teamId"),
+                            team.name.as("teamName")
+                    ))
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .where(member.id.goe(from), member.id.lt(to))
+                    .orderBy(member.id.asc())
+                    .setHint(QueryHints.HINT_READONLY, true)
+                    .setHint(QueryHints.HINT_FETCH_SIZE, 1000)
+                    .fetch();
+        } finally {
+            em.close();
+            runningFetches.decrementAndGet();
+        }
+    }
+
+    private static int parallelism(ConnectionPoolMonitor connectionPoolMonitor, int parallelism) {
+        HikariDataSource hikari = connectionPoolMonitor.hikariDataSource();
+        if (hikari == null) {
+            return parallelism;
+        }
+        return Math.min(parallelism, Math.max(1, hikari.getMaximumPoolSize() - 1));
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Export interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Export partition failed", e.getCause());
+        }
+    }
+
+    private static long write(List<MemberTeamDto> rows, Writer writer) throws IOException {
+        for (MemberTeamDto row : rows) {
+            writer.write(String.valueOf(row.getMemberId()));
+            writer.write(',');
+            writer.write(csv(row.getUsername()));
+            writer.write(',');
+            writer.write(String.valueOf(row.getAge()));
+            writer.write(',');
+            writer.write(row.getTeamId() == null ? "" : String.valueOf(row.getTeamId()));
+            writer.write(',');
+            writer.write(csv(row.getTeamName()));
+            writer.write('\n');
+        }
+        return rows.size();
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    @Getter
+    public static class ExportResult {
+        private final long rows;
+        private final int partitions;
+        private final int parallelism;
+        private final boolean ordered;
+        private final long elapsedMillis;
+
+        ExportResult(long rows, int partitions, int parallelism, boolean ordered, long elapsedMillis) {
+            this.rows = rows;
+            this.partitions = partitions;
+            this.parallelism = parallelism;
+            this.ordered = ordered;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return rows + " rows in " + partitions + " partitions, parallelism " + parallelism
+                    + (ordered ? ", ordered, " : ", unordered, ") + elapsedMillis + " ms";
+        }
+    }
+}
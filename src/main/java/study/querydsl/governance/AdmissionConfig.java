@@ -0,0 +1,23 @@
+package study.querydsl.governance;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@ConditionalOnProperty(name = "query.admission.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionConfig implements WebMvcConfigurer {
+
+    private final AdmissionInterceptor admissionInterceptor;
+
+    public AdmissionConfig(AdmissionInterceptor admissionInterceptor) {
+        this.admissionInterceptor = admissionInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(admissionInterceptor)
+                .addPathPatterns("/v1/members/**", "/v2/members/**", "/v3/members/**", "/members/**");
+    }
+}
@@ -0,0 +1,220 @@
+package study.querydsl.governance;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import study.querydsl.monitor.ConnectionPoolMonitor;
+import study.querydsl.monitor.LatencyStats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * DB 포화 상태에 따라 요청을 받거나 거절한다. (AdmissionInterceptor)
+ * <p>
+ * 동시에 처리 중인 요청 수가 한도(AimdLimit)를 넘으면 거절한다. 한도는 다음 신호로 조절한다.
+ * - 요청 처리 시간이 query.admission.latency-threshold-ms 를 넘거나 503(쿼리 타임아웃)으로 끝나면 줄인다.
+ * - 최근 구간의 커넥션 획득 대기 시간 평균이 query.admission.pool-wait-threshold-ms 를 넘으면 줄인다.
+ * - 빠르게 처리되면서 한도 가까이 사용 중이면 늘린다.
+ *
+ * 비싼 요청(조건 없는 전체 조회, 깊은 페이지 등)은 한도의 expensive-share 까지만 받고 대기하지 않는다.
+ * 싼 요청(첫 페이지, 조건 검색)은 한도까지 받고, 한도가 차 있으면 queue-timeout-ms 동안 자리가 나기를 기다린다.
+ * 그래서 포화 상태에서는 비싼 요청부터 거절된다.
+ *
+ * query.admission.enabled=false 이면 요청을 거르지 않으므로(AdmissionConfig) 커넥션 풀 대기 시간도 보지 않는다.
+ */
+@Slf4j
+@Component
+public class AdmissionController {
+
+    private final AimdLimit limit;
+    private final double expensiveShare;
+    private final long queueTimeoutNanos;
+    private final long poolWaitThresholdNanos;
+    private final ConnectionPoolMonitor connectionPoolMonitor;
+    private final LongSupplier nanoClock;
+
+    private final Object lock = new Object();
+    private int inFlight;
+    private volatile double latencyEwmaNanos;
+    private LatencyStats.Snapshot lastAcquire;
+
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong rejectedCheap = new AtomicLong();
+    private final AtomicLong rejectedExpensive = new AtomicLong();
+
+    @Autowired
+    public AdmissionController(ConnectionPoolMonitor connectionPoolMonitor,
+                               @Value("${query.admission.enabled:true}") boolean enabled,
+                               @Value("${query.admission.initial-limit:20}") int initialLimit,
+                               @Value("${query.admission.min-limit:2}") int minLimit,
+                               @Value("${query.admission.max-limit:200}") int maxLimit,
+                               @Value("${query.admission.backoff-ratio:0.9}") double backoffRatio,
+                               @Value("${query.admission.latency-threshold-ms:500}") long latencyThresholdMs,
+                               @Value("${query.admission.expensive-share:0.5}") double expensiveShare,
+                               @Value("${query.admission.queue-timeout-ms:50}") long queueTimeoutMs,
+                               @Value("${query.admission.pool-wait-threshold-ms:50}") long poolWaitThresholdMs) {
+        this(new AimdLimit(initialLimit, minLimit, maxLimit, backoffRatio,
+                        TimeUnit.MILLISECONDS.toNanos(latencyThresholdMs)),
+                expensiveShare, queueTimeoutMs, poolWaitThresholdMs, enabled ? connectionPoolMonitor : null);
+    }
+
+    /**
+     * @param connectionPoolMonitor null 이면 커넥션 풀 대기 시간은 보지 않는다.
+     */
+    AdmissionController(AimdLimit limit, double expensiveShare, long queueTimeoutMs, long poolWaitThresholdMs,
+                        ConnectionPoolMonitor connectionPoolMonitor) {
+        this(limit, expensiveShare, queueTimeoutMs, poolWaitThresholdMs, connectionPoolMonitor, System::nanoTime);
+    }
+
+    /**
+     * @param nanoClock 처리 시간과 대기 시간을 재는 시계 (테스트에서 시뮬레이션 시간을 쓴다)
+     */
+    AdmissionController(AimdLimit limit, double expensiveShare, long queueTimeoutMs, long poolWaitThresholdMs,
+                        ConnectionPoolMonitor connectionPoolMonitor, LongSupplier nanoClock) {
+        this.limit = limit;
+        this.expensiveShare = expensiveShare;
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMs);
+        this.poolWaitThresholdNanos = TimeUnit.MILLISECONDS.toNanos(poolWaitThresholdMs);
+        this.connectionPoolMonitor = connectionPoolMonitor;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * @return 거절하면 null
+     */
+    public Permit tryAcquire(RequestCost cost) throws InterruptedException {
+        return tryAcquire(cost, true);
+    }
+
+    /**
+     * @param sampled false 이면 반납할 때 처리 시간을 한도 조절에 쓰지 않는다. (스트리밍 응답)
+     * @return 거절하면 null
+     */
+    public Permit tryAcquire(RequestCost cost, boolean sampled) throws InterruptedException {
+        synchronized (lock) {
+            if (cost == RequestCost.EXPENSIVE) {
+                int expensiveLimit = Math.max(1, (int) (limit.getLimit() * expensiveShare));
+                if (inFlight >= expensiveLimit) {
+                    rejectedExpensive.incrementAndGet();
+                    return null;
+                }
+            } else {
+                long deadline = nanoClock.getAsLong() + queueTimeoutNanos;
+                while (inFlight >= limit.getLimit()) {
+                    long remaining = deadline - nanoClock.getAsLong();
+                    if (remaining <= 0) {
+                        rejectedCheap.incrementAndGet();
+                        return null;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                }
+            }
+            inFlight++;
+            admitted.incrementAndGet();
+            return new Permit(cost, inFlight, sampled, nanoClock.getAsLong());
+        }
+    }
+
+    public void release(Permit permit, boolean dropped) {
+        if (!permit.release()) {
+            return;
+        }
+        if (permit.sampled) {
+            long latency = nanoClock.getAsLong() - permit.startNanos;
+            latencyEwmaNanos = latencyEwmaNanos == 0 ? latency : latencyEwmaNanos * 0.9 + latency * 0.1;
+            limit.onSample(latency, permit.inFlight, dropped);
+        }
+        synchronized (lock) {
+            inFlight--;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * 최근 응답 시간으로 재시도 시점을 추정한다. (최소 1초)
+     */
+    public long retryAfterSeconds() {
+        return Math.max(1, (long) Math.ceil(latencyEwmaNanos / TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    /**
+     * 최근 구간의 커넥션 획득 대기 시간 평균이 임계치를 넘으면 한도를 줄인다.
+     */
+    @Scheduled(fixedDelayString = "${query.admission.pool-check-interval-ms:1000}")
+    public void checkPoolWait() {
+        if (connectionPoolMonitor == null) {
+            return;
+        }
+        LatencyStats.Snapshot current = connectionPoolMonitor.acquireSnapshot();
+        LatencyStats.Snapshot previous = lastAcquire;
+        lastAcquire = current;
+        if (previous == null) {
+            return;
+        }
+        LatencyStats.Snapshot interval = current.minus(previous);
+        if (interval.getCount() > 0 && interval.getTotalNanos() / interval.getCount() > poolWaitThresholdNanos) {
+            limit.decrease();
+            log.debug("Connection pool saturated ({} ms avg wait), admission limit {}",
+                    interval.getAvgMillis(), limit.getLimit());
+        }
+    }
+
+    public Stats stats() {
+        synchronized (lock) {
+            return new Stats(limit.getLimit(), inFlight, admitted.get(), rejectedCheap.get(), rejectedExpensive.get(),
+                    latencyEwmaNanos / TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    public static class Permit {
+        private final RequestCost cost;
+        private final int inFlight;
+        private final boolean sampled;
+        private final long startNanos;
+        private boolean released;
+
+        Permit(RequestCost cost, int inFlight, boolean sampled, long startNanos) {
+            this.cost = cost;
+            this.inFlight = inFlight;
+            this.sampled = sampled;
+            this.startNanos = startNanos;
+        }
+
+        public RequestCost getCost() {
+            return cost;
+        }
+
+        private synchronized boolean release() {
+            if (released) {
+                return false;
+            }
+            released = true;
+            return true;
+        }
+    }
+
+    @Getter
+    public static class Stats {
+        private final int limit;
+        private final int inFlight;
+        private final long admitted;
+        private final long rejectedCheap;
+        private final long rejectedExpensive;
+        private final double latencyEwmaMillis;
+
+        Stats(int limit, int inFlight, long admitted, long rejectedCheap, long rejectedExpensive,
+              double latencyEwmaMillis) {
+            this.limit = limit;
+            this.inFlight = inFlight;
+            this.admitted = admitted;
+            this.rejectedCheap = rejectedCheap;
+            this.rejectedExpensive = rejectedExpensive;
+            this.latencyEwmaMillis = latencyEwmaMillis;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package study.querydsl.governance;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 회원 검색 API 앞에서 AdmissionController 로 요청을 받거나 429 + Retry-After 로 거절한다.
+ * <p>
+ * 비동기 요청(/v1/members)은 처음 요청에서 받은 자리를 비동기 결과를 응답할 때(ASYNC dispatch) 반납한다.
+ * 내보내기(스트리밍 응답)는 자리는 차지하지만 처리 시간을 한도 조절에 쓰지 않는다. (RequestCost.isStreaming)
+ */
+@Component
+public class AdmissionInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String PERMIT = AdmissionInterceptor.class.getName() + ".permit";
+
+    private final AdmissionController admissionController;
+    private final long deepOffset;
+
+    public AdmissionInterceptor(AdmissionController admissionController,
+                                @Value("${query.admission.deep-offset:1000}") long deepOffset) {
+        this.admissionController = admissionController;
+        this.deepOffset = deepOffset;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true; //처음 요청에서 이미 받았다.
+        }
+        AdmissionController.Permit permit = admissionController.tryAcquire(RequestCost.of(request, deepOffset),
+                !RequestCost.isStreaming(request));
+        if (permit == null) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(admissionController.retryAfterSeconds()));
+            return false;
+        }
+        request.setAttribute(PERMIT, permit);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        AdmissionController.Permit permit = (AdmissionController.Permit) request.getAttribute(PERMIT);
+        if (permit != null) {
+            request.removeAttribute(PERMIT);
+            //503 은 쿼리 타임아웃, 대기열 초과
+            admissionController.release(permit, response.getStatus() == HttpStatus.SERVICE_UNAVAILABLE.value());
+        }
+    }
+}
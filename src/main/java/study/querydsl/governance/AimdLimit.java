@@ -0,0 +1,52 @@
+package study.querydsl.governance;
+
+/**
+ * AIMD(additive increase, multiplicative decrease) 동시 실행 한도
+ * <p>
+ * 응답이 빠르고 한도 가까이 사용 중이면 한도를 1 늘리고,
+ * 응답이 느리거나(latency-threshold 초과) 실패(drop)하면 한도에 backoff-ratio 를 곱해서 줄인다.
+ * 한도를 절반도 쓰지 않을 때는 늘리지 않는다. (부하가 없을 때 한도가 끝없이 커지지 않도록)
+ */
+public class AimdLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+    private double limit;
+
+    public AimdLimit(int initialLimit, int minLimit, int maxLimit, double backoffRatio, long latencyThresholdNanos) {
+        if (minLimit < 1 || maxLimit < minLimit || backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("Invalid AIMD settings");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = latencyThresholdNanos;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * @param latencyNanos 처리 시간
+     * @param inFlight     이 요청을 포함해서 처리 중이던 요청 수
+     * @param dropped      타임아웃 등으로 실패
+     */
+    public synchronized void onSample(long latencyNanos, int inFlight, boolean dropped) {
+        if (dropped || latencyNanos > latencyThresholdNanos) {
+            decrease();
+        } else if (inFlight * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1);
+        }
+    }
+
+    /**
+     * 응답 시간과 관계없는 포화 신호 (커넥션 풀 대기 등)
+     */
+    public synchronized void decrease() {
+        limit = Math.max(minLimit, limit * backoffRatio);
+    }
+}
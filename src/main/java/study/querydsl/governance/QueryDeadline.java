@@ -0,0 +1,71 @@
+package study.querydsl.governance;
+
+import javax.persistence.QueryTimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 현재 스레드에서 실행하는 쿼리들의 시간 예산
+ * <p>
+ * 예산 안에서 만드는 Querydsl 쿼리(DerivedColumnQueryFactory, RepositorySQLQuery)에는 남은 시간이 JDBC 쿼리 타임아웃으로 걸린다.
+ * 여러 쿼리(content + count)가 하나의 예산을 나눠 쓴다.
+ * 예산을 다 썼거나 취소되었으면 다음 쿼리는 실행하지 않고 QueryTimeoutException
+ */
+public final class QueryDeadline {
+
+    private static final ThreadLocal<QueryDeadline> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+    private volatile boolean cancelled;
+
+    private QueryDeadline(long timeoutMs) {
+        this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+    }
+
+    public static <T> T within(long timeoutMs, Supplier<T> query) {
+        return within(new QueryDeadline(timeoutMs), query);
+    }
+
+    static QueryDeadline of(long timeoutMs) {
+        return new QueryDeadline(timeoutMs);
+    }
+
+    static <T> T within(QueryDeadline deadline, Supplier<T> query) {
+        QueryDeadline previous = CURRENT.get();
+        CURRENT.set(deadline);
+        try {
+            return query.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * JDBC 쿼리 타임아웃은 초 단위이므로 남은 시간을 올림해서 초로 돌려준다.
+     *
+     * @return 예산 밖이면 null
+     * @throws QueryTimeoutException 예산을 다 썼거나 취소된 경우
+     */
+    public static Integer remainingSeconds() {
+        QueryDeadline deadline = CURRENT.get();
+        if (deadline == null) {
+            return null;
+        }
+        if (deadline.cancelled) {
+            throw new QueryTimeoutException("Query cancelled");
+        }
+        long remaining = deadline.deadlineNanos - System.nanoTime();
+        if (remaining <= 0) {
+            throw new QueryTimeoutException("Query budget exceeded");
+        }
+        return (int) Math.max(1, (remaining + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+}
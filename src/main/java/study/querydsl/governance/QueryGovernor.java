@@ -0,0 +1,192 @@
+package study.querydsl.governance;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import study.querydsl.monitor.ConnectionPoolMonitor;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * 제한 없는 검색 API 의 쿼리 시간, 결과 건수, 동시 실행 수를 제한한다.
+ * <p>
+ * 목록 전체 조회(/v1/members, source=view, fields 포함)
+ * - 결과는 query.governance.list.max-rows 건까지만 조회한다. (limit max-rows + 1 로 초과 여부만 확인)
+ *   잘렸으면 X-Result-Truncated: true 헤더로 알린다.
+ * - 전용 스레드 풀에서 비동기로 실행하고 동시 실행 수는 커넥션 풀 크기 - 1 을 넘지 않는다.
+ *   대기열(query.governance.list.queue-capacity)이 차면 503
+ * - query.governance.list.timeout-ms 가 지나거나 클라이언트 연결이 끊어지면(컨테이너가 비동기 오류로 알린 경우)
+ *   실행 중인 SQL 을 취소(Session.cancelQuery)하고 커넥션을 돌려준다. 타임아웃이면 503
+ * - 한계: 톰캣은 응답을 쓰거나 요청을 읽을 때만 연결 끊김을 알 수 있다. 쿼리가 실행되는 동안에는 아무것도 쓰지 않으므로
+ *   클라이언트가 끊어도 onError 가 바로 오지 않고, 쿼리는 timeout-ms 까지 실행될 수 있다.
+ *
+ * 회원 배치 조회는 조건마다 list.max-rows 건까지만 응답하고 조건별로 잘렸는지 X-Result-Truncated 로 알린다.
+ *
+ * 페이지 조회(/v2, /v3/members, slice, /members/query, 회원 배치 조회, 다음 페이지 미리 조회)는
+ * 결과 크기가 제한되므로 query.governance.page.timeout-ms 예산만 건다.
+ * 예산은 JDBC 쿼리 타임아웃(초 단위)으로 DB 에서도 끊긴다. (QueryDeadline)
+ */
+@Slf4j
+@Component
+public class QueryGovernor implements DisposableBean {
+
+    public static final String TRUNCATED_HEADER = "X-Result-Truncated";
+    public static final String LIMIT_HEADER = "X-Result-Limit";
+
+    private final EntityManager em;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ThreadPoolTaskExecutor executor;
+    private final long listTimeoutMs;
+    private final int listMaxRows;
+    private final long pageTimeoutMs;
+
+    public QueryGovernor(EntityManager em, PlatformTransactionManager transactionManager,
+                         ConnectionPoolMonitor connectionPoolMonitor,
+                         @Value("${query.governance.list.timeout-ms:5000}") long listTimeoutMs,
+                         @Value("${query.governance.list.max-rows:1000}") int listMaxRows,
+                         @Value("${query.governance.list.queue-capacity:50}") int listQueueCapacity,
+                         @Value("${query.governance.page.timeout-ms:3000}") long pageTimeoutMs) {
+        this.em = em;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.listTimeoutMs = listTimeoutMs;
+        this.listMaxRows = listMaxRows;
+        this.pageTimeoutMs = pageTimeoutMs;
+
+        HikariDataSource hikari = connectionPoolMonitor.hikariDataSource();
+        int threads = hikari == null ? 4 : Math.max(1, hikari.getMaximumPoolSize() - 1);
+        this.executor = new ThreadPoolTaskExecutor();
+        this.executor.setCorePoolSize(threads);
+        this.executor.setMaxPoolSize(threads);
+        this.executor.setQueueCapacity(listQueueCapacity);
+        this.executor.setThreadNamePrefix("query-governor-");
+        this.executor.setDaemon(true);
+        this.executor.initialize();
+    }
+
+    /**
+     * 결과 건수 제한 목록 조회
+     *
+     * @param query limit 를 받아서 최대 limit 건을 조회하는 쿼리
+     */
+    public <T> WebAsyncTask<ResponseEntity<List<T>>> list(IntFunction<List<T>> query) {
+        Execution<List<T>> execution = execution(listTimeoutMs, () -> query.apply(listMaxRows + 1));
+        WebAsyncTask<ResponseEntity<List<T>>> task = new WebAsyncTask<>(listTimeoutMs, executor, () -> {
+            List<T> rows = execution.run();
+            boolean truncated = rows.size() > listMaxRows;
+            return ResponseEntity.ok()
+                    .header(TRUNCATED_HEADER, String.valueOf(truncated))
+                    .header(LIMIT_HEADER, String.valueOf(listMaxRows))
+                    .body(truncated ? rows.subList(0, listMaxRows) : rows);
+        });
+        task.onTimeout(() -> {
+            execution.cancel();
+            log.warn("List query cancelled after {} ms", listTimeoutMs);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .build();
+        });
+        task.onError(() -> {
+            //컨테이너가 알린 비동기 오류, 쿼리 실행 중의 연결 끊김은 알리지 않으므로 timeout 이 상한이다.
+            execution.cancel();
+            return CallableProcessingInterceptor.RESULT_NONE;
+        });
+        return task;
+    }
+
+    /**
+     * 여러 조건 일괄 조회, 조건마다 list.max-rows 건까지만 응답한다. 페이지 조회와 같은 시간 예산
+     * 잘린 조건은 X-Result-Truncated 에 조건 순서대로 알린다. e.g) X-Result-Truncated: false,true
+     *
+     * @param query limit 를 받아서 조건마다 최대 limit 건을 조회하는 쿼리
+     */
+    public <T> ResponseEntity<List<List<T>>> batch(IntFunction<List<List<T>>> query) {
+        List<List<T>> results = page(() -> query.apply(listMaxRows + 1));
+        List<List<T>> body = new ArrayList<>(results.size());
+        List<String> truncated = new ArrayList<>(results.size());
+        for (List<T> rows : results) {
+            boolean over = rows.size() > listMaxRows;
+            body.add(over ? rows.subList(0, listMaxRows) : rows);
+            truncated.add(String.valueOf(over));
+        }
+        return ResponseEntity.ok()
+                .header(TRUNCATED_HEADER, String.join(",", truncated))
+                .header(LIMIT_HEADER, String.valueOf(listMaxRows))
+                .body(body);
+    }
+
+    /**
+     * 페이지 조회 시간 예산, 호출한 스레드에서 그대로 실행한다.
+     */
+    public <T> T page(Supplier<T> query) {
+        return QueryDeadline.within(pageTimeoutMs, query);
+    }
+
+    /**
+     * 다른 스레드에서 취소할 수 있는 조회 (읽기 전용 트랜잭션)
+     */
+    public <T> Execution<T> execution(long timeoutMs, Supplier<T> query) {
+        return new Execution<>(timeoutMs, query);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    public class Execution<T> {
+        private final QueryDeadline deadline;
+        private final Supplier<T> query;
+        private final AtomicReference<Session> session = new AtomicReference<>();
+
+        private Execution(long timeoutMs, Supplier<T> query) {
+            this.deadline = QueryDeadline.of(timeoutMs);
+            this.query = query;
+        }
+
+        public T run() {
+            return readOnlyTransaction.execute(status -> {
+                session.set(em.unwrap(Session.class));
+                try {
+                    return QueryDeadline.within(deadline, query);
+                } finally {
+                    session.set(null);
+                }
+            });
+        }
+
+        /**
+         * 실행 중인 SQL 을 취소하고, 아직 실행하지 않은 쿼리는 실행하지 않는다.
+         */
+        public void cancel() {
+            deadline.cancel();
+            Session running = session.get();
+            if (running == null) {
+                return;
+            }
+            try {
+                //다른 스레드에서 호출해도 되는 유일한 Session 메서드
+                running.cancelQuery();
+            } catch (RuntimeException e) {
+                //쿼리 사이(이미 닫힌 Statement)에 취소한 경우, 다음 쿼리는 deadline 에서 막힌다.
+                log.debug("Cancel failed", e);
+            }
+        }
+    }
+}
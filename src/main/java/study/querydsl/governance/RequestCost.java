@@ -0,0 +1,77 @@
+package study.querydsl.governance;
+
+import org.springframework.util.StringUtils;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * 회원 검색 요청의 DB 비용 분류 (AdmissionController)
+ */
+public enum RequestCost {
+    /**
+     * 조건 검색, 얕은 페이지, 메모리 스냅샷 조회
+     */
+    CHEAP,
+    /**
+     * 조건 없는 전체 조회(/v1/members, /members/query), 깊은 페이지(offset), 전체 내보내기, 여러 조건 일괄 조회
+     */
+    EXPENSIVE;
+
+    private static final String EXPORT_PATH = "/v1/members/export";
+    private static final String[] CONDITIONS = {"username", "teamName", "ageGoe", "ageLoe"};
+    /**
+     * /members/query 의 Predicate 바인딩 파라미터 (MemberRepository.customize)
+     */
+    private static final String[] QUERY_CONDITIONS = {"id", "username", "age", "ageGoe", "ageLoe", "team.id", "team.name"};
+
+    public static RequestCost of(HttpServletRequest request, long deepOffset) {
+        String path = path(request);
+        if (path.startsWith(EXPORT_PATH) || path.startsWith("/v1/members/batch")) {
+            return EXPENSIVE;
+        }
+        if ("snapshot".equals(request.getParameter("consistency"))) {
+            return CHEAP;
+        }
+        if (path.equals("/v1/members") && !hasCondition(request, CONDITIONS)) {
+            return EXPENSIVE;
+        }
+        if (path.equals("/members/query") && !hasCondition(request, QUERY_CONDITIONS)) {
+            return EXPENSIVE;
+        }
+        return offset(request) >= deepOffset ? EXPENSIVE : CHEAP;
+    }
+
+    /**
+     * 응답을 쓰는 동안 처리 중으로 남는 요청(CSV 내보내기)
+     * 처리 시간이 DB 가 아니라 클라이언트의 다운로드 속도에 달려 있으므로 한도 조절 신호로 쓰지 않는다.
+     */
+    public static boolean isStreaming(HttpServletRequest request) {
+        return path(request).startsWith(EXPORT_PATH);
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static boolean hasCondition(HttpServletRequest request, String[] conditions) {
+        for (String condition : conditions) {
+            if (StringUtils.hasText(request.getParameter(condition))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * page * size, 잘못된 값은 컨트롤러에서 처리하도록 0
+     */
+    private static long offset(HttpServletRequest request) {
+        try {
+            long page = StringUtils.hasText(request.getParameter("page")) ? Long.parseLong(request.getParameter("page")) : 0;
+            long size = StringUtils.hasText(request.getParameter("size")) ? Long.parseLong(request.getParameter("size")) : 20;
+            return Math.max(0, page) * Math.max(0, size);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -1,7 +1,12 @@
 package study.querydsl.init;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.entitiy.Member;
@@ -17,10 +22,36 @@ import javax.persistence.PersistenceContext;
 public class InitMember {
 
     private final InitMemberService initMemberService;
+    private final ObjectProvider<StartupSnapshot> startupSnapshot;
+
+    @Value("${startup.fast:false}")
+    private boolean fast;
 
     @PostConstruct
     public void init() {
+        if (!fast) {
+            initMemberService.init();
+        }
+    }
+
+    /**
+     * 빠른 기동 모드에서는 애플리케이션이 요청을 받을 준비가 끝난 뒤 별도 스레드에서 데이터를 넣는다.
+     * 스냅샷으로 복원했다면 데이터가 이미 있으므로 생략한다.
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void initAfterReady() {
+        if (!fast) {
+            return;
+        }
+        StartupSnapshot snapshot = startupSnapshot.getIfAvailable();
+        if (snapshot != null && snapshot.isRestored()) {
+            return;
+        }
         initMemberService.init();
+        if (snapshot != null) {
+            snapshot.save();
+        }
     }
 
     @Component
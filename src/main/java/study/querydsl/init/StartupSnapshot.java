@@ -0,0 +1,162 @@
+package study.querydsl.init;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Version;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.io.Resource;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import study.querydsl.QuerydslApplication;
+
+import javax.persistence.Entity;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 빠른 기동 모드(startup.fast=true)에서 사용하는 H2 스냅샷
+ * <p>
+ * 스냅샷 파일이 있으면 EntityManagerFactory 를 만들기 전에 RUNSCRIPT 로 스키마와 데이터를 복원하고
+ * 하이버네이트 DDL(ddl-auto)은 끈다. 파일이 없으면 기존처럼 DDL을 실행하고, 초기 데이터 입력이 끝난 뒤
+ * SCRIPT 로 스냅샷을 만들어서 다음 기동부터 사용한다.
+ *
+ * 스냅샷과 함께 매핑 지문(엔티티 클래스와 하이버네이트 버전의 해시)을 저장한다. (스냅샷 파일명.fingerprint)
+ * 엔티티 매핑이 바뀌어서 지문이 다르면 예전 스키마로 기동하지 않도록 스냅샷을 지우고 DDL 을 실행한다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "startup.fast", havingValue = "true")
+public class StartupSnapshot implements HibernatePropertiesCustomizer {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Path snapshotFile;
+    private final Path fingerprintFile;
+    private final String fingerprint;
+    private volatile boolean restored;
+
+    @Autowired
+    public StartupSnapshot(DataSource dataSource,
+                           @Value("${startup.snapshot:build/snapshot/querydsl.sql}") String snapshotFile) {
+        this(dataSource, snapshotFile, mappingFingerprint());
+    }
+
+    StartupSnapshot(DataSource dataSource, String snapshotFile, String fingerprint) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.snapshotFile = Paths.get(snapshotFile);
+        this.fingerprintFile = Paths.get(snapshotFile + ".fingerprint");
+        this.fingerprint = fingerprint;
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        if (!Files.isRegularFile(snapshotFile)) {
+            return;
+        }
+        if (!fingerprint.equals(savedFingerprint())) {
+            log.info("Database snapshot {} was taken with a different entity mapping, discarding it", snapshotFile);
+            discard();
+            return;
+        }
+        long start = System.currentTimeMillis();
+        jdbcTemplate.execute("RUNSCRIPT FROM '" + h2Path() + "'");
+        hibernateProperties.put(AvailableSettings.HBM2DDL_AUTO, "none");
+        restored = true;
+        log.info("Database restored from snapshot {} in {} ms", snapshotFile, System.currentTimeMillis() - start);
+    }
+
+    public boolean isRestored() {
+        return restored;
+    }
+
+    public void save() {
+        try {
+            Path parent = snapshotFile.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            //DROP 옵션으로 기존 테이블을 지우는 구문까지 포함시킨다.
+            jdbcTemplate.execute("SCRIPT DROP TO '" + h2Path() + "'");
+            Files.write(fingerprintFile, fingerprint.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("Database snapshot saved to {}", snapshotFile);
+    }
+
+    private String savedFingerprint() {
+        try {
+            return Files.isRegularFile(fingerprintFile)
+                    ? new String(Files.readAllBytes(fingerprintFile), StandardCharsets.UTF_8).trim() : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void discard() {
+        try {
+            Files.deleteIfExists(snapshotFile);
+            Files.deleteIfExists(fingerprintFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String h2Path() {
+        return snapshotFile.toAbsolutePath().toString()
+                .replace('\\', '/')
+                .replace("'", "''");
+    }
+
+    /**
+     * 엔티티 클래스 파일(매핑 애노테이션 포함)과 하이버네이트 버전의 SHA-256
+     * EntityManagerFactory 를 만들기 전에 계산해야 하므로 하이버네이트 메타모델 대신 클래스 파일을 사용한다.
+     */
+    static String mappingFingerprint() {
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+        scanner.addIncludeFilter(new AnnotationTypeFilter(Entity.class));
+        List<BeanDefinition> entities = scanner.findCandidateComponents(ClassUtils.getPackageName(QuerydslApplication.class))
+                .stream()
+                .sorted(Comparator.comparing(BeanDefinition::getBeanClassName))
+                .collect(Collectors.toList());
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(Version.getVersionString().getBytes(StandardCharsets.UTF_8));
+            for (BeanDefinition entity : entities) {
+                digest.update(entity.getBeanClassName().getBytes(StandardCharsets.UTF_8));
+                Resource resource = ((AbstractBeanDefinition) entity).getResource();
+                try (InputStream in = resource.getInputStream()) {
+                    digest.update(in.readAllBytes());
+                }
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
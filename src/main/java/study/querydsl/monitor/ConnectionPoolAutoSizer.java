@@ -0,0 +1,98 @@
+package study.querydsl.monitor;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 커넥션 풀 크기 자동 조절 (monitor.pool.adaptive.enabled=true 일때만)
+ * <p>
+ * 직전 구간의 커넥션 획득 대기 시간이 쿼리 실행 시간에 비해 크고 대기 스레드가 있으면 풀을 하나 늘리고,
+ * 대기가 거의 없고 유휴 커넥션이 남는 상태가 이어지면 하나 줄인다. 크기는 min-size ~ max-size 사이로 제한한다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "monitor.pool.adaptive.enabled", havingValue = "true")
+public class ConnectionPoolAutoSizer {
+
+    private static final double IDLE_WAIT_MILLIS = 1.0;
+    private static final int SHRINK_AFTER_IDLE_TICKS = 6;
+
+    private final ConnectionPoolMonitor monitor;
+    private final int minSize;
+    private final int maxSize;
+    private final double waitRatio;
+
+    private LatencyStats.Snapshot lastAcquire;
+    private LatencyStats.Snapshot lastQuery;
+    private int idleTicks;
+
+    public ConnectionPoolAutoSizer(ConnectionPoolMonitor monitor,
+                                   @Value("${monitor.pool.adaptive.min-size:5}") int minSize,
+                                   @Value("${monitor.pool.adaptive.max-size:30}") int maxSize,
+                                   @Value("${monitor.pool.adaptive.wait-ratio:0.5}") double waitRatio) {
+        this.monitor = monitor;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.waitRatio = waitRatio;
+        this.lastAcquire = monitor.acquireSnapshot();
+        this.lastQuery = monitor.querySnapshot();
+    }
+
+    @Scheduled(fixedDelayString = "${monitor.pool.adaptive.interval-ms:5000}")
+    public synchronized void resize() {
+        HikariDataSource hikari = monitor.hikariDataSource();
+        HikariPoolMXBean pool = hikari != null ? hikari.getHikariPoolMXBean() : null;
+        if (pool == null) {
+            return;
+        }
+
+        LatencyStats.Snapshot acquire = monitor.acquireSnapshot();
+        LatencyStats.Snapshot query = monitor.querySnapshot();
+        double waitMillis = acquire.minus(lastAcquire).getAvgMillis();
+        double queryMillis = query.minus(lastQuery).getAvgMillis();
+        lastAcquire = acquire;
+        lastQuery = query;
+
+        int size = hikari.getMaximumPoolSize();
+        int next = nextSize(size, pool.getThreadsAwaitingConnection(), pool.getIdleConnections(), waitMillis, queryMillis);
+        if (next > size) {
+            hikari.getHikariConfigMXBean().setMaximumPoolSize(next);
+            log.info("Connection pool grown to {} (wait {} ms, query {} ms)", next, waitMillis, queryMillis);
+        } else if (next < size) {
+            hikari.getHikariConfigMXBean().setMaximumPoolSize(next);
+            hikari.getHikariConfigMXBean().setMinimumIdle(Math.min(hikari.getMinimumIdle(), next));
+            log.info("Connection pool shrunk to {} (wait {} ms, query {} ms)", next, waitMillis, queryMillis);
+        }
+    }
+
+    /**
+     * 직전 구간의 대기 상태로 정한 다음 풀 크기
+     *
+     * @param waiting     커넥션을 기다리는 스레드 수
+     * @param idle        유휴 커넥션 수
+     * @param waitMillis  구간 평균 커넥션 획득 대기 시간
+     * @param queryMillis 구간 평균 쿼리 실행 시간
+     */
+    synchronized int nextSize(int size, int waiting, int idle, double waitMillis, double queryMillis) {
+        if (waiting > 0 && waitMillis > queryMillis * waitRatio) {
+            idleTicks = 0;
+            return size < maxSize ? size + 1 : size;
+        }
+
+        if (waitMillis < IDLE_WAIT_MILLIS && idle > 1) {
+            idleTicks++;
+        } else {
+            idleTicks = 0;
+        }
+        if (idleTicks >= SHRINK_AFTER_IDLE_TICKS && size > minSize) {
+            idleTicks = 0;
+            return size - 1;
+        }
+        return size;
+    }
+}
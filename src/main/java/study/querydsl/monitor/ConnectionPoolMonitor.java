@@ -0,0 +1,189 @@
+package study.querydsl.monitor;
+
+import com.p6spy.engine.common.ConnectionInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.JdbcEventListener;
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 커넥션 풀 모니터링
+ * <p>
+ * p6spy 이벤트로 커넥션 획득 대기 시간, 커넥션 사용 시간(리포지토리 메서드별), 쿼리 실행 시간을 기록하고
+ * 히카리 풀의 active / idle / pending 수를 함께 보여준다.
+ * 오래 반납되지 않는 커넥션은 획득한 리포지토리 메서드와 함께 누수 의심으로 로그를 남긴다.
+ *
+ * 서비스의 @Transactional 처럼 리포지토리 메서드 밖에서 획득한 커넥션은 그 커넥션으로 처음 쿼리를 실행한
+ * 리포지토리 메서드의 사용 시간으로 기록한다. (쿼리를 실행하지 않으면 unknown)
+ */
+@Slf4j
+@Component
+public class ConnectionPoolMonitor extends JdbcEventListener {
+
+    private final DataSource dataSource;
+    private final long leakThresholdNanos;
+
+    private final LatencyStats acquireStats = new LatencyStats();
+    private final LatencyStats queryStats = new LatencyStats();
+    private final Map<String, LatencyStats> usageStats = new ConcurrentHashMap<>();
+    private final Map<Integer, Lease> leases = new ConcurrentHashMap<>();
+
+    //p6spy가 DataSource를 감싸는 과정에서 이 리스너를 찾기 때문에 DataSource는 지연 주입
+    public ConnectionPoolMonitor(@Lazy DataSource dataSource,
+                                 @Value("${monitor.pool.leak-threshold-ms:30000}") long leakThresholdMs) {
+        this.dataSource = dataSource;
+        this.leakThresholdNanos = TimeUnit.MILLISECONDS.toNanos(leakThresholdMs);
+    }
+
+    @Override
+    public void onAfterGetConnection(ConnectionInformation connectionInformation, SQLException e) {
+        if (e != null) {
+            return;
+        }
+        acquireStats.record(connectionInformation.getTimeToGetConnectionNs());
+        leases.put(connectionInformation.getConnectionId(),
+                new Lease(RepositoryMethodContext.method(), Thread.currentThread().getName()));
+    }
+
+    @Override
+    public void onAfterConnectionClose(ConnectionInformation connectionInformation, SQLException e) {
+        Lease lease = leases.remove(connectionInformation.getConnectionId());
+        if (lease != null) {
+            usageStats.computeIfAbsent(lease.method(), key -> new LatencyStats())
+                    .record(System.nanoTime() - lease.acquiredAt);
+        }
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        queryStats.record(timeElapsedNanos);
+        Lease lease = leases.get(statementInformation.getConnectionInformation().getConnectionId());
+        if (lease != null && lease.method == null) {
+            lease.method = RepositoryMethodContext.method();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${monitor.pool.leak-check-interval-ms:10000}")
+    public void detectLeaks() {
+        for (Leak leak : suspectedLeaks()) {
+            Lease lease = leases.get(leak.connectionId);
+            if (lease != null && !lease.reported) {
+                lease.reported = true;
+                log.warn("Possible connection leak: connection {} held for {} ms by {} on thread {}",
+                        leak.connectionId, leak.heldMillis, leak.method, leak.thread);
+            }
+        }
+    }
+
+    /**
+     * monitor.pool.leak-threshold-ms 보다 오래 반납되지 않은 커넥션
+     */
+    public List<Leak> suspectedLeaks() {
+        long now = System.nanoTime();
+        List<Leak> leaks = new ArrayList<>();
+        leases.forEach((connectionId, lease) -> {
+            long heldNanos = now - lease.acquiredAt;
+            if (heldNanos >= leakThresholdNanos) {
+                leaks.add(new Leak(connectionId, lease.method(), lease.thread, TimeUnit.NANOSECONDS.toMillis(heldNanos)));
+            }
+        });
+        return leaks;
+    }
+
+    public LatencyStats.Snapshot acquireSnapshot() {
+        return acquireStats.snapshot();
+    }
+
+    public LatencyStats.Snapshot querySnapshot() {
+        return queryStats.snapshot();
+    }
+
+    /**
+     * DataSource 가 히카리가 아니라면(또는 아직 풀이 시작되지 않았다면) null
+     */
+    public HikariDataSource hikariDataSource() {
+        return DataSourceUnwrapper.unwrap(dataSource, HikariConfigMXBean.class, HikariDataSource.class);
+    }
+
+    public PoolSnapshot snapshot() {
+        PoolSnapshot snapshot = new PoolSnapshot();
+        HikariDataSource hikari = hikariDataSource();
+        if (hikari != null) {
+            snapshot.maximumPoolSize = hikari.getMaximumPoolSize();
+            HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+            if (pool != null) {
+                snapshot.active = pool.getActiveConnections();
+                snapshot.idle = pool.getIdleConnections();
+                snapshot.pending = pool.getThreadsAwaitingConnection();
+                snapshot.total = pool.getTotalConnections();
+            }
+        }
+        snapshot.acquire = acquireStats.snapshot();
+        snapshot.query = queryStats.snapshot();
+        snapshot.leased = leases.size();
+        usageStats.forEach((method, stats) -> snapshot.usageByMethod.put(method, stats.snapshot()));
+        return snapshot;
+    }
+
+    @Getter
+    public static class PoolSnapshot {
+        private int maximumPoolSize;
+        private int active;
+        private int idle;
+        private int pending;
+        private int total;
+        private int leased;
+        private LatencyStats.Snapshot acquire;
+        private LatencyStats.Snapshot query;
+        private final Map<String, LatencyStats.Snapshot> usageByMethod = new TreeMap<>();
+    }
+
+    @Getter
+    public static class Leak {
+        private final int connectionId;
+        private final String method;
+        private final String thread;
+        private final long heldMillis;
+
+        Leak(int connectionId, String method, String thread, long heldMillis) {
+            this.connectionId = connectionId;
+            this.method = method;
+            this.thread = thread;
+            this.heldMillis = heldMillis;
+        }
+    }
+
+    private static class Lease {
+        private volatile String method; //리포지토리 메서드 밖에서 획득했다면 첫 쿼리를 실행할 때 정해진다.
+        private final String thread;
+        private final long acquiredAt = System.nanoTime();
+        private volatile boolean reported;
+
+        Lease(String method, String thread) {
+            this.method = method;
+            this.thread = thread;
+        }
+
+        String method() {
+            String method = this.method;
+            return method != null ? method : RepositoryMethodContext.UNKNOWN;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package study.querydsl.monitor;
+
+import lombok.Getter;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Before;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entitiy.Member;
+import study.querydsl.entitiy.Team;
+
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 인덱스 어드바이저
+ * <p>
+ * 리포지토리로 들어오는 MemberSearchCondition, Pageable 을 보고 실제로 사용되는 검색 조건/정렬 형태를 집계한 뒤
+ * 형태별로 필요한 복합 인덱스를 추천한다. (동등 조건 -> 범위 조건 -> 정렬 순서)
+ * 엔티티에 선언된 인덱스(@Table(indexes))와 비교해서 이미 커버되는지도 함께 보여준다.
+ */
+@Aspect
+@Component
+public class IndexAdvisor {
+
+    private static final String MEMBER = "member";
+    private static final String TEAM = "team";
+
+    private static final Map<String, String> SORT_COLUMNS = new HashMap<>();
+
+    static {
+        SORT_COLUMNS.put("id", "id");
+        SORT_COLUMNS.put("memberId", "id");
+        SORT_COLUMNS.put("username", "username");
+        SORT_COLUMNS.put("age", "age");
+        SORT_COLUMNS.put("teamId", "team_id");
+    }
+
+    private final Map<Shape, LongAdder> shapes = new ConcurrentHashMap<>();
+
+    @Before(value = "study.querydsl.monitor.RepositoryMethodAspect.repositoryMethod() && args(condition)", argNames = "condition")
+    public void recordUnpaged(MemberSearchCondition condition) {
+        record(condition, Pageable.unpaged());
+    }
+
+    @Before(value = "study.querydsl.monitor.RepositoryMethodAspect.repositoryMethod() && args(condition, pageable)",
+            argNames = "condition,pageable")
+    public void record(MemberSearchCondition condition, Pageable pageable) {
+        shapes.computeIfAbsent(Shape.of(condition, pageable), key -> new LongAdder()).increment();
+    }
+
+    public List<Recommendation> recommendations() {
+        Map<List<String>, Recommendation> result = new LinkedHashMap<>();
+        shapes.forEach((shape, count) -> {
+            for (Recommendation recommendation : shape.recommend()) {
+                result.merge(Arrays.asList(recommendation.table, String.join(",", recommendation.columns)),
+                        recommendation.withOccurrences(count.sum()),
+                        (a, b) -> a.withOccurrences(a.occurrences + b.occurrences));
+            }
+        });
+        List<Recommendation> recommendations = new ArrayList<>(result.values());
+        recommendations.sort(Comparator.comparingLong(Recommendation::getOccurrences).reversed());
+        return recommendations;
+    }
+
+    public void clear() {
+        shapes.clear();
+    }
+
+    /**
+     * 검색 조건/정렬 형태 (값은 제외)
+     */
+    private static class Shape {
+        private final boolean username;
+        private final boolean teamName;
+        private final boolean ageRange;
+        private final List<String> sortColumns;
+
+        private Shape(boolean username, boolean teamName, boolean ageRange, List<String> sortColumns) {
+            this.username = username;
+            this.teamName = teamName;
+            this.ageRange = ageRange;
+            this.sortColumns = sortColumns;
+        }
+
+        static Shape of(MemberSearchCondition condition, Pageable pageable) {
+            List<String> sortColumns = new ArrayList<>();
+            for (Sort.Order order : pageable.getSort()) {
+                String column = SORT_COLUMNS.get(order.getProperty());
+                if (column != null) {
+                    sortColumns.add(column);
+                }
+            }
+            return new Shape(
+                    StringUtils.hasText(condition.getUsername()),
+                    StringUtils.hasText(condition.getTeamName()),
+                    condition.getAgeGoe() != null || condition.getAgeLoe() != null,
+                    sortColumns);
+        }
+
+        List<Recommendation> recommend() {
+            List<Recommendation> recommendations = new ArrayList<>();
+
+            List<String> columns = new ArrayList<>();
+            if (teamName) {
+                //team.name 으로 팀을 찾은 뒤 member.team_id 로 조인
+                recommendations.add(Recommendation.of(TEAM, Collections.singletonList("name")));
+                columns.add("team_id");
+            }
+            if (username) {
+                columns.add("username");
+            }
+            if (ageRange) {
+                columns.add("age");
+            }
+            for (String sortColumn : sortColumns) {
+                if (!columns.contains(sortColumn)) {
+                    columns.add(sortColumn);
+                }
+            }
+            if (!columns.isEmpty()) {
+                recommendations.add(Recommendation.of(MEMBER, columns));
+            }
+            return recommendations;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Shape)) return false;
+            Shape shape = (Shape) o;
+            return username == shape.username && teamName == shape.teamName
+                    && ageRange == shape.ageRange && sortColumns.equals(shape.sortColumns);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(username, teamName, ageRange, sortColumns);
+        }
+    }
+
+    @Getter
+    public static class Recommendation {
+        private final String table;
+        private final List<String> columns;
+        private final long occurrences;
+        /**
+         * 추천 컬럼들로 시작하는 선언된 인덱스, 없으면 null
+         */
+        private final String coveredBy;
+
+        private Recommendation(String table, List<String> columns, long occurrences, String coveredBy) {
+            this.table = table;
+            this.columns = columns;
+            this.occurrences = occurrences;
+            this.coveredBy = coveredBy;
+        }
+
+        static Recommendation of(String table, List<String> columns) {
+            return new Recommendation(table, columns, 0, findCoveringIndex(table, columns));
+        }
+
+        Recommendation withOccurrences(long occurrences) {
+            return new Recommendation(table, columns, occurrences, coveredBy);
+        }
+
+        private static String findCoveringIndex(String table, List<String> columns) {
+            Table declared = (MEMBER.equals(table) ? Member.class : Team.class).getAnnotation(Table.class);
+            if (declared == null) {
+                return null;
+            }
+            for (Index index : declared.indexes()) {
+                List<String> indexColumns = new ArrayList<>();
+                for (String column : index.columnList().split(",")) {
+                    indexColumns.add(column.trim());
+                }
+                if (indexColumns.size() >= columns.size()
+                        && indexColumns.subList(0, columns.size()).equals(columns)) {
+                    return index.name();
+                }
+            }
+            return null;
+        }
+    }
+}
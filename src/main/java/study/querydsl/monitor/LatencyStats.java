@@ -0,0 +1,56 @@
+package study.querydsl.monitor;
+
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 누적 지연 시간 통계 (건수, 합계, 최대)
+ * 구간 통계가 필요하면 두 시점의 snapshot 차이(minus)로 계산한다.
+ */
+public class LatencyStats {
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(count.sum(), totalNanos.sum(), maxNanos.get());
+    }
+
+    @Getter
+    public static class Snapshot {
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        public Snapshot(long count, long totalNanos, long maxNanos) {
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public double getAvgMillis() {
+            return count == 0 ? 0 : (double) totalNanos / count / TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        public double getMaxMillis() {
+            return (double) maxNanos / TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        /**
+         * 이전 snapshot 이후 구간의 통계 (최대값은 누적값을 그대로 사용)
+         */
+        public Snapshot minus(Snapshot previous) {
+            return new Snapshot(count - previous.count, totalNanos - previous.totalNanos, maxNanos);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package study.querydsl.monitor;
+
+import java.util.function.Supplier;
+
+/**
+ * 현재 스레드에서 실행 중인 리포지토리 메서드의 쿼리 시간을 모은다. (RepositoryQueryEvent)
+ * <p>
+ * JFR 녹화 중일 때만 RepositoryMethodAspect 가 시작하고, 녹화 중이 아니면 모든 기록 메서드는 아무것도 하지 않는다.
+ * 쿼리 생성 시간은 DerivedColumnQueryFactory 의 쿼리(JPQL)와 RepositorySQLQuery(네이티브 SQL)가,
+ * SQL 실행 시간은 QueryRecorderJdbcListener 가 기록한다.
+ */
+public final class QueryRecorder {
+
+    private static final ThreadLocal<Recording> CURRENT = new ThreadLocal<>();
+
+    private QueryRecorder() {
+    }
+
+    public static boolean isRecording() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * JPQL, 네이티브 SQL 생성(Querydsl 직렬화 + EntityManager.createQuery/createNativeQuery) 시간, 메서드의 첫 쿼리 조건 모양
+     */
+    public static void jpqlBuilt(long nanos, Supplier<String> predicateShape) {
+        Recording recording = CURRENT.get();
+        if (recording == null) {
+            return;
+        }
+        recording.queries++;
+        recording.jpqlBuildNanos += nanos;
+        if (recording.predicateShape == null) {
+            recording.predicateShape = predicateShape.get();
+        }
+    }
+
+    static void statementExecuted(long nanos) {
+        Recording recording = CURRENT.get();
+        if (recording != null) {
+            recording.statements++;
+            recording.sqlNanos += nanos;
+        }
+    }
+
+    static void resultSetRead(long nanos) {
+        Recording recording = CURRENT.get();
+        if (recording != null) {
+            recording.sqlNanos += nanos;
+        }
+    }
+
+    /**
+     * @return 이전 기록, 메서드가 끝나면 finish 로 되돌린다.
+     */
+    static Recording start() {
+        Recording previous = CURRENT.get();
+        CURRENT.set(new Recording());
+        return previous;
+    }
+
+    /**
+     * 현재 기록을 끝내고 이전 기록으로 되돌린다. 중첩된 리포지토리 호출의 시간은 바깥 메서드에도 더한다.
+     */
+    static Recording finish(Recording previous) {
+        Recording finished = CURRENT.get();
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            previous.add(finished);
+            CURRENT.set(previous);
+        }
+        return finished;
+    }
+
+    static class Recording {
+        String predicateShape;
+        int queries;
+        int statements;
+        long jpqlBuildNanos;
+        long sqlNanos;
+
+        private void add(Recording inner) {
+            if (predicateShape == null) {
+                predicateShape = inner.predicateShape;
+            }
+            queries += inner.queries;
+            statements += inner.statements;
+            jpqlBuildNanos += inner.jpqlBuildNanos;
+            sqlNanos += inner.sqlNanos;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package study.querydsl.monitor;
+
+import com.p6spy.engine.common.ResultSetInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.JdbcEventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+
+/**
+ * p6spy 이벤트로 SQL 실행 시간과 결과 읽기 시간을 QueryRecorder 에 더한다. (JFR 녹화 중일 때만)
+ */
+@Component
+public class QueryRecorderJdbcListener extends JdbcEventListener {
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        QueryRecorder.statementExecuted(timeElapsedNanos);
+    }
+
+    @Override
+    public void onAfterResultSetNext(ResultSetInformation resultSetInformation, long timeElapsedNanos,
+                                     boolean hasNext, SQLException e) {
+        QueryRecorder.resultSetRead(timeElapsedNanos);
+    }
+}
@@ -0,0 +1,80 @@
+package study.querydsl.monitor;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.util.Collection;
+
+@Aspect
+@Component
+public class RepositoryMethodAspect {
+
+    /**
+     * 리포지토리 구현 클래스의 메서드
+     * 스프링 데이터가 만든 리포지토리 프록시(MemberRepository)는 제외하고 실제 구현체(MemberRepositoryImpl 등)만 대상으로 한다.
+     */
+    @Pointcut("within(study.querydsl.repository..*)")
+    public void repositoryMethod() {
+    }
+
+    @Around("repositoryMethod()")
+    public Object trace(ProceedingJoinPoint joinPoint) throws Throwable {
+        //인터페이스(MemberRepositoryCustom)가 아니라 구현체(MemberRepositoryImpl) 기준으로 기록한다.
+        String method = ClassUtils.getUserClass(joinPoint.getTarget()).getSimpleName()
+                + "." + joinPoint.getSignature().getName();
+        String previous = RepositoryMethodContext.enter(method);
+        try {
+            RepositoryQueryEvent event = new RepositoryQueryEvent();
+            if (!event.isEnabled()) {
+                return joinPoint.proceed();
+            }
+            return record(joinPoint, method, event);
+        } finally {
+            RepositoryMethodContext.restore(previous);
+        }
+    }
+
+    /**
+     * JFR 녹화 중일 때만 쿼리 시간을 나눠서 기록한다.
+     */
+    private Object record(ProceedingJoinPoint joinPoint, String method, RepositoryQueryEvent event) throws Throwable {
+        QueryRecorder.Recording previous = QueryRecorder.start();
+        Object result = null;
+        long start = System.nanoTime();
+        event.begin();
+        try {
+            result = joinPoint.proceed();
+            return result;
+        } finally {
+            event.end();
+            long elapsed = System.nanoTime() - start;
+            QueryRecorder.Recording recording = QueryRecorder.finish(previous);
+            if (event.shouldCommit()) {
+                event.method = method;
+                event.predicateShape = recording.predicateShape;
+                event.queries = recording.queries;
+                event.statements = recording.statements;
+                event.jpqlBuildTime = recording.jpqlBuildNanos;
+                event.sqlExecutionTime = recording.sqlNanos;
+                event.mappingTime = Math.max(0, elapsed - recording.jpqlBuildNanos - recording.sqlNanos);
+                event.rows = rows(result);
+                event.commit();
+            }
+        }
+    }
+
+    private static long rows(Object result) {
+        if (result instanceof Slice) { //Page 포함
+            return ((Slice<?>) result).getNumberOfElements();
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        return result == null ? 0 : -1;
+    }
+}
@@ -0,0 +1,44 @@
+package study.querydsl.monitor;
+
+/**
+ * 현재 스레드에서 실행 중인 리포지토리 메서드 (e.g. MemberRepositoryImpl.searchPageSimple)
+ * 커넥션 사용 시간, 느린 쿼리 등을 어떤 리포지토리 메서드가 발생시켰는지 기록할 때 사용한다.
+ */
+public final class RepositoryMethodContext {
+
+    public static final String UNKNOWN = "unknown";
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private RepositoryMethodContext() {
+    }
+
+    public static String current() {
+        String method = CURRENT.get();
+        return method != null ? method : UNKNOWN;
+    }
+
+    /**
+     * 리포지토리 메서드 밖이면 null
+     */
+    static String method() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @return 이전 값, 메서드가 끝나면 restore 로 되돌린다.
+     */
+    static String enter(String method) {
+        String previous = CURRENT.get();
+        CURRENT.set(method);
+        return previous;
+    }
+
+    static void restore(String previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package study.querydsl.monitor;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * 리포지토리 메서드 한번 실행 (JFR 이벤트, 이벤트의 duration 은 메서드 전체 실행 시간)
+ * <p>
+ * 녹화 중이 아니면 isEnabled() 가 false 이므로 시간 측정을 하지 않는다.
+ * 녹화 설정은 src/main/resources/jfr/repository-query.jfc, 분석은 RepositoryQueryEventAnalyzer
+ */
+@Name(RepositoryQueryEvent.NAME)
+@Label("Repository Query")
+@Category({"Querydsl", "Repository"})
+@Description("Repository method execution split into JPQL build, SQL and mapping time")
+@StackTrace(false)
+class RepositoryQueryEvent extends Event {
+
+    static final String NAME = "study.querydsl.RepositoryQuery";
+
+    @Label("Method")
+    String method;
+
+    @Label("Predicate Shape")
+    @Description("Where clause of the first query, constants replaced by parameters")
+    String predicateShape;
+
+    @Label("Queries")
+    int queries;
+
+    @Label("JPQL Build Time")
+    @Description("Querydsl serialization and JPA query creation, native SQL queries included")
+    @Timespan(Timespan.NANOSECONDS)
+    long jpqlBuildTime;
+
+    @Label("SQL Execution Time")
+    @Description("Statement execution and result set iteration")
+    @Timespan(Timespan.NANOSECONDS)
+    long sqlExecutionTime;
+
+    @Label("Statements")
+    int statements;
+
+    @Label("Rows")
+    @Description("Elements returned by the method, content size for Page/Slice, -1 if not a collection")
+    long rows;
+
+    @Label("Mapping Time")
+    @Description("Entity hydration, DTO projection and remaining in-JVM time (total - build - SQL)")
+    @Timespan(Timespan.NANOSECONDS)
+    long mappingTime;
+}
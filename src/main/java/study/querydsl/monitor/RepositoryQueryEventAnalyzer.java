@@ -0,0 +1,145 @@
+package study.querydsl.monitor;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * .jfr 파일의 RepositoryQueryEvent 를 메서드 + 조건 모양별로 요약한다.
+ * <p>
+ * 녹화 설정: src/main/resources/jfr/repository-query.jfc (파일 주석 참고)
+ * 분석: java -cp app.jar -Dloader.main=study.querydsl.monitor.RepositoryQueryEventAnalyzer \
+ *      org.springframework.boot.loader.PropertiesLauncher app.jfr
+ *
+ * 전체 실행 시간 합계가 큰 순서로 출력한다.
+ */
+public final class RepositoryQueryEventAnalyzer {
+
+    private RepositoryQueryEventAnalyzer() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("usage: RepositoryQueryEventAnalyzer <recording.jfr>");
+            System.exit(1);
+        }
+        List<Summary> summaries = summarize(Paths.get(args[0]));
+        System.out.printf("%-45s %7s %10s %9s %9s %9s %9s %9s %9s %9s%n", "method / predicate", "count",
+                "total(ms)", "p50(ms)", "p99(ms)", "max(ms)", "jpql(ms)", "sql(ms)", "map(ms)", "rows");
+        for (Summary summary : summaries) {
+            System.out.printf("%-45s %7d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f %9.1f%n",
+                    summary.getMethod(), summary.getCount(), millis(summary.getTotalNanos()),
+                    millis(summary.getP50Nanos()), millis(summary.getP99Nanos()), millis(summary.getMaxNanos()),
+                    millis(summary.getAvgJpqlBuildNanos()), millis(summary.getAvgSqlExecutionNanos()),
+                    millis(summary.getAvgMappingNanos()), summary.getAvgRows());
+            if (!summary.getPredicateShape().isEmpty()) {
+                System.out.println("    where " + summary.getPredicateShape());
+            }
+        }
+    }
+
+    public static List<Summary> summarize(Path recording) throws IOException {
+        Map<String, Accumulator> accumulators = new LinkedHashMap<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(recording)) {
+            if (!RepositoryQueryEvent.NAME.equals(event.getEventType().getName())) {
+                continue;
+            }
+            String method = event.getString("method");
+            String shape = event.getString("predicateShape");
+            shape = shape == null ? "" : shape;
+            accumulators.computeIfAbsent(method + "\n" + shape, key -> new Accumulator()).add(event);
+        }
+
+        List<Summary> summaries = new ArrayList<>();
+        accumulators.forEach((key, accumulator) -> {
+            int separator = key.indexOf('\n');
+            summaries.add(accumulator.summary(key.substring(0, separator), key.substring(separator + 1)));
+        });
+        summaries.sort(Comparator.comparingLong(Summary::getTotalNanos).reversed());
+        return summaries;
+    }
+
+    private static double millis(double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Getter
+    public static class Summary {
+        private final String method;
+        private final String predicateShape;
+        private final int count;
+        private final long totalNanos;
+        private final long p50Nanos;
+        private final long p99Nanos;
+        private final long maxNanos;
+        private final double avgJpqlBuildNanos;
+        private final double avgSqlExecutionNanos;
+        private final double avgMappingNanos;
+        private final double avgRows;
+
+        Summary(String method, String predicateShape, int count, long totalNanos, long p50Nanos, long p99Nanos,
+                long maxNanos, double avgJpqlBuildNanos, double avgSqlExecutionNanos, double avgMappingNanos,
+                double avgRows) {
+            this.method = method;
+            this.predicateShape = predicateShape;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.p50Nanos = p50Nanos;
+            this.p99Nanos = p99Nanos;
+            this.maxNanos = maxNanos;
+            this.avgJpqlBuildNanos = avgJpqlBuildNanos;
+            this.avgSqlExecutionNanos = avgSqlExecutionNanos;
+            this.avgMappingNanos = avgMappingNanos;
+            this.avgRows = avgRows;
+        }
+    }
+
+    private static class Accumulator {
+        private long[] durations = new long[16];
+        private int count;
+        private long jpqlBuildNanos;
+        private long sqlExecutionNanos;
+        private long mappingNanos;
+        private long rows;
+
+        void add(RecordedEvent event) {
+            if (count == durations.length) {
+                durations = Arrays.copyOf(durations, count * 2);
+            }
+            durations[count++] = event.getDuration().toNanos();
+            jpqlBuildNanos += event.getLong("jpqlBuildTime");
+            sqlExecutionNanos += event.getLong("sqlExecutionTime");
+            mappingNanos += event.getLong("mappingTime");
+            rows += Math.max(0, event.getLong("rows"));
+        }
+
+        Summary summary(String method, String predicateShape) {
+            long[] sorted = Arrays.copyOf(durations, count);
+            Arrays.sort(sorted);
+            long total = 0;
+            for (long duration : sorted) {
+                total += duration;
+            }
+            return new Summary(method, predicateShape, count, total,
+                    percentile(sorted, 0.50), percentile(sorted, 0.99), sorted[count - 1],
+                    (double) jpqlBuildNanos / count, (double) sqlExecutionNanos / count,
+                    (double) mappingNanos / count, (double) rows / count);
+        }
+
+        private static long percentile(long[] sorted, double percentile) {
+            int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return sorted[Math.max(0, index)];
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package study.querydsl.monitor;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.JdbcEventListener;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * 느린 쿼리 로그
+ * <p>
+ * p6spy 이벤트로 실행 시간이 임계치(monitor.slow-query.threshold-ms)를 넘는 SQL을
+ * 바인딩 값이 들어간 SQL, 실행한 리포지토리 메서드, 실행 계획(EXPLAIN)과 함께 최근 N건만 보관한다.
+ * EXPLAIN 은 H2 에서만 실행한다.
+ */
+@Slf4j
+@Component
+public class SlowQueryLog extends JdbcEventListener {
+
+    private static final Pattern SELECT = Pattern.compile(
+            "^\\s*(?:/\\*.*?\\*/\\s*)*select\\b", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private final long thresholdNanos;
+    private final int capacity;
+    private final boolean explain;
+    private final Deque<SlowQuery> queries = new ArrayDeque<>();
+
+    public SlowQueryLog(@Value("${monitor.slow-query.threshold-ms:200}") long thresholdMs,
+                        @Value("${monitor.slow-query.capacity:100}") int capacity,
+                        @Value("${monitor.slow-query.explain:true}") boolean explain) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMs);
+        this.capacity = capacity;
+        this.explain = explain;
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        if (timeElapsedNanos < thresholdNanos) {
+            return;
+        }
+        String sql = statementInformation.getSqlWithValues();
+        String method = RepositoryMethodContext.current();
+        String plan = explain ? explain(statementInformation, sql) : null;
+
+        log.warn("Slow query {} ms in {}: {}", TimeUnit.NANOSECONDS.toMillis(timeElapsedNanos), method, sql);
+        add(new SlowQuery(TimeUnit.NANOSECONDS.toMillis(timeElapsedNanos), method, sql, plan));
+    }
+
+    public synchronized List<SlowQuery> recent() {
+        return new ArrayList<>(queries);
+    }
+
+    public synchronized void clear() {
+        queries.clear();
+    }
+
+    private synchronized void add(SlowQuery query) {
+        if (queries.size() >= capacity) {
+            queries.removeFirst();
+        }
+        queries.addLast(query);
+    }
+
+    /**
+     * p6spy 로 감싸지 않은 원본 커넥션으로 실행해서 EXPLAIN 자체가 다시 기록되지 않도록 한다.
+     */
+    private String explain(StatementInformation statementInformation, String sql) {
+        if (!SELECT.matcher(sql).find()) {
+            return null;
+        }
+        Connection connection = statementInformation.getConnectionInformation().getConnection();
+        try {
+            if (connection == null || !connection.getMetaData().getDatabaseProductName().contains("H2")) {
+                return null;
+            }
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery("EXPLAIN " + sql)) {
+                StringBuilder plan = new StringBuilder();
+                while (rs.next()) {
+                    plan.append(rs.getString(1)).append('\n');
+                }
+                return plan.toString().trim();
+            }
+        } catch (SQLException ex) {
+            log.debug("EXPLAIN failed: {}", ex.getMessage());
+            return null;
+        }
+    }
+
+    @Getter
+    public static class SlowQuery {
+        private final LocalDateTime executedAt = LocalDateTime.now();
+        private final long elapsedMillis;
+        private final String repositoryMethod;
+        private final String sql;
+        private final String plan;
+
+        public SlowQuery(long elapsedMillis, String repositoryMethod, String sql, String plan) {
+            this.elapsedMillis = elapsedMillis;
+            this.repositoryMethod = repositoryMethod;
+            this.sql = sql;
+            this.plan = plan;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package study.querydsl.monitor;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 기동 시간 지표
+ * JVM 시작부터 ApplicationReadyEvent 까지, 그리고 첫번째 요청의 응답이 끝날 때까지의 시간(ms)을 기록한다.
+ */
+@Slf4j
+@Component
+public class StartupMetrics extends OncePerRequestFilter {
+
+    private static final long NOT_YET = -1;
+
+    private final AtomicLong readyMillis = new AtomicLong(NOT_YET);
+    private final AtomicLong firstRequestMillis = new AtomicLong(NOT_YET);
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ready() {
+        readyMillis.set(uptime());
+        log.info("Application ready in {} ms", readyMillis.get());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (firstRequestMillis.get() == NOT_YET && firstRequestMillis.compareAndSet(NOT_YET, uptime())) {
+                log.info("First request served in {} ms after JVM start", firstRequestMillis.get());
+            }
+        }
+    }
+
+    public Map<String, Long> snapshot() {
+        Map<String, Long> snapshot = new LinkedHashMap<>();
+        snapshot.put("readyMillis", readyMillis.get());
+        snapshot.put("timeToFirstRequestMillis", firstRequestMillis.get());
+        return snapshot;
+    }
+
+    private long uptime() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+}
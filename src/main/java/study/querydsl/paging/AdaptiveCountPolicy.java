@@ -0,0 +1,249 @@
+package study.querydsl.paging;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+import study.querydsl.cache.DataVersion;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+import java.util.function.LongSupplier;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * 검색 조건 모양별로 count 쿼리 비용을 기록하고 전체 건수 계산 방법(CountStrategy)을 고른다.
+ * <p>
+ * 조건 모양은 값이 있는 조건 필드 조합이다. (e.g. "teamName,ageGoe", 조건이 없으면 "")
+ * count 쿼리 시간의 지수 이동 평균(EWMA)이 임계치를 넘으면 더 싼 방법으로 바꾼다.
+ * - paging.count.cached-ms 초과: CACHED
+ * - paging.count.capped-ms 초과: CAPPED
+ * - paging.count.slice-ms 초과: SLICE
+ * 평균이 임계치의 hysteresis 배 아래로 내려가야 비싼 방법으로 되돌린다. (경계에서 오락가락하지 않도록)
+ *
+ * EXACT 가 아닌 모양은 probe-interval 번째 요청마다 정확한 count 를 실행해서 비용을 다시 잰다.
+ * 그 응답은 정확한 건수(EXACT)로 응답한다.
+ */
+@Component
+public class AdaptiveCountPolicy {
+
+    private final DataVersion dataVersion;
+    private final long cachedNanos;
+    private final long cappedNanos;
+    private final long sliceNanos;
+    private final double hysteresis;
+    private final long cap;
+    private final int probeInterval;
+    private final int cacheCapacity;
+    private final LongSupplier nanoTime;
+
+    private final Map<String, ShapeStats> shapes = new ConcurrentHashMap<>();
+    private final Map<String, CachedCount> counts;
+
+    @Autowired
+    public AdaptiveCountPolicy(DataVersion dataVersion,
+                               @Value("${paging.count.cached-ms:50}") long cachedMs,
+                               @Value("${paging.count.capped-ms:200}") long cappedMs,
+                               @Value("${paging.count.slice-ms:1000}") long sliceMs,
+                               @Value("${paging.count.hysteresis:0.5}") double hysteresis,
+                               @Value("${paging.count.cap:10000}") long cap,
+                               @Value("${paging.count.probe-interval:20}") int probeInterval,
+                               @Value("${paging.count.cache-capacity:1000}") int cacheCapacity) {
+        this(dataVersion, cachedMs, cappedMs, sliceMs, hysteresis, cap, probeInterval, cacheCapacity, System::nanoTime);
+    }
+
+    /**
+     * @param nanoTime count 쿼리 시간을 재는 시계 (테스트에서 교체)
+     */
+    AdaptiveCountPolicy(DataVersion dataVersion, long cachedMs, long cappedMs, long sliceMs, double hysteresis,
+                        long cap, int probeInterval, int cacheCapacity, LongSupplier nanoTime) {
+        this.dataVersion = dataVersion;
+        this.cachedNanos = TimeUnit.MILLISECONDS.toNanos(cachedMs);
+        this.cappedNanos = TimeUnit.MILLISECONDS.toNanos(cappedMs);
+        this.sliceNanos = TimeUnit.MILLISECONDS.toNanos(sliceMs);
+        this.hysteresis = hysteresis;
+        this.cap = cap;
+        this.probeInterval = probeInterval;
+        this.cacheCapacity = cacheCapacity;
+        this.nanoTime = nanoTime;
+        this.counts = Collections.synchronizedMap(new LinkedHashMap<String, CachedCount>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedCount> eldest) {
+                return size() > AdaptiveCountPolicy.this.cacheCapacity;
+            }
+        });
+    }
+
+    /**
+     * @param content     limit 건의 페이지 내용 (offset 은 pageable 기준)
+     * @param exactCount  전체 count 쿼리
+     * @param cappedCount 최대 limit 건까지만 센 건수
+     */
+    public <T> AdaptivePage<T> page(MemberSearchCondition condition, Pageable pageable, LongFunction<List<T>> content,
+                                    LongSupplier exactCount, LongUnaryOperator cappedCount) {
+        ShapeStats stats = shapes.computeIfAbsent(shape(condition), key -> new ShapeStats());
+        CountStrategy strategy = stats.strategy;
+        boolean probe = strategy != CountStrategy.EXACT && stats.requests.incrementAndGet() % probeInterval == 0;
+
+        if (strategy == CountStrategy.EXACT || probe) {
+            List<T> rows = content.apply(pageable.getPageSize());
+            Page<T> page = PageableExecutionUtils.getPage(rows, pageable, () -> timed(stats, exactCount));
+            return new AdaptivePage<>(rows, pageable, page.getTotalElements(), CountStrategy.EXACT, true);
+        }
+
+        if (strategy == CountStrategy.CACHED) {
+            List<T> rows = content.apply(pageable.getPageSize());
+            String key = key(condition);
+            long version = dataVersion.current();
+            //쓰기 트랜잭션 안에서는 커밋되지 않은 변경이 보여야 하므로 캐시를 사용하지 않는다.
+            CachedCount cached = writing() ? null : counts.get(key);
+            long total;
+            if (cached != null && cached.version == version) {
+                total = cached.count;
+            } else {
+                total = timed(stats, exactCount);
+                if (!writing()) {
+                    counts.put(key, new CachedCount(version, total));
+                }
+            }
+            return new AdaptivePage<>(rows, pageable, total, CountStrategy.CACHED, true);
+        }
+
+        //다음 페이지가 있는지 알기 위해 한 건 더 조회한다.
+        List<T> rows = content.apply(pageable.getPageSize() + 1L);
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        if (hasNext) {
+            rows = rows.subList(0, pageable.getPageSize());
+        }
+        long seen = pageable.getOffset() + rows.size() + (hasNext ? 1 : 0);
+
+        if (strategy == CountStrategy.CAPPED) {
+            long counted = cappedCount.applyAsLong(cap + 1);
+            boolean exact = counted <= cap;
+            long total = exact ? counted : Math.max(cap, seen);
+            return new AdaptivePage<>(rows, pageable, total, CountStrategy.CAPPED, exact);
+        }
+        return new AdaptivePage<>(rows, pageable, seen, CountStrategy.SLICE, false);
+    }
+
+    public Map<String, ShapeSnapshot> stats() {
+        Map<String, ShapeSnapshot> snapshot = new TreeMap<>();
+        shapes.forEach((shape, stats) -> snapshot.put(shape, new ShapeSnapshot(stats.strategy,
+                stats.ewmaNanos / 1_000_000.0, stats.samples.get())));
+        return snapshot;
+    }
+
+    public void clear() {
+        shapes.clear();
+        counts.clear();
+    }
+
+    /**
+     * 타임아웃 등으로 실패한 count 도 걸린 시간은 기록한다. (다음 요청부터 더 싼 방법을 쓰도록)
+     */
+    private long timed(ShapeStats stats, LongSupplier exactCount) {
+        long start = nanoTime.getAsLong();
+        try {
+            return exactCount.getAsLong();
+        } finally {
+            record(stats, nanoTime.getAsLong() - start);
+        }
+    }
+
+    private static boolean writing() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    private void record(ShapeStats stats, long nanos) {
+        synchronized (stats) {
+            stats.ewmaNanos = stats.samples.getAndIncrement() == 0 ? nanos : stats.ewmaNanos * 0.7 + nanos * 0.3;
+            CountStrategy target = strategyFor(stats.ewmaNanos);
+            if (target.compareTo(stats.strategy) > 0) {
+                stats.strategy = target;
+            } else if (target.compareTo(stats.strategy) < 0) {
+                //임계치보다 충분히 싸졌을 때만 되돌린다.
+                CountStrategy relaxed = strategyFor(stats.ewmaNanos / hysteresis);
+                if (relaxed.compareTo(stats.strategy) < 0) {
+                    stats.strategy = relaxed;
+                }
+            }
+        }
+    }
+
+    private CountStrategy strategyFor(double nanos) {
+        if (nanos > sliceNanos) {
+            return CountStrategy.SLICE;
+        }
+        if (nanos > cappedNanos) {
+            return CountStrategy.CAPPED;
+        }
+        if (nanos > cachedNanos) {
+            return CountStrategy.CACHED;
+        }
+        return CountStrategy.EXACT;
+    }
+
+    static String shape(MemberSearchCondition condition) {
+        StringBuilder shape = new StringBuilder();
+        append(shape, "username", StringUtils.hasText(condition.getUsername()));
+        append(shape, "teamName", StringUtils.hasText(condition.getTeamName()));
+        append(shape, "ageGoe", condition.getAgeGoe() != null);
+        append(shape, "ageLoe", condition.getAgeLoe() != null);
+        return shape.toString();
+    }
+
+    private static void append(StringBuilder shape, String field, boolean present) {
+        if (present) {
+            shape.append(shape.length() == 0 ? "" : ",").append(field);
+        }
+    }
+
+    private static String key(MemberSearchCondition condition) {
+        return condition.getUsername() + "|" + condition.getTeamName() + "|"
+                + condition.getAgeGoe() + "|" + condition.getAgeLoe();
+    }
+
+    private static class ShapeStats {
+        private volatile CountStrategy strategy = CountStrategy.EXACT;
+        private volatile double ewmaNanos;
+        private final AtomicLong samples = new AtomicLong();
+        private final AtomicLong requests = new AtomicLong();
+    }
+
+    private static class CachedCount {
+        private final long version;
+        private final long count;
+
+        CachedCount(long version, long count) {
+            this.version = version;
+            this.count = count;
+        }
+    }
+
+    @Getter
+    public static class ShapeSnapshot {
+        private final CountStrategy strategy;
+        private final double countEwmaMillis;
+        private final long samples;
+
+        ShapeSnapshot(CountStrategy strategy, double countEwmaMillis, long samples) {
+            this.strategy = strategy;
+            this.countEwmaMillis = countEwmaMillis;
+            this.samples = samples;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package study.querydsl.paging;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * 전체 건수를 어떻게 계산했는지(countStrategy) 함께 응답하는 페이지
+ * <p>
+ * totalExact 가 false 이면 totalElements 는 정확한 값이 아니다.
+ * - CAPPED: 최대 cap, 더 있을 수 있다.
+ * - SLICE: 지금까지 본 건수 (다음 페이지가 있으면 +1), hasNext/last 만 정확하다.
+ */
+public class AdaptivePage<T> extends PageImpl<T> {
+
+    private final CountStrategy countStrategy;
+    private final boolean totalExact;
+
+    public AdaptivePage(List<T> content, Pageable pageable, long total, CountStrategy countStrategy, boolean totalExact) {
+        super(content, pageable, total);
+        this.countStrategy = countStrategy;
+        this.totalExact = totalExact;
+    }
+
+    public CountStrategy getCountStrategy() {
+        return countStrategy;
+    }
+
+    public boolean isTotalExact() {
+        return totalExact;
+    }
+}
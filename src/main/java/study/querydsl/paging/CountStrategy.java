@@ -0,0 +1,23 @@
+package study.querydsl.paging;
+
+/**
+ * 페이지 조회의 전체 건수 계산 방법, 비용이 낮은 순서
+ */
+public enum CountStrategy {
+    /**
+     * 매번 count 쿼리 (첫 페이지, 마지막 페이지에서는 생략)
+     */
+    EXACT,
+    /**
+     * 같은 조건, 같은 데이터 버전이면 이전 count 결과를 재사용
+     */
+    CACHED,
+    /**
+     * 최대 cap 건까지만 센다. 넘으면 전체 건수는 cap ("10,000+")
+     */
+    CAPPED,
+    /**
+     * 세지 않는다. 다음 페이지가 있는지만 안다. (Slice)
+     */
+    SLICE
+}
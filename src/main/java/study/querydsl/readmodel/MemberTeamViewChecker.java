@@ -0,0 +1,95 @@
+package study.querydsl.readmodel;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.cache.DataVersion;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * member_team_view 가 원본(member left join team)과 같은지 확인하고, 다르면 다시 만든다.
+ * <p>
+ * 동기화는 엔티티 콜백으로 동작하므로 JPQL/네이티브 벌크 연산, DB 직접 수정은 반영되지 않는다.
+ * 그런 작업 뒤에는 rebuild() 로 다시 만든다.
+ */
+@Slf4j
+@Component
+public class MemberTeamViewChecker {
+
+    private static final int SAMPLE_SIZE = 20;
+
+    private static final String VIEW = "select member_id, username, age, team_id, team_name from member_team_view";
+
+    private final EntityManager em;
+    private final DataVersion dataVersion;
+
+    public MemberTeamViewChecker(EntityManager em, DataVersion dataVersion) {
+        this.em = em;
+        this.dataVersion = dataVersion;
+    }
+
+    /**
+     * 원본에만 있는 행(누락, 이전 값)과 조회 모델에만 있는 행(삭제 누락, 이전 값)을 센다.
+     * 값이 다른 회원은 양쪽에 한번씩 센다.
+     */
+    @Transactional(readOnly = true)
+    public Report check() {
+        long sourceRows = count("select count(*) from member");
+        long viewRows = count("select count(*) from member_team_view");
+        long missingOrStale = count("select count(*) from (" + MemberTeamViewSync.SOURCE + " except " + VIEW + ") diff");
+        long extraOrStale = count("select count(*) from (" + VIEW + " except " + MemberTeamViewSync.SOURCE + ") diff");
+
+        @SuppressWarnings("unchecked")
+        List<Number> sample = em.createNativeQuery(
+                        "select member_id from ((" + MemberTeamViewSync.SOURCE + " except " + VIEW + ")"
+                                + " union (" + VIEW + " except " + MemberTeamViewSync.SOURCE + ")) diff order by member_id")
+                .setMaxResults(SAMPLE_SIZE)
+                .getResultList();
+        List<Long> sampleMemberIds = sample.stream().map(Number::longValue).distinct().collect(Collectors.toList());
+
+        return new Report(sourceRows, viewRows, missingOrStale, extraOrStale, sampleMemberIds);
+    }
+
+    /**
+     * 조회 모델 전체를 원본에서 다시 만든다. 같은 트랜잭션에서 지우고 넣으므로 다른 트랜잭션은 중간 상태를 보지 않는다.
+     */
+    @Transactional
+    public int rebuild() {
+        em.createNativeQuery("delete from member_team_view").executeUpdate();
+        int rows = em.createNativeQuery("insert into member_team_view (member_id, username, age, team_id, team_name) "
+                + MemberTeamViewSync.SOURCE).executeUpdate();
+        //조회 모델 테이블은 DataVersion 이 감지하지 않으므로 직접 올려서 캐시된 응답을 무효화한다.
+        dataVersion.markChanged();
+        log.info("member_team_view rebuilt: {} rows", rows);
+        return rows;
+    }
+
+    private long count(String sql) {
+        return ((Number) em.createNativeQuery(sql).getSingleResult()).longValue();
+    }
+
+    @Getter
+    public static class Report {
+        private final long sourceRows;
+        private final long viewRows;
+        private final long missingOrStale;
+        private final long extraOrStale;
+        private final List<Long> sampleMemberIds;
+
+        Report(long sourceRows, long viewRows, long missingOrStale, long extraOrStale, List<Long> sampleMemberIds) {
+            this.sourceRows = sourceRows;
+            this.viewRows = viewRows;
+            this.missingOrStale = missingOrStale;
+            this.extraOrStale = extraOrStale;
+            this.sampleMemberIds = sampleMemberIds;
+        }
+
+        public boolean isConsistent() {
+            return missingOrStale == 0 && extraOrStale == 0;
+        }
+    }
+}
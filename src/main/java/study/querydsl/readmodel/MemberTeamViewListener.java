@@ -0,0 +1,39 @@
+package study.querydsl.readmodel;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import study.querydsl.entitiy.Member;
+import study.querydsl.entitiy.Team;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Member, Team 변경을 MemberTeamViewSync 에 알린다.
+ * <p>
+ * 스프링이 만든 EntityManagerFactory 는 SpringBeanContainer 로 이 리스너를 만들어서 sync 를 주입한다.
+ * EntityManagerFactory 를 만드는 도중에 리스너가 만들어지므로 sync 는 처음 사용할 때 찾는다. (순환 참조 방지)
+ * 직접 만든 EntityManagerFactory(샤드)에서는 주입되지 않으므로 아무것도 하지 않는다.
+ * JPQL 벌크 연산은 엔티티 콜백을 거치지 않는다. 벌크 연산 후에는 MemberTeamViewChecker.rebuild()
+ */
+public class MemberTeamViewListener {
+
+    @Autowired(required = false)
+    private ObjectProvider<MemberTeamViewSync> syncProvider;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void changed(Object entity) {
+        MemberTeamViewSync sync = syncProvider == null ? null : syncProvider.getIfAvailable();
+        if (sync == null) {
+            return;
+        }
+        if (entity instanceof Member) {
+            sync.memberChanged(((Member) entity).getId());
+        } else if (entity instanceof Team) {
+            sync.teamChanged(((Team) entity).getId());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package study.querydsl.readmodel;
+
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * member_team_view 를 트랜잭션 안에서 원본 테이블과 맞춘다.
+ * <p>
+ * 트랜잭션 동안 바뀐 회원, 팀 식별자를 모아두고 커밋 직전에 한번에 반영한다.
+ * 변경 감지로 나가는 수정은 커밋할 때의 flush 에서야 알 수 있으므로 스프링의 beforeCommit 이 아니라
+ * 하이버네이트가 커밋 flush 를 마친 뒤 실행하는 BeforeTransactionCompletionProcess 에서 반영한다. (Envers 와 같은 방식)
+ * - 회원: 조회 모델 행을 지우고 member left join team 에서 다시 넣는다. (저장, 수정, 삭제, 팀 변경)
+ * - 팀: 그 팀 회원들의 team_name 을 다시 채운다. (팀 이름 변경)
+ * 원본과 같은 트랜잭션에서 커밋되므로 커밋된 뒤에는 항상 원본과 같다. 롤백되면 같이 롤백된다.
+ */
+@Component
+public class MemberTeamViewSync {
+
+    private static final int CHUNK_SIZE = 500;
+
+    static final String SOURCE = "select m.id as member_id, m.username, m.age, t.id as team_id, t.name as team_name"
+            + " from member m left join team t on m.team_id = t.id";
+
+    private final EntityManager em;
+    //트랜잭션의 세션별로 모은 변경, 트랜잭션이 끝나면 지운다.
+    private final Map<SessionImplementor, Changes> pending = new ConcurrentHashMap<>();
+
+    public MemberTeamViewSync(EntityManager em) {
+        this.em = em;
+    }
+
+    void memberChanged(Long memberId) {
+        Changes changes = changes();
+        if (changes != null) {
+            changes.memberIds.add(memberId);
+        }
+    }
+
+    void teamChanged(Long teamId) {
+        Changes changes = changes();
+        if (changes != null) {
+            changes.teamIds.add(teamId);
+        }
+    }
+
+    /**
+     * 트랜잭션마다 한번 등록, 트랜잭션 밖의 변경은 반영하지 않는다.
+     * 롤백되면 반영하지 않고 모아둔 식별자만 버린다.
+     * <p>
+     * 트랜잭션 리소스(bindResource)로 두면 REQUIRES_NEW 로 바깥 트랜잭션을 보류해도 리소스는 보류되지 않아서
+     * 안쪽 트랜잭션의 변경이 바깥 트랜잭션에 섞인다. (안쪽이 커밋돼도 반영되지 않고, 바깥이 롤백되면 버려진다)
+     * 트랜잭션마다 세션이 따로 있으므로 세션별로 모은다.
+     */
+    private Changes changes() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return null;
+        }
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        return pending.computeIfAbsent(session, this::register);
+    }
+
+    private Changes register(SessionImplementor session) {
+        Changes changes = new Changes();
+        session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) s -> apply(s, changes));
+        session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (success, s) ->
+                pending.remove(session));
+        return changes;
+    }
+
+    private static void apply(SessionImplementor session, Changes changes) {
+        for (List<Long> ids : chunks(changes.memberIds)) {
+            session.createNativeQuery("delete from member_team_view where member_id in (:ids)")
+                    .setParameter("ids", ids)
+                    .executeUpdate();
+            session.createNativeQuery("insert into member_team_view (member_id, username, age, team_id, team_name) "
+                            + SOURCE + " where m.id in (:ids)")
+                    .setParameter("ids", ids)
+                    .executeUpdate();
+        }
+        for (List<Long> ids : chunks(changes.teamIds)) {
+            session.createNativeQuery("update member_team_view v"
+                            + " set team_name = (select t.name from team t where t.id = v.team_id)"
+                            + " where v.team_id in (:ids)")
+                    .setParameter("ids", ids)
+                    .executeUpdate();
+        }
+    }
+
+    private static List<List<Long>> chunks(Set<Long> ids) {
+        List<Long> all = new ArrayList<>(ids);
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int i = 0; i < all.size(); i += CHUNK_SIZE) {
+            chunks.add(all.subList(i, Math.min(i + CHUNK_SIZE, all.size())));
+        }
+        return chunks;
+    }
+
+    private static class Changes {
+        private final Set<Long> memberIds = new LinkedHashSet<>();
+        private final Set<Long> teamIds = new LinkedHashSet<>();
+    }
+}
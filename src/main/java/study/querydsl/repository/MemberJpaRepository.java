@@ -1,7 +1,7 @@
 package study.querydsl.repository;
 
 import com.querydsl.core.BooleanBuilder;
-import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.StringUtils;
@@ -9,6 +9,7 @@ import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entitiy.Member;
+import study.querydsl.repository.support.ReadOnlyQueryHints;
 
 import javax.persistence.EntityManager;
 import java.util.List;
@@ -16,6 +17,7 @@ import java.util.Optional;
 
 import static study.querydsl.entitiy.QMember.*;
 import static study.querydsl.entitiy.QTeam.*;
+import static study.querydsl.repository.support.MemberConditions.MEMBER_TEAM;
 
 @Repository
 public class MemberJpaRepository {
@@ -47,6 +49,14 @@ public class MemberJpaRepository {
                 .fetch();
     }
 
+    /**
+     * 읽기 전용 조회, 조회한 회원은 변경 감지하지 않는다. (수정해도 DB에 반영되지 않는다)
+     */
+    public List<Member> findAll_QuerydslReadOnly() {
+        return ReadOnlyQueryHints.apply(queryFactory.selectFrom(member))
+                .fetch();
+    }
+
     public List<Member> findByUsername(String username) {
         return em.createQuery("select m from Member m" +
                 " where m.username = :username", Member.class)
@@ -92,6 +102,20 @@ public class MemberJpaRepository {
     }
 
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        return searchQuery(condition).fetch();
+    }
+
+    /**
+     * search 와 같은 조건, 회원 id 순서로 최대 limit 건만 조회한다.
+     */
+    public List<MemberTeamDto> search(MemberSearchCondition condition, int limit) {
+        return searchQuery(condition)
+                .orderBy(member.id.asc()) //잘린 결과가 요청마다 달라지지 않도록 순서를 고정
+                .limit(limit)
+                .fetch();
+    }
+
+    private JPAQuery<MemberTeamDto> searchQuery(MemberSearchCondition condition) {
         return queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
@@ -102,29 +126,7 @@ public class MemberJpaRepository {
                 ))
                 .from(member)
                 .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .fetch();
-    }
-
-    private BooleanExpression usernameEq(String username) {
-        return StringUtils.hasText(username) ? member.username.eq(username) : null;
-    }
-
-    private BooleanExpression teamNameEq(String teamName) {
-        return StringUtils.hasText(teamName) ? team.name.eq(teamName) : null;
-    }
-
-    private BooleanExpression ageGoe(Integer ageGoe) {
-        return ageGoe != null ? member.age.goe(ageGoe) : null;
-    }
-
-    private BooleanExpression ageLoe(Integer ageLoe) {
-        return ageLoe != null ? member.age.loe(ageLoe) : null;
+                .where(MEMBER_TEAM.predicates(condition));
     }
 
 }
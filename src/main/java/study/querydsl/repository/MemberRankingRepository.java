@@ -0,0 +1,105 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.sql.H2Templates;
+import com.querydsl.sql.SQLExpressions;
+import com.querydsl.sql.SQLTemplates;
+import org.springframework.stereotype.Repository;
+import study.querydsl.dto.MemberRankDto;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberRankDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.repository.sql.SMember;
+import study.querydsl.repository.sql.STeam;
+import study.querydsl.repository.support.RepositorySQLQuery;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+/**
+ * 윈도우 함수를 사용한 순위 조회
+ * <p>
+ * JPQL 은 윈도우 함수(ROW_NUMBER, RANK ... OVER)를 지원하지 않기 때문에 Querydsl SQL(JPASQLQuery)로
+ * 네이티브 SQL을 만들고 EntityManager 로 실행한다.
+ * QuerydslBasicTest.subQuery 처럼 상관 서브쿼리로 member 를 반복해서 읽지 않고 테이블을 한번만 읽는다.
+ */
+@Repository
+public class MemberRankingRepository {
+
+    private static final SQLTemplates TEMPLATES = new H2Templates();
+
+    private final EntityManager em;
+
+    public MemberRankingRepository(EntityManager em) {
+        this.em = em;
+    }
+
+    /**
+     * 팀별로 나이가 많은 회원 N명
+     *
+     * select ranked.* from (
+     *     select m.id as member_id, ..., row_number() over (partition by m.team_id order by m.age desc, m.id asc) as rn
+     *     from member m left join team t on m.team_id = t.id
+     *     where m.team_id is not null
+     * ) ranked
+     * where ranked.rn <= ?
+     */
+    public List<MemberTeamDto> findOldestPerTeam(int limit) {
+        SMember m = new SMember("m");
+        STeam t = new STeam("t");
+        PathBuilder<Object> ranked = new PathBuilder<>(Object.class, "ranked");
+        NumberPath<Long> rowNumber = ranked.getNumber("rn", Long.class);
+        NumberPath<Long> teamId = ranked.getNumber("team_id", Long.class);
+
+        return new RepositorySQLQuery<Void>(em, TEMPLATES)
+                .select(new QMemberTeamDto(
+                        ranked.getNumber("member_id", Long.class),
+                        ranked.getString("username"),
+                        ranked.getNumber("age", Integer.class),
+                        teamId,
+                        ranked.getString("team_name")
+                ))
+                .from(SQLExpressions.select(
+                                m.id.as("member_id"),
+                                m.username.as("username"),
+                                m.age.as("age"),
+                                t.id.as("team_id"),
+                                t.name.as("team_name"),
+                                SQLExpressions.rowNumber().over()
+                                        .partitionBy(m.teamId)
+                                        .orderBy(m.age.desc(), m.id.asc())
+                                        .as("rn"))
+                        .from(m)
+                        .leftJoin(t).on(m.teamId.eq(t.id))
+                        .where(m.teamId.isNotNull()), ranked)
+                .where(rowNumber.loe((long) limit))
+                .orderBy(teamId.asc(), rowNumber.asc())
+                .fetch();
+    }
+
+    /**
+     * 회원별 팀 안에서의 나이 순위(RANK)와 전체 나이 백분위(PERCENT_RANK)
+     */
+    public List<MemberRankDto> rankByAge() {
+        SMember m = new SMember("m");
+        STeam t = new STeam("t");
+        return new RepositorySQLQuery<Void>(em, TEMPLATES)
+                .select(new QMemberRankDto(
+                        m.id,
+                        m.username,
+                        m.age,
+                        m.teamId,
+                        t.name,
+                        SQLExpressions.rank().over()
+                                .partitionBy(m.teamId)
+                                .orderBy(m.age.desc()),
+                        SQLExpressions.percentRank().over()
+                                .orderBy(m.age.asc())
+                ))
+                .from(m)
+                .leftJoin(t).on(m.teamId.eq(t.id))
+                .orderBy(m.teamId.asc(), m.age.desc(), m.id.asc())
+                .fetch();
+    }
+}
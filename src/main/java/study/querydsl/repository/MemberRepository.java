@@ -1,13 +1,51 @@
 package study.querydsl.repository;
 
+import com.querydsl.core.types.dsl.StringExpression;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.querydsl.QuerydslPredicateExecutor;
+import org.springframework.data.querydsl.binding.QuerydslBinderCustomizer;
+import org.springframework.data.querydsl.binding.QuerydslBindings;
 import study.querydsl.entitiy.Member;
+import study.querydsl.entitiy.QMember;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 public interface MemberRepository extends JpaRepository<Member, Long>,
         MemberRepositoryCustom,
-        QuerydslPredicateExecutor<Member> {
+        QuerydslPredicateExecutor<Member>,
+        QuerydslBinderCustomizer<QMember> {
     List<Member> findByUsername(String username);
+
+    /**
+     * 쿼리 파라미터 -> Predicate 바인딩 (/members/query)
+     * 인덱스가 있는 속성만 허용하고 나머지 파라미터는 무시한다.
+     *
+     * id=1&id=2            -> id in (1, 2)
+     * username=mem         -> username like 'mem%'
+     * age=10&age=20        -> age between 10 and 20 (값이 하나면 eq)
+     * ageGoe=10, ageLoe=20 -> age >= 10, age <= 20
+     * team.id=1, team.name=teamA -> eq (여러 개면 in)
+     */
+    @Override
+    default void customize(QuerydslBindings bindings, QMember root) {
+        bindings.including(root.id, root.username, root.age, root.team.id, root.team.name);
+        bindings.excludeUnlistedProperties(true);
+
+        bindings.bind(root.id).all((path, values) -> Optional.of(path.in(values)));
+        bindings.bind(root.username).first(StringExpression::startsWith);
+        bindings.bind(root.age).all((path, values) -> {
+            List<Integer> ages = new ArrayList<>(values);
+            if (ages.size() == 1) {
+                return Optional.of(path.eq(ages.get(0)));
+            }
+            return Optional.of(path.between(Collections.min(ages), Collections.max(ages)));
+        });
+        bindings.bind(root.age).as("ageGoe").first((path, value) -> path.goe(value));
+        bindings.bind(root.age).as("ageLoe").first((path, value) -> path.loe(value));
+        bindings.bind(root.team.id).all((path, values) -> Optional.of(path.in(values)));
+        bindings.bind(root.team.name).all((path, values) -> Optional.of(path.in(values)));
+    }
 }
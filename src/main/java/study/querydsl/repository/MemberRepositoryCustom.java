@@ -1,16 +1,30 @@
 package study.querydsl.repository;
 
+import com.querydsl.core.types.Predicate;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entitiy.Member;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface MemberRepositoryCustom {
     List<MemberTeamDto> search(MemberSearchCondition condition);
     Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
     Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
+    Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable);
+    List<MemberTeamDto> searchView(MemberSearchCondition condition);
+    List<MemberTeamDto> searchView(MemberSearchCondition condition, int limit);
+    Page<MemberTeamDto> searchPageView(MemberSearchCondition condition, Pageable pageable);
+    Page<MemberTeamDto> searchPredicate(Predicate predicate, Pageable pageable);
+    List<List<MemberTeamDto>> searchBatch(List<MemberSearchCondition> conditions);
+    List<List<MemberTeamDto>> searchBatch(List<MemberSearchCondition> conditions, int limit);
+    List<Map<String, Object>> searchFields(MemberSearchCondition condition, Collection<String> fields);
+    List<Map<String, Object>> searchFields(MemberSearchCondition condition, Collection<String> fields, int limit);
+    Page<Map<String, Object>> searchPageFields(MemberSearchCondition condition, Collection<String> fields, Pageable pageable);
 
 }
@@ -1,14 +1,34 @@
 package study.querydsl.repository;
 
 import com.querydsl.core.QueryResults;
-import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.support.ReplaceVisitor;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Order;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.SubQueryExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.core.types.dsl.Wildcard;
 import com.querydsl.jpa.JPQLQuery;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.sql.H2Templates;
+import com.querydsl.sql.SQLExpressions;
+import com.querydsl.sql.SQLQuery;
+import com.querydsl.sql.SQLTemplates;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.support.QuerydslRepositorySupport;
 import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.util.StringUtils;
@@ -16,11 +36,26 @@ import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entitiy.Member;
+import study.querydsl.paging.AdaptiveCountPolicy;
+import study.querydsl.repository.support.MemberConditions;
+import study.querydsl.repository.support.RepositorySQLQuery;
+import study.querydsl.repository.sql.SMember;
+import study.querydsl.repository.sql.STeam;
+import study.querydsl.shard.ShardedMemberRepository;
 
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static study.querydsl.entitiy.QMember.member;
+import static study.querydsl.entitiy.QMemberTeamView.memberTeamView;
 import static study.querydsl.entitiy.QTeam.team;
+import static study.querydsl.repository.support.MemberConditions.MEMBER_TEAM;
+import static study.querydsl.repository.support.MemberConditions.MEMBER_TEAM_VIEW;
+import static study.querydsl.repository.support.MemberConditions.SORTABLE;
 
 @RequiredArgsConstructor
 public class MemberRepositoryImpl implements MemberRepositoryCustom {
@@ -28,10 +63,35 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
 //        super(member.getClass());
 //    }
 
+    /**
+     * 필드 선택 조회(searchFields)에서 사용할 수 있는 필드
+     */
+    private static final Map<String, Expression<?>> FIELDS = new LinkedHashMap<>();
+
+    static {
+        FIELDS.put("memberId", member.id);
+        FIELDS.put("username", member.username);
+        FIELDS.put("age", member.age);
+        FIELDS.put("teamId", member.team.id);
+        FIELDS.put("teamName", team.name);
+    }
+
+    private static final SQLTemplates SQL_TEMPLATES = new H2Templates();
+
+    private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final AdaptiveCountPolicy countPolicy;
+    /**
+     * shard.count 를 설정하면 search, searchPageComplex 는 샤드에서 조회한다.
+     */
+    private final ObjectProvider<ShardedMemberRepository> shardedRepository;
 
     @Override
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        ShardedMemberRepository sharded = shardedRepository.getIfAvailable();
+        if (sharded != null) {
+            return sharded.search(condition);
+        }
 
 //        List<MemberTeamDto> result = from(member)
 //                .leftJoin(member.team, team)
@@ -50,7 +110,7 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
 //                ))
 //                .fetch();
 
-        return queryFactory
+        return joinTeam(queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
@@ -58,14 +118,8 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
                         team.id.as("teamId"),
                         team.name.as("teamName")
                 ))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
+                .from(member), condition)
+                .where(MEMBER_TEAM.predicates(condition))
                 .fetch();
     }
 
@@ -79,7 +133,7 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
     @Override
     public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
 
-        QueryResults<MemberTeamDto> result = queryFactory
+        QueryResults<MemberTeamDto> result = joinTeam(queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
@@ -87,14 +141,8 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
                         team.id.as("teamId"),
                         team.name.as("teamName")
                 ))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
+                .from(member), condition)
+                .where(MEMBER_TEAM.predicates(condition))
                 .offset(pageable.getOffset())
                 .limit(pageable.getPageSize())
                 .fetchResults();
@@ -138,26 +186,10 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
 
     @Override
     public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
-        List<MemberTeamDto> content = queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")
-                ))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
-                .fetch();
-
+        ShardedMemberRepository sharded = shardedRepository.getIfAvailable();
+        if (sharded != null) {
+            return sharded.searchPageComplex(condition, pageable);
+        }
 //        long count = queryFactory
 //                .select(member.count())
 //                .from(member)
@@ -171,15 +203,17 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
 //                )
 //                .fetchCount();
 
+        Predicate[] where = MEMBER_TEAM.predicates(condition);
+        boolean teamJoined = StringUtils.hasText(condition.getTeamName());
+
+        //팀 이름 조건이 있을 때만 team 을 조인한다. (left join 은 회원 수를 바꾸지 않는다)
         JPAQuery<Long> countQuery = queryFactory
                 .select(member.count())
-                .from(member)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                );
+                .from(member);
+        if (teamJoined) {
+            countQuery.join(member.team, team);
+        }
+        countQuery.where(where);
 
         /**
          * count 쿼리가 생략 가능한 경우 생략해서 처리
@@ -196,25 +230,390 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
          * e.g)
          *  예를 들어 전체 데이터는 103개이고, 페이지 사이즈는 10이라고 한다면
          *  마지막 페이지 일때는 offset(100), 컨텐츠 사이즈(3)이라서 카운트는 103으로 이해 하고 있는데 맞는 내용 인가요?
+         *
+         * count 쿼리가 비싼 조건 모양은 AdaptiveCountPolicy 가 캐시/상한/Slice 방식으로 바꾼다.
+         * (응답의 countStrategy, totalExact)
          */
+        return countPolicy.page(condition, pageable,
+                limit -> joinTeam(queryFactory
+                        .select(new QMemberTeamDto(
+                                member.id.as("memberId"),
+                                member.username,
+                                member.age,
+                                team.id.as("teamId"),
+                                team.name.as("teamName")
+                        ))
+                        .from(member), condition)
+                        .where(where)
+                        .offset(pageable.getOffset())
+                        .limit(limit)
+                        .fetch(),
+                countQuery::fetchOne,
+                cap -> cappedCount(condition, cap));
+    }
+
+    /**
+     * 최대 cap 건까지만 센다.
+     * select count(*) from (select m.id from member m ... limit cap)
+     * JPQL 은 FROM 절 서브쿼리와 서브쿼리 limit 을 지원하지 않아서 Querydsl SQL(JPASQLQuery)로 DB 에서 센다.
+     */
+    private long cappedCount(MemberSearchCondition condition, long cap) {
+        SMember m = new SMember("m");
+        STeam t = new STeam("t");
+        SQLQuery<Long> ids = SQLExpressions.select(m.id).from(m);
+        if (StringUtils.hasText(condition.getTeamName())) {
+            ids.join(t).on(m.teamId.eq(t.id));
+        }
+        ids.where(MemberConditions.of(m.username, t.name, m.age).predicates(condition))
+                .limit(cap);
+
+        Long count = new RepositorySQLQuery<Void>(em, SQL_TEMPLATES)
+                .select(Wildcard.count)
+                .from(ids, Expressions.path(Object.class, "capped"))
+                .fetchOne();
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * count 쿼리 없이 조회하는 무한 스크롤용 페이징
+     * 페이지 사이즈 + 1 건을 조회해서 다음 페이지가 있는지만 판단한다. (hasNext)
+     * 전체 건수와 전체 페이지 수는 알 수 없다.
+     * 정렬은 회원 속성(id, username, age)만 가능하다.
+     */
+    @Override
+    public Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable) {
+        List<MemberTeamDto> content = joinTeam(queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")
+                ))
+                .from(member), condition)
+                .where(MEMBER_TEAM.predicates(condition))
+                .orderBy(orderSpecifiers(pageable.getSort())) //다음 페이지를 이어서 조회하므로 마지막은 항상 id 순서
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize() + 1)
+                .fetch();
+
+        boolean hasNext = content.size() > pageable.getPageSize();
+        if (hasNext) {
+            content = content.subList(0, pageable.getPageSize());
+        }
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
+
+    /**
+     * search 와 같은 결과를 조인 없이 조회 모델(member_team_view)에서 조회
+     * 조회 모델은 커밋할 때 같이 갱신되므로 커밋된 데이터 기준으로 원본과 같다.
+     */
+    @Override
+    public List<MemberTeamDto> searchView(MemberSearchCondition condition) {
+        return queryFactory
+                .select(viewDto())
+                .from(memberTeamView)
+                .where(MEMBER_TEAM_VIEW.predicates(condition))
+                .fetch();
+    }
+
+    /**
+     * searchView 와 같은 조건, 회원 id 순서로 최대 limit 건만 조회한다.
+     */
+    @Override
+    public List<MemberTeamDto> searchView(MemberSearchCondition condition, int limit) {
+        return queryFactory
+                .select(viewDto())
+                .from(memberTeamView)
+                .where(MEMBER_TEAM_VIEW.predicates(condition))
+                .orderBy(memberTeamView.memberId.asc())
+                .limit(limit)
+                .fetch();
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageView(MemberSearchCondition condition, Pageable pageable) {
+        List<MemberTeamDto> content = queryFactory
+                .select(viewDto())
+                .from(memberTeamView)
+                .where(MEMBER_TEAM_VIEW.predicates(condition))
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+
+        JPAQuery<Long> countQuery = queryFactory
+                .select(memberTeamView.count())
+                .from(memberTeamView)
+                .where(MEMBER_TEAM_VIEW.predicates(condition));
+
+        return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchOne);
+    }
+
+    private QMemberTeamDto viewDto() {
+        return new QMemberTeamDto(
+                memberTeamView.memberId,
+                memberTeamView.username,
+                memberTeamView.age,
+                memberTeamView.teamId,
+                memberTeamView.teamName
+        );
+    }
+
+    /**
+     * 쿼리 파라미터로 만든 Predicate 로 조회 (MemberRepository.customize 바인딩)
+     * 정렬은 회원 속성만 가능하다.
+     * 바인딩은 member.team.name 처럼 연관관계 경로를 쓰는데, 그대로 두면 명시한 left join 과 별도로
+     * 묵시적 조인이 하나 더 생기므로 조인한 team 별칭으로 바꿔서 조회한다.
+     */
+    @Override
+    public Page<MemberTeamDto> searchPredicate(Predicate predicate, Pageable pageable) {
+        Predicate where = predicate == null ? null : (Predicate) ExpressionUtils.extract(predicate);
+        Predicate onTeam = onTeamAlias(where);
+
+        List<MemberTeamDto> content = queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")
+                ))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(onTeam)
+                .orderBy(orderSpecifiers(pageable.getSort()))
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+
+        JPAQuery<Long> countQuery = queryFactory
+                .select(member.count())
+                .from(member);
+        if (onTeam != where) {
+            //팀 속성 조건이 있을때만 조인
+            countQuery.leftJoin(member.team, team);
+        }
+        countQuery.where(onTeam);
+
         return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchOne);
-        
-        //return new PageImpl<>(content, pageable, count);
     }
 
-    private BooleanExpression usernameEq(String username) {
-        return StringUtils.hasText(username) ? member.username.eq(username) : null;
+    /**
+     * member.team.xxx 경로를 조인 별칭 team.xxx 로 바꾼다.
+     * member.team.id 는 외래키 컬럼(member.team_id)으로 조회되므로 그대로 둔다.
+     * 바꿀 경로가 없으면 같은 인스턴스를 반환한다. (BooleanBuilder 는 ExpressionUtils.extract 로 꺼내서 넘긴다)
+     */
+    static Predicate onTeamAlias(Predicate predicate) {
+        return predicate == null ? null : (Predicate) predicate.accept(TEAM_ALIAS, null);
+    }
+
+    private static final ReplaceVisitor<Void> TEAM_ALIAS = new ReplaceVisitor<Void>() {
+        @Override
+        public Expression<?> visit(Path<?> expr, Void context) {
+            if (expr.equals(member.team.id)) {
+                return expr;
+            }
+            if (expr.equals(member.team)) {
+                return team;
+            }
+            return super.visit(expr, context);
+        }
+    };
+
+    private OrderSpecifier<?>[] orderSpecifiers(Sort sort) {
+        PathBuilder<Member> path = new PathBuilder<>(Member.class, member.getMetadata());
+        List<OrderSpecifier<?>> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            if (!SORTABLE.contains(order.getProperty())) {
+                throw new IllegalArgumentException("Sort not allowed: " + order.getProperty() + ", allowed: " + SORTABLE);
+            }
+            orders.add(new OrderSpecifier<>(order.isAscending() ? Order.ASC : Order.DESC,
+                    path.getComparable(order.getProperty(), Comparable.class)));
+        }
+        orders.add(member.id.asc()); //같은 값이면 식별자 순서로 고정
+        return orders.toArray(new OrderSpecifier[0]);
+    }
+
+    /**
+     * 여러 검색 조건을 한번의 쿼리로 조회
+     * <p>
+     * 조건마다 조건 순번(q)을 붙인 조회를 UNION ALL 로 묶어서 한번에 실행하고, 조회된 행을 순번으로 나눈다.
+     * 조건 판정은 모두 DB 에서 하고, 조건마다 인덱스를 따로 탈 수 있다.
+     * JPQL 에는 UNION 이 없어서 Querydsl SQL(JPASQLQuery)로 실행한다.
+     * 반환 목록의 순서는 conditions 순서와 같고 조건별 결과는 회원 id 순서이다.
+     * 조건이 하나도 없는 검색은 전체 조회가 되므로 IllegalArgumentException
+     */
+    @Override
+    public List<List<MemberTeamDto>> searchBatch(List<MemberSearchCondition> conditions) {
+        return searchBatch(conditions, null);
+    }
+
+    /**
+     * searchBatch 와 같고, 조건마다 회원 id 순서로 최대 limit 건만 조회한다.
+     * 조건이 있어도 대부분의 회원과 맞을 수 있으므로(e.g. ageGoe=0) 조건별 조회에 limit 을 건다.
+     */
+    @Override
+    public List<List<MemberTeamDto>> searchBatch(List<MemberSearchCondition> conditions, int limit) {
+        return searchBatch(conditions, Integer.valueOf(limit));
+    }
+
+    private List<List<MemberTeamDto>> searchBatch(List<MemberSearchCondition> conditions, Integer limit) {
+        if (conditions.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        SMember m = new SMember("m");
+        STeam t = new STeam("t");
+        NumberPath<Integer> q = Expressions.numberPath(Integer.class, "q");
+        NumberPath<Long> memberId = Expressions.numberPath(Long.class, "member_id");
+        MemberConditions sqlConditions = MemberConditions.of(m.username, t.name, m.age);
+
+        List<SubQueryExpression<Tuple>> queries = new ArrayList<>(conditions.size());
+        for (int i = 0; i < conditions.size(); i++) {
+            MemberSearchCondition condition = conditions.get(i);
+            Predicate predicate = sqlConditions.allOf(condition);
+            if (predicate == null) {
+                throw new IllegalArgumentException("Batch condition " + i + " has no filter, use the paged search instead");
+            }
+
+            SQLQuery<Tuple> query = SQLExpressions.select(
+                            Expressions.numberTemplate(Integer.class, String.valueOf(i)).as(q),
+                            m.id.as(memberId),
+                            m.username.as("username"),
+                            m.age.as("age"),
+                            t.id.as("team_id"),
+                            t.name.as("team_name"))
+                    .from(m);
+            if (StringUtils.hasText(condition.getTeamName())) {
+                query.join(t).on(m.teamId.eq(t.id));
+            } else {
+                query.leftJoin(t).on(m.teamId.eq(t.id));
+            }
+            query.where(predicate);
+            if (limit != null) {
+                query.orderBy(m.id.asc()).limit(limit);
+            }
+            queries.add(query);
+        }
+
+        List<Tuple> rows = new RepositorySQLQuery<Void>(em, SQL_TEMPLATES)
+                .unionAll(queries)
+                .orderBy(q.asc(), memberId.asc())
+                .fetch();
+
+        List<List<MemberTeamDto>> results = new ArrayList<>(conditions.size());
+        for (int i = 0; i < conditions.size(); i++) {
+            results.add(new ArrayList<>());
+        }
+        for (Tuple row : rows) {
+            results.get(row.get(0, Integer.class)).add(new MemberTeamDto(
+                    row.get(1, Long.class),
+                    row.get(2, String.class),
+                    row.get(3, Integer.class),
+                    row.get(4, Long.class),
+                    row.get(5, String.class)));
+        }
+        return results;
+    }
+
+    /**
+     * 요청한 필드만 조회 (memberId, username, age, teamId, teamName)
+     * <p>
+     * teamId 는 member.team_id 외래키 컬럼으로 조회할 수 있기 때문에
+     * teamName 을 조회하거나 팀 이름 조건이 있을때만 team 을 조인한다.
+     * 결과는 회원 id 순서이다.
+     */
+    @Override
+    public List<Map<String, Object>> searchFields(MemberSearchCondition condition, Collection<String> fields) {
+        List<String> selected = selectedFields(fields);
+        return toMaps(selected, fieldsQuery(condition, selected).fetch());
+    }
+
+    /**
+     * searchFields 와 같은 조건, 최대 limit 건만 조회한다.
+     */
+    @Override
+    public List<Map<String, Object>> searchFields(MemberSearchCondition condition, Collection<String> fields, int limit) {
+        List<String> selected = selectedFields(fields);
+        return toMaps(selected, fieldsQuery(condition, selected).limit(limit).fetch());
+    }
+
+    @Override
+    public Page<Map<String, Object>> searchPageFields(MemberSearchCondition condition, Collection<String> fields,
+                                                      Pageable pageable) {
+        List<String> selected = selectedFields(fields);
+        List<Tuple> content = fieldsQuery(condition, selected)
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+
+        JPAQuery<Long> countQuery = queryFactory
+                .select(member.count())
+                .from(member);
+        if (StringUtils.hasText(condition.getTeamName())) {
+            countQuery.leftJoin(member.team, team);
+        }
+        countQuery.where(MEMBER_TEAM.predicates(condition));
+
+        return PageableExecutionUtils.getPage(toMaps(selected, content), pageable, countQuery::fetchOne);
     }
 
-    private BooleanExpression teamNameEq(String teamName) {
-        return StringUtils.hasText(teamName) ? team.name.eq(teamName) : null;
+    private JPAQuery<Tuple> fieldsQuery(MemberSearchCondition condition, List<String> selected) {
+        Expression<?>[] projection = selected.stream()
+                .map(FIELDS::get)
+                .toArray(Expression[]::new);
+
+        JPAQuery<Tuple> query = queryFactory
+                .select(projection)
+                .from(member);
+        if (selected.contains("teamName") || StringUtils.hasText(condition.getTeamName())) {
+            query.leftJoin(member.team, team);
+        }
+        return query.where(MEMBER_TEAM.predicates(condition))
+                .orderBy(member.id.asc()); //페이지 사이에서 순서가 바뀌지 않도록 고정
     }
 
-    private BooleanExpression ageGoe(Integer ageGoe) {
-        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    /**
+     * 요청한 필드를 MemberTeamDto 필드 순서로 정리, 모르는 필드가 있으면 예외
+     */
+    private List<String> selectedFields(Collection<String> fields) {
+        for (String field : fields) {
+            if (!FIELDS.containsKey(field)) {
+                throw new IllegalArgumentException("Unknown field: " + field + ", allowed: " + FIELDS.keySet());
+            }
+        }
+        List<String> selected = new ArrayList<>();
+        for (String field : FIELDS.keySet()) {
+            if (fields.contains(field)) {
+                selected.add(field);
+            }
+        }
+        if (selected.isEmpty()) {
+            throw new IllegalArgumentException("At least one field is required, allowed: " + FIELDS.keySet());
+        }
+        return selected;
     }
 
-    private BooleanExpression ageLoe(Integer ageLoe) {
-        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    private List<Map<String, Object>> toMaps(List<String> selected, List<Tuple> tuples) {
+        List<Map<String, Object>> rows = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (String field : selected) {
+                row.put(field, tuple.get(FIELDS.get(field)));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * 팀 이름 조건이 있으면 팀이 없는 회원은 어차피 걸러지므로 내부 조인으로 조회한다.
+     * 외부 조인은 조인 순서가 member 부터로 고정되지만 내부 조인이면 DB가 team(idx_team_name) 을 먼저 읽고
+     * member 를 (team_id, age) 인덱스(idx_member_team_age)로 찾을 수 있다.
+     */
+    private <T> JPAQuery<T> joinTeam(JPAQuery<T> query, MemberSearchCondition condition) {
+        return StringUtils.hasText(condition.getTeamName())
+                ? query.join(member.team, team)
+                : query.leftJoin(member.team, team);
     }
 }
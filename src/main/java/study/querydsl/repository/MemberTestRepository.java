@@ -1,24 +1,25 @@
 package study.querydsl.repository;
 
-import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQuery;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
-import org.springframework.util.StringUtils;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.entitiy.Member;
+import study.querydsl.repository.support.FetchPlan;
 import study.querydsl.repository.support.Querydsl4RepositorySupport;
 
 import java.util.List;
 
 import static study.querydsl.entitiy.QMember.member;
 import static study.querydsl.entitiy.QTeam.team;
+import static study.querydsl.repository.support.MemberConditions.MEMBER_TEAM;
 
 @Repository
 public class MemberTestRepository extends Querydsl4RepositorySupport {
-    public MemberTestRepository(Class<?> domainClass) {
+    public MemberTestRepository() {
         super(Member.class);
     }
 
@@ -33,33 +34,62 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
                 .fetch();
     }
 
-    public Page<Member> searchPageByApplyPage(MemberSearchCondition condition, Pageable pageable) {
-        JPAQuery<Member> query = selectFrom(member)
+    /**
+     * 읽기 전용 조회, 영속성 컨텍스트에는 들어가지만 스냅샷을 만들지 않고 변경 감지하지 않는다.
+     */
+    public List<Member> basicSelectReadOnly() {
+        return selectFromReadOnly(member)
+                .fetch();
+    }
+
+    /**
+     * StatelessSession 조회, 영속성 컨텍스트에 들어가지 않는다. (준영속 상태)
+     */
+    public List<Member> basicSelectStateless() {
+        return fetchStateless(query -> query
+                .select(member)
+                .from(member));
+    }
+
+    public Page<Member> searchPageByApplyPageReadOnly(MemberSearchCondition condition, Pageable pageable) {
+        JPAQuery<Member> query = selectFromReadOnly(member)
                 .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                );
+                .where(MEMBER_TEAM.predicates(condition));
 
         List<Member> content = getQuerydsl().applyPagination(pageable, query)
                 .fetch();
 
         return PageableExecutionUtils.getPage(content, pageable, query::fetchCount);
+    }
+
+    public Page<Member> searchPageByApplyPage(MemberSearchCondition condition, Pageable pageable) {
+        return searchPageByApplyPage(condition, pageable, FetchPlan.none());
+    }
+
+    /**
+     * fetchPlan 의 연관관계를 함께 로딩한다. e.g) FetchPlan.of("team"), FetchPlan.graph("Member.team")
+     */
+    public Page<Member> searchPageByApplyPage(MemberSearchCondition condition, Pageable pageable, FetchPlan fetchPlan) {
+        JPAQuery<Member> query = selectFrom(member)
+                .leftJoin(member.team, team)
+                .where(MEMBER_TEAM.predicates(condition));
+
+        getQuerydsl().applyPagination(pageable, query);
+        List<Member> content = fetchWith(query, fetchPlan);
+
+        return PageableExecutionUtils.getPage(content, pageable, query::fetchCount);
 
     }
 
     public Page<Member> applyPagination(MemberSearchCondition condition, Pageable pageable) {
-        return applyPagination(pageable, contentQuery -> contentQuery
+        return applyPagination(condition, pageable, FetchPlan.none());
+    }
+
+    public Page<Member> applyPagination(MemberSearchCondition condition, Pageable pageable, FetchPlan fetchPlan) {
+        return applyPagination(pageable, fetchPlan, contentQuery -> contentQuery
                 .selectFrom(member)
                 .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                ));
+                .where(MEMBER_TEAM.predicates(condition)));
     }
 
     public Page<Member> applyPagination2(MemberSearchCondition condition, Pageable pageable) {
@@ -67,37 +97,18 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
                 contentQuery -> contentQuery
                 .selectFrom(member)
                 .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                ),
+                .where(MEMBER_TEAM.predicates(condition)),
                 countQuery -> countQuery
                         .selectFrom(member)
                         .leftJoin(member.team, team)
-                        .where(
-                                usernameEq(condition.getUsername()),
-                                teamNameEq(condition.getTeamName()),
-                                ageGoe(condition.getAgeGoe()),
-                                ageLoe(condition.getAgeLoe())
-                        )
+                        .where(MEMBER_TEAM.predicates(condition))
         );
     }
 
-    private BooleanExpression usernameEq(String username) {
-        return StringUtils.hasText(username) ? member.username.eq(username) : null;
-    }
-
-    private BooleanExpression teamNameEq(String teamName) {
-        return StringUtils.hasText(teamName) ? team.name.eq(teamName) : null;
-    }
-
-    private BooleanExpression ageGoe(Integer ageGoe) {
-        return ageGoe != null ? member.age.goe(ageGoe) : null;
-    }
-
-    private BooleanExpression ageLoe(Integer ageLoe) {
-        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    public Slice<Member> applySlicing(MemberSearchCondition condition, Pageable pageable) {
+        return applySlicing(pageable, contentQuery -> contentQuery
+                .selectFrom(member)
+                .leftJoin(member.team, team)
+                .where(MEMBER_TEAM.predicates(condition)));
     }
 }
@@ -0,0 +1,30 @@
+package study.querydsl.repository.sql;
+
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.sql.ColumnMetadata;
+import com.querydsl.sql.RelationalPathBase;
+
+import java.sql.Types;
+
+import static com.querydsl.core.types.PathMetadataFactory.forVariable;
+
+/**
+ * member 테이블 (Querydsl SQL 용, JPA 엔티티 Member 와 같은 테이블)
+ * 네이티브 SQL에서만 가능한 쿼리(윈도우 함수 등)를 작성할 때 사용한다.
+ */
+public class SMember extends RelationalPathBase<SMember> {
+
+    public final NumberPath<Long> id = createNumber("id", Long.class);
+    public final StringPath username = createString("username");
+    public final NumberPath<Integer> age = createNumber("age", Integer.class);
+    public final NumberPath<Long> teamId = createNumber("teamId", Long.class);
+
+    public SMember(String variable) {
+        super(SMember.class, forVariable(variable), "PUBLIC", "member");
+        addMetadata(id, ColumnMetadata.named("id").withIndex(1).ofType(Types.BIGINT).notNull());
+        addMetadata(username, ColumnMetadata.named("username").withIndex(2).ofType(Types.VARCHAR));
+        addMetadata(age, ColumnMetadata.named("age").withIndex(3).ofType(Types.INTEGER).notNull());
+        addMetadata(teamId, ColumnMetadata.named("team_id").withIndex(4).ofType(Types.BIGINT));
+    }
+}
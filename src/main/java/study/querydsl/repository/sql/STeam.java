@@ -0,0 +1,25 @@
+package study.querydsl.repository.sql;
+
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.sql.ColumnMetadata;
+import com.querydsl.sql.RelationalPathBase;
+
+import java.sql.Types;
+
+import static com.querydsl.core.types.PathMetadataFactory.forVariable;
+
+/**
+ * team 테이블 (Querydsl SQL 용, JPA 엔티티 Team 과 같은 테이블)
+ */
+public class STeam extends RelationalPathBase<STeam> {
+
+    public final NumberPath<Long> id = createNumber("id", Long.class);
+    public final StringPath name = createString("name");
+
+    public STeam(String variable) {
+        super(STeam.class, forVariable(variable), "PUBLIC", "team");
+        addMetadata(id, ColumnMetadata.named("id").withIndex(1).ofType(Types.BIGINT).notNull());
+        addMetadata(name, ColumnMetadata.named("name").withIndex(2).ofType(Types.VARCHAR));
+    }
+}
@@ -0,0 +1,149 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.QueryModifiers;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Operator;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.JPQLTemplates;
+import com.querydsl.jpa.hibernate.HibernateQuery;
+import com.querydsl.jpa.impl.JPAProvider;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.jpa.QueryHints;
+import study.querydsl.governance.QueryDeadline;
+import study.querydsl.monitor.QueryRecorder;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.List;
+
+/**
+ * JPQL로 바꿀 때 DerivedColumns 규칙을 적용하는 JPAQueryFactory
+ * select, where, order by, group by 어디에 있는 식이든 계산 컬럼으로 바뀐다.
+ *
+ * readOnly() 로 만든 팩토리의 쿼리는 읽기 전용 힌트(ReadOnlyQueryHints)가 붙는다.
+ *
+ * QueryDeadline 예산 안에서 만든 쿼리는 남은 시간이 쿼리 타임아웃(org.hibernate.timeout)으로 걸린다.
+ */
+public class DerivedColumnQueryFactory extends JPAQueryFactory {
+
+    private final EntityManager entityManager;
+    private final boolean readOnly;
+
+    public DerivedColumnQueryFactory(EntityManager entityManager) {
+        this(entityManager, false);
+    }
+
+    private DerivedColumnQueryFactory(EntityManager entityManager, boolean readOnly) {
+        super(entityManager);
+        this.entityManager = entityManager;
+        this.readOnly = readOnly;
+    }
+
+    public DerivedColumnQueryFactory readOnly() {
+        return readOnly ? this : new DerivedColumnQueryFactory(entityManager, true);
+    }
+
+    @Override
+    public JPAQuery<?> query() {
+        JPAQuery<?> query = new DerivedColumnQuery<Void>(entityManager, JPAProvider.getTemplates(entityManager));
+        return readOnly ? ReadOnlyQueryHints.apply(query) : query;
+    }
+
+    static class DerivedColumnQuery<T> extends JPAQuery<T> {
+
+        DerivedColumnQuery(EntityManager em, JPQLTemplates templates) {
+            super(em, templates);
+        }
+
+        DerivedColumnQuery(EntityManager em, JPQLTemplates templates, QueryMetadata metadata) {
+            super(em, templates, metadata);
+        }
+
+        @Override
+        protected JPQLSerializer createSerializer() {
+            return new DerivedColumnSerializer(getTemplates(), entityManager);
+        }
+
+        /**
+         * JFR 녹화 중이면 JPQL 생성 시간과 조건 모양을 기록한다. (QueryRecorder)
+         */
+        @Override
+        protected Query createQuery(QueryModifiers modifiers, boolean forCount) {
+            Query query = recordedQuery(modifiers, forCount);
+            //시간 예산(QueryDeadline) 안이면 남은 시간을 쿼리 타임아웃으로 건다.
+            Integer timeout = QueryDeadline.remainingSeconds();
+            if (timeout != null) {
+                query.setHint(QueryHints.HINT_TIMEOUT, timeout);
+            }
+            return query;
+        }
+
+        private Query recordedQuery(QueryModifiers modifiers, boolean forCount) {
+            if (!QueryRecorder.isRecording()) {
+                return super.createQuery(modifiers, forCount);
+            }
+            long start = System.nanoTime();
+            Query query = super.createQuery(modifiers, forCount);
+            QueryRecorder.jpqlBuilt(System.nanoTime() - start, this::predicateShape);
+            return query;
+        }
+
+        private String predicateShape() {
+            Predicate where = getMetadata().getWhere();
+            if (where == null) {
+                return "";
+            }
+            JPQLSerializer serializer = createSerializer();
+            serializer.handle(where);
+            return serializer.toString();
+        }
+
+        @Override
+        public DerivedColumnQuery<T> clone(EntityManager entityManager, JPQLTemplates templates) {
+            DerivedColumnQuery<T> q = new DerivedColumnQuery<>(entityManager, templates, getMetadata().clone());
+            q.clone(this);
+            return q;
+        }
+    }
+
+    /**
+     * StatelessSession 용 HibernateQuery, JPQL 로 바꿀 때 DerivedColumns 규칙을 적용한다.
+     * select(...) 는 같은 인스턴스를 반환하므로 from, where 를 이어서 작성해도 규칙이 유지된다.
+     */
+    static class DerivedColumnHibernateQuery<T> extends HibernateQuery<T> {
+
+        DerivedColumnHibernateQuery(StatelessSession session) {
+            super(session);
+        }
+
+        @Override
+        protected JPQLSerializer createSerializer() {
+            return new DerivedColumnSerializer(getTemplates(), null);
+        }
+    }
+
+    static class DerivedColumnSerializer extends JPQLSerializer {
+
+        DerivedColumnSerializer(JPQLTemplates templates, EntityManager em) {
+            super(templates, em);
+        }
+
+        @Override
+        protected void visitOperation(Class<?> type, Operator operator, List<? extends Expression<?>> args) {
+            if (DerivedColumns.isCandidate(operator)) {
+                Expression<?> replacement = DerivedColumns.replacement(
+                        ExpressionUtils.operation(type, operator, args.toArray(new Expression<?>[0])));
+                if (replacement != null) {
+                    handle(replacement);
+                    return;
+                }
+            }
+            super.visitOperation(type, operator, args);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.types.Constant;
+import com.querydsl.core.types.ConstantImpl;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Operator;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.PathMetadata;
+import com.querydsl.core.types.dsl.CaseBuilder;
+import com.querydsl.core.types.dsl.NumberExpression;
+import study.querydsl.entitiy.AgeBucket;
+import study.querydsl.entitiy.Member;
+import study.querydsl.entitiy.QMember;
+
+import java.util.Locale;
+
+/**
+ * Member 의 계산 컬럼(username_lower, age_bucket)과 같은 의미의 Querydsl 식을 계산 컬럼으로 바꾼다.
+ * <p>
+ * lower(username) = ?, 나이 구간 case 식으로 조회/정렬하면 컬럼에 함수를 적용하므로 인덱스를 탈 수 없다.
+ * 같은 값을 미리 저장해 둔 컬럼으로 바꾸면 인덱스로 조회/정렬할 수 있다.
+ *
+ * member.username.lower()                -> member.usernameLower
+ * member.username.equalsIgnoreCase(x)    -> member.usernameLower = lower(x)
+ * member.username.startsWithIgnoreCase(x) -> member.usernameLower like lower(x)%
+ * ageBucket(member)                      -> member.ageBucket
+ *
+ * 별칭이 다른 QMember(new QMember("m"))도 바꾼다.
+ */
+public final class DerivedColumns {
+
+    private DerivedColumns() {
+    }
+
+    /**
+     * age_bucket 컬럼과 같은 식, 컬럼 정의(Member.ageBucket)와 같은 상수(AgeBucket)로 만든다.
+     */
+    public static NumberExpression<Integer> ageBucket(QMember member) {
+        return new CaseBuilder()
+                .when(member.age.between(AgeBucket.YOUNG_FROM, AgeBucket.YOUNG_TO)).then(AgeBucket.YOUNG)
+                .when(member.age.between(AgeBucket.ADULT_FROM, AgeBucket.ADULT_TO)).then(AgeBucket.ADULT)
+                .otherwise(AgeBucket.OTHER);
+    }
+
+    public static boolean isCandidate(Operator operator) {
+        return operator == Ops.LOWER || operator == Ops.EQ_IGNORE_CASE
+                || operator == Ops.STARTS_WITH_IC || operator == Ops.CASE;
+    }
+
+    /**
+     * @return 바꿀 식, 해당 없으면 null
+     */
+    public static Expression<?> replacement(Operation<?> operation) {
+        if (operation.getOperator() == Ops.LOWER) {
+            QMember member = memberOf(operation.getArg(0), "username");
+            return member == null ? null : member.usernameLower;
+        }
+        if (operation.getOperator() == Ops.EQ_IGNORE_CASE) {
+            QMember member = memberOf(operation.getArg(0), "username");
+            return member == null ? null : member.usernameLower.eq(lower(operation.getArg(1)));
+        }
+        if (operation.getOperator() == Ops.STARTS_WITH_IC) {
+            QMember member = memberOf(operation.getArg(0), "username");
+            return member == null ? null : member.usernameLower.startsWith(lower(operation.getArg(1)));
+        }
+        if (operation.getOperator() == Ops.CASE) {
+            QMember member = findMember(operation, "age");
+            return member != null && ageBucket(member).equals(operation) ? member.ageBucket : null;
+        }
+        return null;
+    }
+
+    private static Expression<String> lower(Expression<?> expression) {
+        if (expression instanceof Constant && ((Constant<?>) expression).getConstant() instanceof String) {
+            return ConstantImpl.create(((String) ((Constant<?>) expression).getConstant()).toLowerCase(Locale.ROOT));
+        }
+        return ExpressionUtils.operation(String.class, Ops.LOWER, expression);
+    }
+
+    /**
+     * expression 이 Member 의 property 속성이면 그 Member 경로
+     */
+    private static QMember memberOf(Expression<?> expression, String property) {
+        if (!(expression instanceof Path)) {
+            return null;
+        }
+        PathMetadata metadata = ((Path<?>) expression).getMetadata();
+        Path<?> parent = metadata.getParent();
+        if (parent == null || parent.getType() != Member.class || !property.equals(metadata.getName())) {
+            return null;
+        }
+        return new QMember(parent.getMetadata());
+    }
+
+    private static QMember findMember(Expression<?> expression, String property) {
+        QMember member = memberOf(expression, property);
+        if (member != null || !(expression instanceof Operation)) {
+            return member;
+        }
+        for (Expression<?> arg : ((Operation<?>) expression).getArgs()) {
+            member = findMember(arg, property);
+            if (member != null) {
+                return member;
+            }
+        }
+        return null;
+    }
+}
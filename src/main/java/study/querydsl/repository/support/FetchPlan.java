@@ -0,0 +1,305 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.graph.Graph;
+import org.hibernate.graph.RootGraph;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.util.ReflectionUtils;
+
+import javax.persistence.AttributeNode;
+import javax.persistence.EntityManager;
+import javax.persistence.Subgraph;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.PluralAttribute;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 엔티티 조회 결과와 함께 로딩할 연관관계 (fetch("team"), fetch("team.members"), FetchPlan.graph("Member.team"))
+ * <p>
+ * 연관관계 종류와 페이징 여부에 따라 로딩 방법을 고른다.
+ * - to-one: 조회 쿼리에 fetch join 한다. (javax.persistence.loadgraph 힌트)
+ *   조회 쿼리에 같은 연관관계의 조인(leftJoin(member.team, team))이 있으면 그 조인을 fetch join 으로 바꾼다.
+ * - 컬렉션: 페이징 쿼리에 fetch join 하면 하이버네이트가 전체를 읽어서 메모리에서 페이징하므로(HHH000104)
+ *   조회 결과의 주인 엔티티를 in 조건으로 한번 더 조회하면서 fetch join 한다. (컬렉션 경로마다 쿼리 1번)
+ *   페이징하지 않는 쿼리는 조회 엔티티의 컬렉션 하나까지 fetch join 한다. (bag 을 둘 이상 fetch join 할 수 없다)
+ *   to-one 을 거친 컬렉션(team.members)은 주인 엔티티가 여러 행에 나와서 원소가 중복되므로 항상 따로 조회한다.
+ *
+ * 힌트는 복사한 조회 쿼리에만 걸기 때문에 같은 쿼리로 만드는 count 쿼리에는 fetch join 이 없다.
+ * 연관관계가 아닌 속성이나 없는 속성은 IllegalArgumentException
+ */
+public final class FetchPlan {
+
+    private static final FetchPlan NONE = new FetchPlan(Collections.emptyList(), null);
+    private static final int BATCH_SIZE = 500;
+
+    private final List<String> attributePaths;
+    private final String entityGraph;
+
+    private FetchPlan(List<String> attributePaths, String entityGraph) {
+        this.attributePaths = attributePaths;
+        this.entityGraph = entityGraph;
+    }
+
+    public static FetchPlan none() {
+        return NONE;
+    }
+
+    /**
+     * @param attributePaths 조회 엔티티 기준 연관관계 경로 e.g) "team", "team.members"
+     */
+    public static FetchPlan of(String... attributePaths) {
+        return attributePaths.length == 0 ? NONE : new FetchPlan(Arrays.asList(attributePaths.clone()), null);
+    }
+
+    /**
+     * @NamedEntityGraph 이름, 그래프의 속성도 경로와 같은 규칙으로 로딩한다.
+     */
+    public static FetchPlan graph(String entityGraphName) {
+        return new FetchPlan(Collections.emptyList(), entityGraphName);
+    }
+
+    public boolean isEmpty() {
+        return attributePaths.isEmpty() && entityGraph == null;
+    }
+
+    /**
+     * @param query    rootType 엔티티를 조회하는 쿼리, offset/limit 이 있으면 페이징 쿼리로 본다.
+     * @param factory  컬렉션을 따로 조회할 때 사용
+     */
+    <T> List<T> fetch(JPAQuery<T> query, JPAQueryFactory factory, EntityManager em, Class<?> rootType) {
+        if (isEmpty()) {
+            return query.fetch();
+        }
+        Node root = Node.root(em.getMetamodel(), rootType);
+        for (String path : paths(em)) {
+            root.add(path);
+        }
+
+        boolean paged = query.getMetadata().getModifiers().isRestricting();
+        RootGraph<?> graph = em.unwrap(Session.class).createEntityGraph(rootType);
+        Split split = new Split(!paged);
+        split.add(root, graph, Collections.emptyList());
+
+        JPAQuery<T> content = query.clone();
+        if (!split.empty) {
+            content.setHint(QueryHints.HINT_LOADGRAPH, graph);
+        }
+        List<T> result = content.fetch();
+        if (split.collectionJoined) {
+            //컬렉션 fetch join 으로 중복된 행을 제거한다.
+            result = new ArrayList<>(new LinkedHashSet<>(result));
+        }
+        split.loadDeferred(result, factory, em);
+        return result;
+    }
+
+    private List<String> paths(EntityManager em) {
+        if (entityGraph == null) {
+            return attributePaths;
+        }
+        List<String> paths = new ArrayList<>();
+        addPaths(em.getEntityGraph(entityGraph).getAttributeNodes(), "", paths);
+        return paths;
+    }
+
+    private static void addPaths(List<AttributeNode<?>> nodes, String prefix, List<String> paths) {
+        for (AttributeNode<?> node : nodes) {
+            String path = prefix + node.getAttributeName();
+            paths.add(path);
+            for (Subgraph<?> subgraph : node.getSubgraphs().values()) {
+                addPaths(subgraph.getAttributeNodes(), path + ".", paths);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return entityGraph != null ? "FetchPlan[graph=" + entityGraph + "]" : "FetchPlan" + attributePaths;
+    }
+
+    /**
+     * 연관관계 경로를 합친 트리
+     */
+    private static class Node {
+        private final Metamodel metamodel;
+        private final ManagedType<?> type;
+        private final Attribute<?, ?> attribute;
+        private final Map<String, Node> children = new LinkedHashMap<>();
+
+        private Node(Metamodel metamodel, ManagedType<?> type, Attribute<?, ?> attribute) {
+            this.metamodel = metamodel;
+            this.type = type;
+            this.attribute = attribute;
+        }
+
+        static Node root(Metamodel metamodel, Class<?> rootType) {
+            return new Node(metamodel, metamodel.managedType(rootType), null);
+        }
+
+        void add(String path) {
+            Node node = this;
+            for (String name : path.split("\\.")) {
+                node = node.child(name);
+            }
+        }
+
+        private Node child(String name) {
+            return children.computeIfAbsent(name, key -> {
+                Attribute<?, ?> attribute = type.getAttribute(key);
+                if (!attribute.isAssociation()) {
+                    throw new IllegalArgumentException("Not an association: " + type.getJavaType().getSimpleName() + "." + key);
+                }
+                Class<?> target = attribute.isCollection()
+                        ? ((PluralAttribute<?, ?, ?>) attribute).getElementType().getJavaType()
+                        : attribute.getJavaType();
+                return new Node(metamodel, metamodel.managedType(target), attribute);
+            });
+        }
+
+        boolean isCollection() {
+            return attribute.isCollection();
+        }
+
+        String name() {
+            return attribute.getName();
+        }
+    }
+
+    /**
+     * 하나의 쿼리에서 fetch join 할 연관관계(graph)와 나중에 따로 조회할 컬렉션(deferred)
+     */
+    private static class Split {
+        private final boolean joinCollection;
+        private final List<Deferred> deferred = new ArrayList<>();
+        private boolean collectionJoined;
+        private boolean empty = true;
+
+        Split(boolean joinCollection) {
+            this.joinCollection = joinCollection;
+        }
+
+        /**
+         * @param path 조회 엔티티에서 node 까지의 속성
+         */
+        void add(Node node, Graph<?> graph, List<Attribute<?, ?>> path) {
+            for (Node child : node.children.values()) {
+                if (child.isCollection()) {
+                    if (!joinCollection || collectionJoined || !path.isEmpty()) {
+                        deferred.add(new Deferred(path, node.type.getJavaType(), child));
+                        continue;
+                    }
+                    collectionJoined = true;
+                }
+                join(child, graph, path);
+            }
+        }
+
+        void join(Node node, Graph<?> graph, List<Attribute<?, ?>> path) {
+            empty = false;
+            if (node.children.isEmpty()) {
+                graph.addAttributeNode(node.name());
+                return;
+            }
+            List<Attribute<?, ?>> childPath = new ArrayList<>(path);
+            childPath.add(node.attribute);
+            add(node, graph.addSubGraph(node.name()), childPath);
+        }
+
+        void loadDeferred(List<?> result, JPAQueryFactory factory, EntityManager em) {
+            for (Deferred collection : deferred) {
+                collection.load(result, factory, em);
+            }
+        }
+    }
+
+    /**
+     * 조회 결과에서 path 로 찾은 주인 엔티티(ownerType)들의 컬렉션을 in 조건으로 한번에 로딩한다.
+     * 주인 엔티티는 이미 영속성 컨텍스트에 있으므로 같은 인스턴스의 컬렉션이 초기화된다.
+     */
+    private static class Deferred {
+        private final List<Attribute<?, ?>> path;
+        private final Class<?> ownerType;
+        private final Node collection;
+
+        Deferred(List<Attribute<?, ?>> path, Class<?> ownerType, Node collection) {
+            this.path = new ArrayList<>(path);
+            this.ownerType = ownerType;
+            this.collection = collection;
+        }
+
+        @SuppressWarnings("unchecked")
+        void load(List<?> result, JPAQueryFactory factory, EntityManager em) {
+            List<Object> owners = navigate(result, path);
+            PathBuilder<Object> owner = new PathBuilder<>((Class<Object>) ownerType, "owner");
+            for (int from = 0; from < owners.size(); from += BATCH_SIZE) {
+                List<Object> chunk = owners.subList(from, Math.min(owners.size(), from + BATCH_SIZE));
+                RootGraph<?> graph = em.unwrap(Session.class).createEntityGraph(ownerType);
+                //이 컬렉션은 fetch join 하고, 그 아래 컬렉션은 다시 따로 조회한다.
+                Split split = new Split(false);
+                split.join(collection, graph, Collections.emptyList());
+                List<Object> loaded = factory
+                        .selectFrom(owner)
+                        .where(owner.in(chunk))
+                        .setHint(QueryHints.HINT_LOADGRAPH, graph)
+                        .fetch();
+                split.loadDeferred(loaded, factory, em);
+            }
+        }
+    }
+
+    /**
+     * 조회 결과에서 속성을 따라가서 찾은 엔티티 (중복, null 제외, 컬렉션은 원소)
+     */
+    private static List<Object> navigate(Collection<?> roots, List<Attribute<?, ?>> path) {
+        Collection<?> current = roots;
+        for (Attribute<?, ?> attribute : path) {
+            List<Object> next = new ArrayList<>();
+            for (Object entity : current) {
+                Object value = value(Hibernate.unproxy(entity), attribute);
+                if (value instanceof Collection) {
+                    next.addAll((Collection<?>) value);
+                } else if (value != null) {
+                    next.add(value);
+                }
+            }
+            current = next;
+        }
+        Set<Object> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Object> result = new ArrayList<>();
+        for (Object entity : current) {
+            if (entity != null && distinct.add(entity)) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    private static Object value(Object entity, Attribute<?, ?> attribute) {
+        java.lang.reflect.Member member = attribute.getJavaMember();
+        if (member instanceof Field) {
+            Field field = (Field) member;
+            ReflectionUtils.makeAccessible(field);
+            return ReflectionUtils.getField(field, entity);
+        }
+        Method getter = (Method) member;
+        ReflectionUtils.makeAccessible(getter);
+        return ReflectionUtils.invokeMethod(getter, entity);
+    }
+}
@@ -0,0 +1,91 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.NumberExpression;
+import com.querydsl.core.types.dsl.StringExpression;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static study.querydsl.entitiy.QMember.member;
+import static study.querydsl.entitiy.QMemberTeamView.memberTeamView;
+import static study.querydsl.entitiy.QTeam.team;
+
+/**
+ * 회원 검색 조건(MemberSearchCondition)을 Querydsl 조건으로 만든다. (회원명, 팀명 일치, 나이 범위)
+ * <p>
+ * 값이 없는 조건은 null 이므로 where(...) 에 그대로 넘기면 무시된다.
+ * 조회 대상에 따라 같은 조건을 다른 경로로 만든다.
+ * - MEMBER_TEAM: member left join team (JPQL)
+ * - MEMBER_TEAM_VIEW: 조회 모델 (member_team_view)
+ * - of(m.username, t.name, m.age): Querydsl SQL (SMember, STeam)
+ */
+public final class MemberConditions {
+
+    public static final MemberConditions MEMBER_TEAM = of(member.username, team.name, member.age);
+    public static final MemberConditions MEMBER_TEAM_VIEW =
+            of(memberTeamView.username, memberTeamView.teamName, memberTeamView.age);
+
+    /**
+     * 정렬할 수 있는 회원 속성 (PK, idx_member_username, idx_member_age_id)
+     * 리포지토리 정렬과 /members/query 허용 범위(MemberQueryPolicy)가 같이 사용한다.
+     */
+    public static final Set<String> SORTABLE =
+            Collections.unmodifiableSet(new HashSet<>(Arrays.asList("id", "username", "age")));
+
+    private final StringExpression username;
+    private final StringExpression teamName;
+    private final NumberExpression<Integer> age;
+
+    private MemberConditions(StringExpression username, StringExpression teamName, NumberExpression<Integer> age) {
+        this.username = username;
+        this.teamName = teamName;
+        this.age = age;
+    }
+
+    public static MemberConditions of(StringExpression username, StringExpression teamName,
+                                      NumberExpression<Integer> age) {
+        return new MemberConditions(username, teamName, age);
+    }
+
+    /**
+     * where(...) 에 넘길 조건 목록, 값이 없는 조건은 null
+     */
+    public Predicate[] predicates(MemberSearchCondition condition) {
+        return new Predicate[]{
+                usernameEq(condition.getUsername()),
+                teamNameEq(condition.getTeamName()),
+                ageGoe(condition.getAgeGoe()),
+                ageLoe(condition.getAgeLoe())
+        };
+    }
+
+    /**
+     * 모든 조건의 and, 조건이 하나도 없으면 null
+     */
+    public Predicate allOf(MemberSearchCondition condition) {
+        return ExpressionUtils.allOf(predicates(condition));
+    }
+
+    public BooleanExpression usernameEq(String username) {
+        return StringUtils.hasText(username) ? this.username.eq(username) : null;
+    }
+
+    public BooleanExpression teamNameEq(String teamName) {
+        return StringUtils.hasText(teamName) ? this.teamName.eq(teamName) : null;
+    }
+
+    public BooleanExpression ageGoe(Integer ageGoe) {
+        return ageGoe != null ? age.goe(ageGoe) : null;
+    }
+
+    public BooleanExpression ageLoe(Integer ageLoe) {
+        return ageLoe != null ? age.loe(ageLoe) : null;
+    }
+}
@@ -3,17 +3,25 @@ package study.querydsl.repository.support;
 import com.mysema.commons.lang.Assert;
 import com.querydsl.core.types.EntityPath;
 import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.jpa.hibernate.HibernateQuery;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.Session;
+import org.hibernate.StatelessSession;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.jpa.repository.support.JpaEntityInformation;
 import org.springframework.data.jpa.repository.support.JpaEntityInformationSupport;
 import org.springframework.data.jpa.repository.support.Querydsl;
 import org.springframework.data.querydsl.SimpleEntityPathResolver;
 import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
@@ -41,7 +49,9 @@ public abstract class Querydsl4RepositorySupport {
     private final Class domainClass;
     private Querydsl querydsl;
     private EntityManager entityManager;
+    private String idAttribute;
     private JPAQueryFactory queryFactory;
+    private JPAQueryFactory readOnlyQueryFactory;
 
     public Querydsl4RepositorySupport(Class<?> domainClass) {
         Assert.notNull(domainClass, "Domain class must not be null");
@@ -55,7 +65,12 @@ public abstract class Querydsl4RepositorySupport {
         JpaEntityInformation entityInformation = JpaEntityInformationSupport.getEntityInformation(domainClass, entityManager);
         SimpleEntityPathResolver resolver = SimpleEntityPathResolver.INSTANCE;
         EntityPath path = resolver.createPath(entityInformation.getJavaType());
-        this.queryFactory = new JPAQueryFactory(entityManager);
+        this.entityManager = entityManager;
+        this.idAttribute = entityInformation.getIdAttribute().getName();
+        this.querydsl = new Querydsl(entityManager, new PathBuilder<>(path.getType(), path.getMetadata()));
+        DerivedColumnQueryFactory queryFactory = new DerivedColumnQueryFactory(entityManager);
+        this.queryFactory = queryFactory;
+        this.readOnlyQueryFactory = queryFactory.readOnly();
     }
 
     @PostConstruct
@@ -67,6 +82,13 @@ public abstract class Querydsl4RepositorySupport {
     protected JPAQueryFactory getQueryFactory() {
         return queryFactory;
     }
+
+    /**
+     * 읽기 전용 쿼리 팩토리, 조회한 엔티티는 변경 감지하지 않고 쿼리 전에 flush 하지 않는다. (DerivedColumnQueryFactory)
+     */
+    protected JPAQueryFactory getReadOnlyQueryFactory() {
+        return readOnlyQueryFactory;
+    }
     protected Querydsl getQuerydsl() {
         return querydsl;
     }
@@ -81,11 +103,69 @@ public abstract class Querydsl4RepositorySupport {
     protected <T> JPAQuery<T> selectFrom(EntityPath<T> from) {
         return getQueryFactory().selectFrom(from);
     }
+
+    protected <T> JPAQuery<T> selectReadOnly(Expression<T> expr) {
+        return getReadOnlyQueryFactory().select(expr);
+    }
+
+    protected <T> JPAQuery<T> selectFromReadOnly(EntityPath<T> from) {
+        return getReadOnlyQueryFactory().selectFrom(from);
+    }
+
+    /**
+     * StatelessSession 으로 조회 (대량 조회용)
+     * 영속성 컨텍스트, 1차 캐시, 변경 감지가 없어서 조회한 엔티티를 메모리에 붙잡아 두지 않는다.
+     * 현재 EntityManager 의 커넥션으로 조회하므로 같은 트랜잭션 안에서 실행되고,
+     * 트랜잭션 중이면 먼저 flush 해서 아직 반영하지 않은 변경도 보인다.
+     * 다른 쿼리와 같이 DerivedColumns 규칙이 적용된다.
+     * 지연 로딩을 할 수 없으므로 필요한 연관관계는 fetch join 해야 한다.
+     */
+    protected <T> List<T> fetchStateless(Function<HibernateQuery<Void>, HibernateQuery<T>> query) {
+        Session session = getEntityManager().unwrap(Session.class);
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            session.flush();
+        }
+        return session.doReturningWork(connection -> {
+            //전달한 커넥션은 StatelessSession 이 닫지 않는다.
+            StatelessSession statelessSession = session.getSessionFactory().openStatelessSession(connection);
+            try {
+                return query.apply(new DerivedColumnQueryFactory.DerivedColumnHibernateQuery<Void>(statelessSession))
+                        .fetch();
+            } finally {
+                statelessSession.close();
+            }
+        });
+    }
+
+    /**
+     * 함께 로딩할 연관관계 e.g) fetch("team"), fetch("team", "team.members")
+     * to-one 은 fetch join, 페이징 중인 컬렉션은 in 조건으로 따로 조회한다. (FetchPlan)
+     */
+    protected static FetchPlan fetch(String... attributePaths) {
+        return FetchPlan.of(attributePaths);
+    }
+
+    /**
+     * fetch plan 의 연관관계를 함께 로딩해서 쿼리를 실행한다. 쿼리는 도메인 클래스 엔티티를 조회해야 한다.
+     * (fetch(String...) 는 fetch plan 을 만들기만 한다)
+     */
+    protected <T> List<T> fetchWith(JPAQuery<T> query, FetchPlan fetchPlan) {
+        return fetchPlan.fetch(query, getQueryFactory(), getEntityManager(), domainClass);
+    }
+
     protected <T> Page<T> applyPagination(Pageable pageable,
                                           Function<JPAQueryFactory, JPAQuery> contentQuery) {
+        return applyPagination(pageable, FetchPlan.none(), contentQuery);
+    }
+
+    /**
+     * fetch join 은 조회 쿼리에만 적용하고 count 쿼리에는 적용하지 않는다.
+     */
+    protected <T> Page<T> applyPagination(Pageable pageable, FetchPlan fetchPlan,
+                                          Function<JPAQueryFactory, JPAQuery> contentQuery) {
         JPAQuery jpaQuery = contentQuery.apply(getQueryFactory());
-        List<T> content = getQuerydsl().applyPagination(pageable,
-                jpaQuery).fetch();
+        getQuerydsl().applyPagination(pageable, jpaQuery);
+        List<T> content = fetchWith(jpaQuery, fetchPlan);
         return PageableExecutionUtils.getPage(content, pageable,
                 jpaQuery::fetchCount);
     }
@@ -93,11 +173,48 @@ public abstract class Querydsl4RepositorySupport {
     protected <T> Page<T> applyPagination(Pageable pageable,
                                           Function<JPAQueryFactory, JPAQuery> contentQuery, Function<JPAQueryFactory,
             JPAQuery> countQuery) {
+        return applyPagination(pageable, FetchPlan.none(), contentQuery, countQuery);
+    }
+
+    protected <T> Page<T> applyPagination(Pageable pageable, FetchPlan fetchPlan,
+                                          Function<JPAQueryFactory, JPAQuery> contentQuery, Function<JPAQueryFactory,
+            JPAQuery> countQuery) {
         JPAQuery jpaContentQuery = contentQuery.apply(getQueryFactory());
-        List<T> content = getQuerydsl().applyPagination(pageable,
-                jpaContentQuery).fetch();
+        getQuerydsl().applyPagination(pageable, jpaContentQuery);
+        List<T> content = fetchWith(jpaContentQuery, fetchPlan);
         JPAQuery countResult = countQuery.apply(getQueryFactory());
         return PageableExecutionUtils.getPage(content, pageable,
                 countResult::fetchCount);
     }
+
+    /**
+     * count 쿼리 없이 다음 페이지 존재 여부만 확인 (무한 스크롤)
+     * 페이지 사이즈 + 1 건을 조회해서 초과분이 있으면 hasNext = true, 초과분은 결과에서 제거한다.
+     * 페이지를 이어서 조회하므로 정렬에 식별자가 없으면 마지막에 식별자 오름차순을 붙인다.
+     */
+    protected <T> Slice<T> applySlicing(Pageable pageable,
+                                        Function<JPAQueryFactory, JPAQuery> contentQuery) {
+        JPAQuery jpaQuery = contentQuery.apply(getQueryFactory());
+        Sort sort = pageable.getSort();
+        if (sort.getOrderFor(idAttribute) == null) {
+            sort = sort.and(Sort.by(idAttribute));
+        }
+        getQuerydsl().applySorting(sort, jpaQuery);
+        if (pageable.isUnpaged()) {
+            return new SliceImpl<T>(jpaQuery.fetch(), pageable, false);
+        }
+        List<T> content = jpaQuery
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize() + 1)
+                .fetch();
+        return toSlice(content, pageable);
+    }
+
+    protected static <T> Slice<T> toSlice(List<T> content, Pageable pageable) {
+        boolean hasNext = content.size() > pageable.getPageSize();
+        if (hasNext) {
+            content = content.subList(0, pageable.getPageSize());
+        }
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
 }
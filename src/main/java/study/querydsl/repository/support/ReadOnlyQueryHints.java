@@ -0,0 +1,24 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import org.hibernate.FlushMode;
+import org.hibernate.jpa.QueryHints;
+
+/**
+ * 읽기 전용 조회 힌트
+ * <p>
+ * - org.hibernate.readOnly: 조회한 엔티티의 스냅샷을 만들지 않아서 변경 감지(dirty checking) 대상이 아니다.
+ * - org.hibernate.flushMode=MANUAL: 쿼리 전에 영속성 컨텍스트를 flush 하지 않는다.
+ *   같은 트랜잭션에서 아직 flush 하지 않은 변경은 조회 결과에 보이지 않는다.
+ */
+public final class ReadOnlyQueryHints {
+
+    private ReadOnlyQueryHints() {
+    }
+
+    public static <T extends JPAQuery<?>> T apply(T query) {
+        query.setHint(QueryHints.HINT_READONLY, true);
+        query.setHint(QueryHints.HINT_FLUSH_MODE, FlushMode.MANUAL);
+        return query;
+    }
+}
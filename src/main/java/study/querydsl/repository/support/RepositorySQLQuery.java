@@ -0,0 +1,99 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.SubQueryExpression;
+import com.querydsl.jpa.QueryHandler;
+import com.querydsl.jpa.sql.JPASQLQuery;
+import com.querydsl.sql.Configuration;
+import com.querydsl.sql.SQLSerializer;
+import com.querydsl.sql.SQLTemplates;
+import org.hibernate.jpa.QueryHints;
+import study.querydsl.governance.QueryDeadline;
+import study.querydsl.monitor.QueryRecorder;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+/**
+ * 리포지토리에서 네이티브 SQL 로 실행하는 Querydsl SQL 쿼리 (UNION, 윈도우 함수, FROM 절 서브쿼리)
+ * <p>
+ * DerivedColumnQueryFactory 의 쿼리와 같이 QueryDeadline 예산 안이면 남은 시간을 쿼리 타임아웃(org.hibernate.timeout)으로 걸고,
+ * JFR 녹화 중이면 SQL 생성 시간과 조건 모양을 기록한다. (QueryRecorder)
+ * new JPASQLQuery 대신 사용한다.
+ */
+public class RepositorySQLQuery<T> extends JPASQLQuery<T> {
+
+    public RepositorySQLQuery(EntityManager em, SQLTemplates templates) {
+        super(em, templates);
+    }
+
+    private RepositorySQLQuery(EntityManager em, Configuration configuration, QueryHandler queryHandler,
+                               QueryMetadata metadata) {
+        super(em, configuration, queryHandler, metadata);
+    }
+
+    @Override
+    public Query createQuery() {
+        //시간 예산(QueryDeadline) 안이면 남은 시간을 쿼리 타임아웃으로 건다.
+        Integer timeout = QueryDeadline.remainingSeconds();
+        if (timeout != null) {
+            setHint(QueryHints.HINT_TIMEOUT, timeout);
+        }
+        if (!QueryRecorder.isRecording()) {
+            return super.createQuery();
+        }
+        long start = System.nanoTime();
+        Query query = super.createQuery();
+        QueryRecorder.jpqlBuilt(System.nanoTime() - start, this::predicateShape);
+        return query;
+    }
+
+    /**
+     * 바깥 쿼리에 조건이 없으면 UNION 의 첫 쿼리, FROM 절 서브쿼리의 조건
+     */
+    private String predicateShape() {
+        Predicate where = getMetadata().getWhere();
+        if (where == null && firstUnionSubQuery != null) {
+            where = firstUnionSubQuery.getMetadata().getWhere();
+        }
+        if (where == null) {
+            where = subQueryWhere(getMetadata());
+        }
+        if (where == null) {
+            return "";
+        }
+        SQLSerializer serializer = createSerializer();
+        serializer.handle(where);
+        return serializer.toString();
+    }
+
+    private static Predicate subQueryWhere(QueryMetadata metadata) {
+        for (JoinExpression join : metadata.getJoins()) {
+            Expression<?> target = join.getTarget();
+            if (target instanceof Operation && ((Operation<?>) target).getOperator() == Ops.ALIAS) {
+                target = ((Operation<?>) target).getArg(0); //from(서브쿼리, 별칭)
+            }
+            if (target instanceof SubQueryExpression) {
+                QueryMetadata subQuery = ((SubQueryExpression<?>) target).getMetadata();
+                Predicate where = subQuery.getWhere() != null ? subQuery.getWhere() : subQueryWhere(subQuery);
+                if (where != null) {
+                    return where;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public RepositorySQLQuery<T> clone(EntityManager entityManager) {
+        RepositorySQLQuery<T> q = new RepositorySQLQuery<>(entityManager, configuration, queryHandler,
+                getMetadata().clone());
+        q.clone(this);
+        return q;
+    }
+}
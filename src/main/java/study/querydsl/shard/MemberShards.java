@@ -0,0 +1,140 @@
+package study.querydsl.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.orm.jpa.EntityManagerFactoryBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import study.querydsl.entitiy.Member;
+
+import javax.persistence.EntityManagerFactory;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 회원 샤드 (shard.count 를 설정했을 때만 사용)
+ * <p>
+ * 샤드마다 별도의 DataSource, EntityManagerFactory 를 가진다. 메인 DataSource/EntityManagerFactory 자동 설정을
+ * 방해하지 않도록 빈으로 등록하지 않고 이 클래스 안에서만 관리한다.
+ *
+ * 샤드 키는 팀 이름이다. 같은 팀의 회원은 같은 샤드에 저장되고, 팀이 없는 회원은 회원 이름으로 샤드를 정한다.
+ * 식별자는 샤드마다 ID_STRIDE 간격의 구간을 사용하기 때문에 전체 샤드에서 유일하고, 식별자만으로 샤드를 알 수 있다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "shard.count")
+public class MemberShards implements DisposableBean {
+
+    static final long ID_STRIDE = 1L << 40;
+
+    private final List<HikariDataSource> dataSources = new ArrayList<>();
+    private final List<EntityManagerFactory> entityManagerFactories = new ArrayList<>();
+    private final ExecutorService executor;
+
+    public MemberShards(EntityManagerFactoryBuilder builder,
+                        @Value("${shard.count}") int count,
+                        @Value("${shard.url-template:jdbc:h2:mem:member-shard-{0}}") String urlTemplate,
+                        @Value("${shard.pool-size:5}") int poolSize) {
+        if (count < 1) {
+            throw new IllegalArgumentException("shard.count must be positive: " + count);
+        }
+
+        for (int i = 0; i < count; i++) {
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(MessageFormat.format(urlTemplate, i))
+                    .username("sa")
+                    .password("")
+                    .build();
+            dataSource.setPoolName("member-shard-" + i);
+            dataSource.setMaximumPoolSize(poolSize);
+            dataSources.add(dataSource);
+            entityManagerFactories.add(createEntityManagerFactory(builder, dataSource, i));
+            restartIdentities(dataSource, i);
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(count * poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "member-shard-query-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("{} member shards initialized", count);
+    }
+
+    public int count() {
+        return entityManagerFactories.size();
+    }
+
+    public EntityManagerFactory entityManagerFactory(int shard) {
+        return entityManagerFactories.get(shard);
+    }
+
+    public ExecutorService executor() {
+        return executor;
+    }
+
+    public int shardForTeam(String teamName) {
+        return Math.floorMod(teamName.hashCode(), count());
+    }
+
+    public int shardForMember(String teamName, String username) {
+        if (StringUtils.hasText(teamName)) {
+            return shardForTeam(teamName);
+        }
+        return Math.floorMod(username != null ? username.hashCode() : 0, count());
+    }
+
+    public int shardForId(long id) {
+        return (int) ((id - 1) / ID_STRIDE);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+        entityManagerFactories.forEach(EntityManagerFactory::close);
+        dataSources.forEach(HikariDataSource::close);
+    }
+
+    private EntityManagerFactory createEntityManagerFactory(EntityManagerFactoryBuilder builder,
+                                                           HikariDataSource dataSource, int shard) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(AvailableSettings.HBM2DDL_AUTO, "create");
+        properties.put(AvailableSettings.PHYSICAL_NAMING_STRATEGY,
+                "org.springframework.boot.orm.jpa.hibernate.SpringPhysicalNamingStrategy");
+        properties.put(AvailableSettings.IMPLICIT_NAMING_STRATEGY,
+                "org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy");
+
+        LocalContainerEntityManagerFactoryBean factoryBean = builder
+                .dataSource(dataSource)
+                .packages(Member.class)
+                .persistenceUnit("member-shard-" + shard)
+                .properties(properties)
+                .build();
+        factoryBean.afterPropertiesSet();
+        return factoryBean.getObject();
+    }
+
+    /**
+     * 샤드 i 의 식별자는 i * ID_STRIDE + 1 부터 시작한다.
+     */
+    private void restartIdentities(HikariDataSource dataSource, int shard) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        long start = shard * ID_STRIDE + 1;
+        jdbcTemplate.execute("alter table member alter column id restart with " + start);
+        jdbcTemplate.execute("alter table team alter column id restart with " + start);
+    }
+}
@@ -0,0 +1,305 @@
+package study.querydsl.shard;
+
+import com.querydsl.core.types.Order;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.dsl.ComparableExpressionBase;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.entitiy.Member;
+import study.querydsl.entitiy.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static study.querydsl.entitiy.QMember.member;
+import static study.querydsl.entitiy.QTeam.team;
+import static study.querydsl.repository.support.MemberConditions.MEMBER_TEAM;
+
+/**
+ * 샤드에 나눠 저장된 회원 검색 (scatter-gather)
+ * <p>
+ * 대상 샤드 모두에 같은 쿼리를 병렬로 실행하고, 정렬된 부분 결과를 k-way merge 로 합친다.
+ * 페이징은 샤드마다 offset + size 건을 정렬해서 가져온 뒤 합친 결과에서 offset 만큼 건너뛰고,
+ * 전체 카운트는 샤드별 카운트의 합이다.
+ * 팀 이름 조건이 있으면 그 팀이 저장된 샤드 하나에서만 실행한다.
+ * shard.count 를 설정하면 MemberRepository 의 search, searchPageComplex 가 이 리포지토리로 조회한다.
+ */
+@Repository
+@ConditionalOnProperty(name = "shard.count")
+public class ShardedMemberRepository {
+
+    private final MemberShards shards;
+
+    public ShardedMemberRepository(MemberShards shards) {
+        this.shards = shards;
+    }
+
+    public Team saveTeam(String name) {
+        return inTransaction(shards.shardForTeam(name), em -> {
+            Team team = new Team(name);
+            em.persist(team);
+            return team;
+        });
+    }
+
+    public Member saveMember(String username, int age, Team team) {
+        int shard = shards.shardForMember(team != null ? team.getName() : null, username);
+        return inTransaction(shard, em -> {
+            //다른 샤드의 팀을 참조하지 않도록 팀은 항상 같은 샤드에 있다.
+            Member member = new Member(username, age);
+            if (team != null) {
+                member.setTeam(em.getReference(Team.class, team.getId()));
+            }
+            em.persist(member);
+            return member;
+        });
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        List<List<MemberTeamDto>> partials = scatter(targetShards(condition),
+                em -> contentQuery(em, condition, Sort.unsorted()).fetch());
+        return SortedMerge.merge(partials, comparator(Sort.unsorted()), 0, Integer.MAX_VALUE);
+    }
+
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        List<Integer> targets = targetShards(condition);
+        Sort sort = pageable.getSort();
+        long fetchSize = pageable.getOffset() + pageable.getPageSize();
+
+        List<List<MemberTeamDto>> partials = scatter(targets,
+                em -> contentQuery(em, condition, sort)
+                        .limit(fetchSize)
+                        .fetch());
+        List<MemberTeamDto> content = SortedMerge.merge(partials, comparator(sort),
+                pageable.getOffset(), pageable.getPageSize());
+
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> scatter(targets, em -> countQuery(em, condition).fetchOne())
+                        .stream()
+                        .mapToLong(count -> count != null ? count : 0)
+                        .sum());
+    }
+
+    /**
+     * 조건을 실행할 샤드 목록
+     */
+    public List<Integer> targetShards(MemberSearchCondition condition) {
+        if (StringUtils.hasText(condition.getTeamName())) {
+            return Collections.singletonList(shards.shardForTeam(condition.getTeamName()));
+        }
+        return IntStream.range(0, shards.count()).boxed().collect(Collectors.toList());
+    }
+
+    /**
+     * 대상 샤드에 병렬로 실행한다.
+     * 한 샤드라도 실패하면 나머지 샤드의 실행 중인 SQL 을 Statement.cancel 로 취소하고 처음 실패한 예외를 던진다.
+     * (CompletableFuture.cancel 은 실행 중인 작업을 인터럽트하지 않는다.)
+     */
+    <T> List<T> scatter(List<Integer> targets, Function<EntityManager, T> query) {
+        List<ShardQuery<T>> queries = new ArrayList<>(targets.size());
+        for (Integer shard : targets) {
+            queries.add(new ShardQuery<>(shard, query));
+        }
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (ShardQuery<T> shardQuery : queries) {
+            shardQuery.future.whenComplete((result, e) -> {
+                if (e != null && failure.compareAndSet(null, e instanceof CompletionException ? e.getCause() : e)) {
+                    queries.forEach(ShardQuery::cancel);
+                }
+            });
+        }
+        try {
+            return queries.stream()
+                    .map(shardQuery -> shardQuery.future.join())
+                    .collect(Collectors.toList());
+        } catch (CompletionException | CancellationException e) {
+            Throwable cause = failure.get() != null ? failure.get() : e;
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new CompletionException(cause);
+        }
+    }
+
+    /**
+     * 샤드 하나에서 실행 중인 쿼리
+     * <p>
+     * 취소되면 실행 중인 SQL 은 Session.cancelQuery(Statement.cancel)로 멈추고,
+     * 아직 실행하지 않은 SQL 은 StatementInspector 에서 준비 단계에 막는다.
+     */
+    private class ShardQuery<T> {
+        private final CompletableFuture<T> future;
+        private boolean cancelled;
+        private Session session;
+
+        ShardQuery(int shard, Function<EntityManager, T> work) {
+            this.future = CompletableFuture.supplyAsync(() -> run(shard, work), shards.executor());
+        }
+
+        private T run(int shard, Function<EntityManager, T> work) {
+            Session opened = shards.entityManagerFactory(shard).unwrap(SessionFactory.class)
+                    .withOptions()
+                    .statementInspector(sql -> {
+                        if (isCancelled()) {
+                            throw new CancellationException("Shard " + shard + " query cancelled");
+                        }
+                        return sql;
+                    })
+                    .openSession();
+            synchronized (this) {
+                session = opened;
+            }
+            try {
+                return work.apply(opened);
+            } finally {
+                synchronized (this) {
+                    session = null;
+                }
+                opened.close();
+            }
+        }
+
+        private synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        synchronized void cancel() {
+            if (cancelled || future.isDone()) {
+                return;
+            }
+            cancelled = true;
+            //아직 시작하지 않은 작업은 실행되지 않는다.
+            future.cancel(false);
+            if (session != null) {
+                session.cancelQuery();
+            }
+        }
+    }
+
+    private <T> T inTransaction(int shard, Function<EntityManager, T> work) {
+        EntityManagerFactory emf = shards.entityManagerFactory(shard);
+        EntityManager em = emf.createEntityManager();
+        EntityTransaction tx = em.getTransaction();
+        try {
+            tx.begin();
+            T result = work.apply(em);
+            tx.commit();
+            return result;
+        } catch (RuntimeException e) {
+            if (tx.isActive()) {
+                tx.rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+
+    private JPAQuery<MemberTeamDto> contentQuery(EntityManager em, MemberSearchCondition condition, Sort sort) {
+        return new JPAQueryFactory(em)
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")
+                ))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(MEMBER_TEAM.predicates(condition))
+                .orderBy(orderSpecifiers(sort));
+    }
+
+    private JPAQuery<Long> countQuery(EntityManager em, MemberSearchCondition condition) {
+        JPAQuery<Long> query = new JPAQueryFactory(em)
+                .select(member.count())
+                .from(member);
+        if (StringUtils.hasText(condition.getTeamName())) {
+            query.leftJoin(member.team, team);
+        }
+        return query.where(MEMBER_TEAM.predicates(condition));
+    }
+
+    /**
+     * 샤드 쿼리의 정렬과 병합 비교자는 반드시 같아야 한다.
+     * null 은 항상 마지막, 마지막에 회원 id 로 순서를 확정한다.
+     */
+    private OrderSpecifier<?>[] orderSpecifiers(Sort sort) {
+        List<OrderSpecifier<?>> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            ComparableExpressionBase<?> path = sortPath(order.getProperty());
+            OrderSpecifier<?> specifier = order.isAscending() ? path.asc() : path.desc();
+            orders.add(specifier.nullsLast());
+        }
+        orders.add(new OrderSpecifier<>(Order.ASC, member.id));
+        return orders.toArray(new OrderSpecifier[0]);
+    }
+
+    private Comparator<MemberTeamDto> comparator(Sort sort) {
+        Comparator<MemberTeamDto> comparator = (a, b) -> 0;
+        for (Sort.Order order : sort) {
+            Comparator<Comparable<Object>> values = order.isAscending()
+                    ? Comparator.naturalOrder()
+                    : Comparator.reverseOrder();
+            Function<MemberTeamDto, Comparable<Object>> extractor = sortValue(order.getProperty());
+            comparator = comparator.thenComparing(extractor, Comparator.nullsLast(values));
+        }
+        return comparator.thenComparing(MemberTeamDto::getMemberId);
+    }
+
+    private ComparableExpressionBase<?> sortPath(String property) {
+        switch (property) {
+            case "memberId":
+                return member.id;
+            case "username":
+                return member.username;
+            case "age":
+                return member.age;
+            case "teamId":
+                return team.id;
+            case "teamName":
+                return team.name;
+            default:
+                throw new IllegalArgumentException("Unsupported sort property: " + property);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Function<MemberTeamDto, Comparable<Object>> sortValue(String property) {
+        switch (property) {
+            case "memberId":
+                return dto -> (Comparable<Object>) (Comparable<?>) dto.getMemberId();
+            case "username":
+                return dto -> (Comparable<Object>) (Comparable<?>) dto.getUsername();
+            case "age":
+                return dto -> (Comparable<Object>) (Comparable<?>) dto.getAge();
+            case "teamId":
+                return dto -> (Comparable<Object>) (Comparable<?>) dto.getTeamId();
+            case "teamName":
+                return dto -> (Comparable<Object>) (Comparable<?>) dto.getTeamName();
+            default:
+                throw new IllegalArgumentException("Unsupported sort property: " + property);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package study.querydsl.shard;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 정렬된 목록 k개를 하나의 정렬된 목록으로 합친다. (k-way merge)
+ */
+final class SortedMerge {
+
+    private SortedMerge() {
+    }
+
+    /**
+     * @param skip  앞에서 건너뛸 개수 (offset)
+     * @param limit 최대 개수
+     */
+    static <T> List<T> merge(List<List<T>> sortedLists, Comparator<? super T> comparator, long skip, int limit) {
+        PriorityQueue<Cursor<T>> queue = new PriorityQueue<>(Math.max(1, sortedLists.size()),
+                (a, b) -> comparator.compare(a.head, b.head));
+        for (List<T> list : sortedLists) {
+            Iterator<T> iterator = list.iterator();
+            if (iterator.hasNext()) {
+                queue.add(new Cursor<>(iterator));
+            }
+        }
+
+        List<T> result = new ArrayList<>(Math.min(limit, 1024));
+        long skipped = 0;
+        while (!queue.isEmpty() && result.size() < limit) {
+            Cursor<T> cursor = queue.poll();
+            if (skipped < skip) {
+                skipped++;
+            } else {
+                result.add(cursor.head);
+            }
+            if (cursor.advance()) {
+                queue.add(cursor);
+            }
+        }
+        return result;
+    }
+
+    private static class Cursor<T> {
+        private final Iterator<T> iterator;
+        private T head;
+
+        Cursor(Iterator<T> iterator) {
+            this.iterator = iterator;
+            this.head = iterator.next();
+        }
+
+        boolean advance() {
+            if (!iterator.hasNext()) {
+                return false;
+            }
+            head = iterator.next();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package study.querydsl.snapshot;
+
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import study.querydsl.cache.DataVersion;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static study.querydsl.entitiy.QMember.member;
+import static study.querydsl.entitiy.QTeam.team;
+import static study.querydsl.repository.support.MemberConditions.MEMBER_TEAM;
+
+/**
+ * 회원 + 팀 메모리 스냅샷 (읽기 위주의 대시보드용)
+ * <p>
+ * 회원 전체를 MemberTeamDto 목록으로 한번 읽어두고, 검색은 DB 대신 메모리에서 처리한다.
+ * 검색 조건은 MemberRepositoryImpl 과 같은 Querydsl Predicate(MemberConditions)로 만들고 MemberTeamEvaluator 로 평가한다.
+ *
+ * 스냅샷은 변경하지 않는다. 새로 읽은 스냅샷으로 통째로 바꾼다. (copy-on-write)
+ * 검색 중에 스냅샷이 바뀌어도 검색은 시작할 때의 스냅샷으로 끝난다.
+ *
+ * 데이터가 바뀌면(DataVersion) snapshot.refresh-interval-ms 마다 다시 읽는다.
+ * 데이터가 바뀐 뒤 snapshot.max-staleness-ms 가 지나도록 다시 읽지 못했다면 검색하는 쪽에서 바로 다시 읽는다.
+ * 처음 사용할 때 읽으므로 사용하지 않으면 메모리를 차지하지 않는다.
+ */
+@Slf4j
+@Component
+public class MemberSnapshot {
+
+    private final JPAQueryFactory queryFactory;
+    private final DataVersion dataVersion;
+    private final long maxStalenessNanos;
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+
+    public MemberSnapshot(JPAQueryFactory queryFactory, DataVersion dataVersion,
+                          @Value("${snapshot.max-staleness-ms:10000}") long maxStalenessMs) {
+        this.queryFactory = queryFactory;
+        this.dataVersion = dataVersion;
+        this.maxStalenessNanos = TimeUnit.MILLISECONDS.toNanos(maxStalenessMs);
+    }
+
+    /**
+     * MemberRepositoryCustom.search 와 같은 조건, 결과는 회원 id 순서
+     */
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        return search(MEMBER_TEAM.allOf(condition), Collections.emptyList());
+    }
+
+    public List<MemberTeamDto> search(Predicate predicate, List<OrderSpecifier<?>> orders) {
+        java.util.function.Predicate<MemberTeamDto> filter = MemberTeamEvaluator.compile(predicate);
+        Snapshot snapshot = snapshot();
+
+        List<MemberTeamDto> result = new ArrayList<>();
+        for (MemberTeamDto row : snapshot.rows) {
+            if (filter.test(row)) {
+                //스냅샷의 행은 공유하므로 복사해서 돌려준다.
+                result.add(new MemberTeamDto(row.getMemberId(), row.getUsername(), row.getAge(),
+                        row.getTeamId(), row.getTeamName()));
+            }
+        }
+        if (!orders.isEmpty()) {
+            Comparator<MemberTeamDto> comparator = MemberTeamEvaluator.compile(orders);
+            result.sort(comparator);
+        }
+        return result;
+    }
+
+    /**
+     * 현재 스냅샷이 만들어진 시점의 데이터 버전 (ETag 용)
+     */
+    public long version() {
+        return snapshot().version;
+    }
+
+    @Scheduled(fixedDelayString = "${snapshot.refresh-interval-ms:5000}")
+    public void refreshIfChanged() {
+        Snapshot snapshot = current.get();
+        if (snapshot != null && snapshot.version != dataVersion.current()) {
+            refresh(snapshot);
+        }
+    }
+
+    private Snapshot snapshot() {
+        Snapshot snapshot = current.get();
+        if (snapshot == null) {
+            return refresh(null);
+        }
+        if (snapshot.version != dataVersion.current()) {
+            long changedAt = snapshot.markOutdated();
+            if (System.nanoTime() - changedAt >= maxStalenessNanos) {
+                return refresh(snapshot);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * 동시에 여러 요청이 다시 읽지 않도록 한번에 한 스레드만 읽는다.
+     * 기다리는 동안 다른 스레드가 이미 바꿨다면 그 스냅샷을 사용한다.
+     */
+    private synchronized Snapshot refresh(Snapshot expected) {
+        Snapshot snapshot = current.get();
+        if (snapshot != expected && snapshot != null) {
+            return snapshot;
+        }
+
+        //읽기 전의 버전을 기록해서, 읽는 도중 바뀐 데이터는 다음에 다시 읽는다.
+        long version = dataVersion.current();
+        long start = System.nanoTime();
+        List<MemberTeamDto> rows = queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")
+                ))
+                .from(member)
+                .leftJoin(member.team, team)
+                .orderBy(member.id.asc())
+                .fetch();
+
+        Snapshot refreshed = new Snapshot(Collections.unmodifiableList(rows), version);
+        current.set(refreshed);
+        log.debug("Member snapshot v{} loaded: {} rows in {} ms", version, rows.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return refreshed;
+    }
+
+    private static class Snapshot {
+        private final List<MemberTeamDto> rows;
+        private final long version;
+        private volatile long outdatedAt; //데이터가 바뀐 것을 처음 발견한 시각, 0이면 아직 최신
+
+        Snapshot(List<MemberTeamDto> rows, long version) {
+            this.rows = rows;
+            this.version = version;
+        }
+
+        long markOutdated() {
+            if (outdatedAt == 0) {
+                outdatedAt = System.nanoTime();
+            }
+            return outdatedAt;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package study.querydsl.snapshot;
+
+import com.querydsl.core.types.Constant;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Operator;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.PathMetadata;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entitiy.Member;
+import study.querydsl.entitiy.Team;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Querydsl Predicate, OrderSpecifier 를 MemberTeamDto 에 대한 자바 Predicate, Comparator 로 컴파일한다.
+ * <p>
+ * 식 트리는 컴파일할 때 한번만 해석하고, 행마다 평가할 때는 만들어 둔 람다만 실행한다.
+ * 사용할 수 있는 속성은 MemberTeamDto 에 있는 값(member.id, username, age, team.id, team.name)이고
+ * member.team.name 처럼 연관관계를 거친 경로도 된다.
+ * 비교 연산은 SQL 처럼 null 이 있으면 false 이다.
+ * 지원하지 않는 속성이나 연산자는 IllegalArgumentException
+ */
+public final class MemberTeamEvaluator {
+
+    private MemberTeamEvaluator() {
+    }
+
+    public static Predicate<MemberTeamDto> compile(com.querydsl.core.types.Predicate predicate) {
+        Expression<?> expression = predicate == null ? null : ExpressionUtils.extract(predicate);
+        if (expression == null) {
+            return row -> true;
+        }
+        return condition(expression);
+    }
+
+    /**
+     * null 정렬은 H2 기본값과 같다. (오름차순이면 null 이 먼저, 내림차순이면 나중)
+     */
+    public static Comparator<MemberTeamDto> compile(List<OrderSpecifier<?>> orders) {
+        Comparator<MemberTeamDto> comparator = (a, b) -> 0;
+        for (OrderSpecifier<?> order : orders) {
+            Function<MemberTeamDto, Object> value = value(order.getTarget());
+            boolean nullsFirst = order.getNullHandling() == OrderSpecifier.NullHandling.NullsFirst
+                    || order.getNullHandling() == OrderSpecifier.NullHandling.Default && order.isAscending();
+            Comparator<Object> valueComparator = order.isAscending()
+                    ? MemberTeamEvaluator::compare : (a, b) -> compare(b, a);
+            valueComparator = nullsFirst
+                    ? Comparator.nullsFirst(valueComparator) : Comparator.nullsLast(valueComparator);
+            comparator = comparator.thenComparing(value, valueComparator);
+        }
+        return comparator;
+    }
+
+    private static Predicate<MemberTeamDto> condition(Expression<?> expression) {
+        if (!(expression instanceof Operation)) {
+            throw new IllegalArgumentException("Unsupported predicate: " + expression);
+        }
+        Operation<?> operation = (Operation<?>) expression;
+        Operator operator = operation.getOperator();
+        List<Expression<?>> args = operation.getArgs();
+
+        if (operator == Ops.AND) {
+            Predicate<MemberTeamDto> left = condition(args.get(0));
+            Predicate<MemberTeamDto> right = condition(args.get(1));
+            return row -> left.test(row) && right.test(row);
+        }
+        if (operator == Ops.OR) {
+            Predicate<MemberTeamDto> left = condition(args.get(0));
+            Predicate<MemberTeamDto> right = condition(args.get(1));
+            return row -> left.test(row) || right.test(row);
+        }
+        if (operator == Ops.NOT) {
+            Predicate<MemberTeamDto> inner = condition(args.get(0));
+            return row -> !inner.test(row);
+        }
+
+        Function<MemberTeamDto, Object> first = value(args.get(0));
+        if (operator == Ops.IS_NULL) {
+            return row -> first.apply(row) == null;
+        }
+        if (operator == Ops.IS_NOT_NULL) {
+            return row -> first.apply(row) != null;
+        }
+        if (operator == Ops.IN || operator == Ops.NOT_IN) {
+            Collection<?> values = (Collection<?>) constant(args.get(1));
+            boolean in = operator == Ops.IN;
+            return row -> {
+                Object value = first.apply(row);
+                if (value == null) {
+                    return false;
+                }
+                for (Object candidate : values) {
+                    if (candidate != null && compare(value, candidate) == 0) {
+                        return in;
+                    }
+                }
+                return !in;
+            };
+        }
+        if (operator == Ops.BETWEEN) {
+            Function<MemberTeamDto, Object> from = value(args.get(1));
+            Function<MemberTeamDto, Object> to = value(args.get(2));
+            return row -> {
+                Object value = first.apply(row);
+                Object low = from.apply(row);
+                Object high = to.apply(row);
+                return value != null && low != null && high != null
+                        && compare(value, low) >= 0 && compare(value, high) <= 0;
+            };
+        }
+
+        Function<MemberTeamDto, Object> second = value(args.get(1));
+        BinaryTest test = binary(operator);
+        return row -> {
+            Object left = first.apply(row);
+            Object right = second.apply(row);
+            return left != null && right != null && test.test(left, right);
+        };
+    }
+
+    private static BinaryTest binary(Operator operator) {
+        if (operator == Ops.EQ) {
+            return (a, b) -> compare(a, b) == 0;
+        }
+        if (operator == Ops.NE) {
+            return (a, b) -> compare(a, b) != 0;
+        }
+        if (operator == Ops.LT) {
+            return (a, b) -> compare(a, b) < 0;
+        }
+        if (operator == Ops.LOE) {
+            return (a, b) -> compare(a, b) <= 0;
+        }
+        if (operator == Ops.GT) {
+            return (a, b) -> compare(a, b) > 0;
+        }
+        if (operator == Ops.GOE) {
+            return (a, b) -> compare(a, b) >= 0;
+        }
+        if (operator == Ops.EQ_IGNORE_CASE) {
+            return (a, b) -> a.toString().equalsIgnoreCase(b.toString());
+        }
+        if (operator == Ops.STARTS_WITH) {
+            return (a, b) -> a.toString().startsWith(b.toString());
+        }
+        if (operator == Ops.STARTS_WITH_IC) {
+            return (a, b) -> lower(a).startsWith(lower(b));
+        }
+        if (operator == Ops.ENDS_WITH) {
+            return (a, b) -> a.toString().endsWith(b.toString());
+        }
+        if (operator == Ops.STRING_CONTAINS) {
+            return (a, b) -> a.toString().contains(b.toString());
+        }
+        if (operator == Ops.STRING_CONTAINS_IC) {
+            return (a, b) -> lower(a).contains(lower(b));
+        }
+        throw new IllegalArgumentException("Unsupported operator: " + operator);
+    }
+
+    private static Function<MemberTeamDto, Object> value(Expression<?> expression) {
+        if (expression instanceof Constant) {
+            Object constant = ((Constant<?>) expression).getConstant();
+            return row -> constant;
+        }
+        if (expression instanceof Path) {
+            return property((Path<?>) expression);
+        }
+        if (expression instanceof Operation) {
+            Operation<?> operation = (Operation<?>) expression;
+            if (operation.getOperator() == Ops.LOWER) {
+                Function<MemberTeamDto, Object> inner = value(operation.getArg(0));
+                return row -> {
+                    Object value = inner.apply(row);
+                    return value == null ? null : lower(value);
+                };
+            }
+            if (operation.getOperator() == Ops.UPPER) {
+                Function<MemberTeamDto, Object> inner = value(operation.getArg(0));
+                return row -> {
+                    Object value = inner.apply(row);
+                    return value == null ? null : value.toString().toUpperCase(Locale.ROOT);
+                };
+            }
+        }
+        throw new IllegalArgumentException("Unsupported expression: " + expression);
+    }
+
+    /**
+     * member.id, member.username, member.age, team.id, team.name, member.team.id, member.team.name
+     */
+    private static Function<MemberTeamDto, Object> property(Path<?> path) {
+        PathMetadata metadata = path.getMetadata();
+        Path<?> parent = metadata.getParent();
+        Class<?> owner = parent == null ? null : parent.getType();
+        String name = metadata.getName();
+
+        if (owner == Member.class) {
+            switch (name) {
+                case "id":
+                    return MemberTeamDto::getMemberId;
+                case "username":
+                    return MemberTeamDto::getUsername;
+                case "age":
+                    return MemberTeamDto::getAge;
+                default:
+                    break;
+            }
+        } else if (owner == Team.class) {
+            switch (name) {
+                case "id":
+                    return MemberTeamDto::getTeamId;
+                case "name":
+                    return MemberTeamDto::getTeamName;
+                default:
+                    break;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported path: " + path);
+    }
+
+    private static Object constant(Expression<?> expression) {
+        if (!(expression instanceof Constant)) {
+            throw new IllegalArgumentException("Constant expected: " + expression);
+        }
+        return ((Constant<?>) expression).getConstant();
+    }
+
+    /**
+     * 숫자는 타입(Integer, Long)이 달라도 값으로 비교한다.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compare(Object a, Object b) {
+        if (a instanceof Number && b instanceof Number) {
+            if (a instanceof Double || a instanceof Float || b instanceof Double || b instanceof Float) {
+                return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+            }
+            return Long.compare(((Number) a).longValue(), ((Number) b).longValue());
+        }
+        return ((Comparable) a).compareTo(b);
+    }
+
+    private static String lower(Object value) {
+        return value.toString().toLowerCase(Locale.ROOT);
+    }
+
+    private interface BinaryTest {
+        boolean test(Object left, Object right);
+    }
+}
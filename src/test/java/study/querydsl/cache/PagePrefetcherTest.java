@@ -0,0 +1,85 @@
+package study.querydsl.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entitiy.Member;
+import study.querydsl.entitiy.Team;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 미리 조회는 다른 스레드(커넥션)에서 실행되므로 트랜잭션 테스트가 아니라 데이터를 커밋하고 정리한다.
+ */
+@SpringBootTest
+class PagePrefetcherTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    TransactionTemplate transactionTemplate;
+    @Autowired
+    PagePrefetcher pagePrefetcher;
+
+    @BeforeEach
+    void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            for (int i = 0; i < 10; i++) {
+                em.persist(new Member("member" + i, i, teamA));
+            }
+        });
+        pagePrefetcher.clear();
+    }
+
+    @AfterEach
+    void after() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @Test
+    void prefetchNextPage() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        PagePrefetcher.Stats before = pagePrefetcher.stats();
+
+        Page<MemberTeamDto> first = pagePrefetcher.searchPageComplex(condition, PageRequest.of(0, 4));
+        //사용자가 다음 페이지를 누르기 전에 미리 조회가 끝난 경우
+        CompletableFuture<Page<MemberTeamDto>> prefetch = pagePrefetcher.pending(condition, PageRequest.of(1, 4));
+        assertThat(prefetch).isNotNull();
+        prefetch.get(5, TimeUnit.SECONDS);
+        Page<MemberTeamDto> second = pagePrefetcher.searchPageComplex(condition, PageRequest.of(1, 4));
+
+        assertThat(first.getContent()).hasSize(4);
+        assertThat(second.getContent()).hasSize(4);
+        assertThat(second.getTotalElements()).isEqualTo(10);
+
+        PagePrefetcher.Stats after = pagePrefetcher.stats();
+        assertThat(after.getPrefetchHits() - before.getPrefetchHits()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidateOnWrite() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        pagePrefetcher.searchPageComplex(condition, PageRequest.of(0, 4));
+
+        transactionTemplate.executeWithoutResult(status -> em.persist(new Member("member10", 10)));
+
+        Page<MemberTeamDto> second = pagePrefetcher.searchPageComplex(condition, PageRequest.of(1, 4));
+        assertThat(second.getTotalElements()).isEqualTo(11);
+    }
+}
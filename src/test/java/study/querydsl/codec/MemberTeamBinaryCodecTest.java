@@ -0,0 +1,73 @@
+package study.querydsl.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.paging.AdaptivePage;
+import study.querydsl.paging.CountStrategy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberTeamBinaryCodecTest {
+
+    @Test
+    void pageRoundTrip() throws Exception {
+        List<MemberTeamDto> content = new ArrayList<>();
+        content.add(new MemberTeamDto(1L, "member1", 10, 1L, "teamA"));
+        content.add(new MemberTeamDto(2L, "member2", 20, 2L, "teamB"));
+        content.add(new MemberTeamDto(3L, "member3", -1, null, null));
+        Page<MemberTeamDto> page = new PageImpl<>(content, PageRequest.of(2, 3), 100);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MemberTeamBinaryCodec.encodePage(page, out);
+        AdaptivePage<MemberTeamDto> decoded = MemberTeamBinaryCodec.decodePage(new ByteArrayInputStream(out.toByteArray()));
+
+        assertThat(decoded.getContent()).containsExactlyElementsOf(content);
+        assertThat(decoded.getNumber()).isEqualTo(2);
+        assertThat(decoded.getSize()).isEqualTo(3);
+        assertThat(decoded.getTotalElements()).isEqualTo(100);
+        //일반 Page 는 정확한 건수
+        assertThat(decoded.getCountStrategy()).isEqualTo(CountStrategy.EXACT);
+        assertThat(decoded.isTotalExact()).isTrue();
+    }
+
+    @Test
+    void adaptivePageKeepsCountStrategy() throws Exception {
+        List<MemberTeamDto> content = new ArrayList<>();
+        content.add(new MemberTeamDto(1L, "member1", 10, 1L, "teamA"));
+        Page<MemberTeamDto> capped = new AdaptivePage<>(content, PageRequest.of(0, 1), 10000, CountStrategy.CAPPED, false);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MemberTeamBinaryCodec.encodePage(capped, out);
+        AdaptivePage<MemberTeamDto> decoded = MemberTeamBinaryCodec.decodePage(new ByteArrayInputStream(out.toByteArray()));
+
+        //"10000+" 를 정확한 건수로 읽지 않도록
+        assertThat(decoded.getTotalElements()).isEqualTo(10000);
+        assertThat(decoded.getCountStrategy()).isEqualTo(CountStrategy.CAPPED);
+        assertThat(decoded.isTotalExact()).isFalse();
+    }
+
+    @Test
+    void smallerThanJson() throws Exception {
+        List<MemberTeamDto> content = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            content.add(new MemberTeamDto((long) i, "member" + i, i % 100, (long) (i % 2), i % 2 == 0 ? "teamA" : "teamB"));
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MemberTeamBinaryCodec.encodeList(content, out);
+        byte[] json = new ObjectMapper().writeValueAsBytes(content);
+
+        assertThat(out.size()).isLessThan(json.length / 3);
+        assertThat(MemberTeamBinaryCodec.decodeList(new ByteArrayInputStream(out.toByteArray())))
+                .containsExactlyElementsOf(content);
+    }
+}
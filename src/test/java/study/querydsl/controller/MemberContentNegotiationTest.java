@@ -0,0 +1,129 @@
+package study.querydsl.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.codec.MemberTeamBinaryCodec;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entitiy.Member;
+import study.querydsl.entitiy.Team;
+import study.querydsl.governance.QueryGovernor;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayInputStream;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Accept 헤더에 따라 같은 URL 이 JSON 또는 application/x-member-team 으로 응답한다.
+ * /v1/members 는 QueryGovernor 스레드의 별도 트랜잭션에서 조회하므로 데이터를 커밋하고 정리한다.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class MemberContentNegotiationTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    TransactionTemplate transactionTemplate;
+    @Autowired
+    MockMvc mockMvc;
+
+    @BeforeEach
+    void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            em.persist(new Member("member1", 10, teamA));
+            em.persist(new Member("member2", 20, teamA));
+            em.persist(new Member("member3", 30));
+        });
+    }
+
+    @AfterEach
+    void after() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @Test
+    void binaryPage() throws Exception {
+        for (String url : new String[]{"/v2/members", "/v3/members"}) {
+            MvcResult result = mockMvc.perform(get(url)
+                            .param("username", "member1")
+                            .accept(MemberTeamBinaryCodec.MEDIA_TYPE))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(MemberTeamBinaryCodec.MEDIA_TYPE))
+                    .andExpect(header().string(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT)))
+                    .andReturn();
+
+            List<MemberTeamDto> content = MemberTeamBinaryCodec.decodePage(
+                    new ByteArrayInputStream(result.getResponse().getContentAsByteArray())).getContent();
+            assertThat(content).extracting(MemberTeamDto::getUsername).containsExactly("member1");
+            assertThat(content.get(0).getTeamName()).isEqualTo("teamA");
+        }
+    }
+
+    @Test
+    void binaryAsyncList() throws Exception {
+        MvcResult started = mockMvc.perform(get("/v1/members")
+                        .param("ageGoe", "20")
+                        .accept(MemberTeamBinaryCodec.MEDIA_TYPE))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //WebAsyncTask<ResponseEntity<List<MemberTeamDto>>> 의 본문 타입으로 바이너리 컨버터를 고른다.
+        MvcResult result = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MemberTeamBinaryCodec.MEDIA_TYPE))
+                .andExpect(header().string(QueryGovernor.TRUNCATED_HEADER, "false"))
+                .andReturn();
+
+        List<MemberTeamDto> content = MemberTeamBinaryCodec.decodeList(
+                new ByteArrayInputStream(result.getResponse().getContentAsByteArray()));
+        assertThat(content).extracting(MemberTeamDto::getUsername).containsExactly("member2", "member3");
+        assertThat(content.get(1).getTeamName()).isNull();
+    }
+
+    @Test
+    void jsonFallback() throws Exception {
+        //Accept 가 없으면 기존처럼 JSON
+        mockMvc.perform(get("/v2/members").param("teamName", "teamA"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.content.length()").value(2));
+
+        //MemberTeamDto 목록이 아닌 응답(fields)은 바이너리를 먼저 원해도 JSON
+        MvcResult started = mockMvc.perform(get("/v1/members")
+                        .param("fields", "username")
+                        .param("ageGoe", "20")
+                        .header(HttpHeaders.ACCEPT, MemberTeamBinaryCodec.MEDIA_TYPE_VALUE + ", application/json;q=0.5"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].username").value("member2"));
+    }
+}
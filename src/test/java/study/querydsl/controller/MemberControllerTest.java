@@ -0,0 +1,96 @@
+package study.querydsl.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.cache.DataVersion;
+import study.querydsl.entitiy.Member;
+import study.querydsl.entitiy.Team;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class MemberControllerTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MockMvc mockMvc;
+
+    @BeforeEach
+    void before() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+    }
+
+    @Test
+    void notModified() throws Exception {
+        String etag = mockMvc.perform(get("/v3/members"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotNull();
+        //재시작 전의 ETag 와 겹치지 않도록 기동할 때마다 다른 값이 들어간다.
+        assertThat(etag).isNotEqualTo("\"members-v0\"").doesNotStartWith("\"members-v");
+        assertThat(new DataVersion().etag()).isNotEqualTo(new DataVersion().etag());
+
+        //데이터가 바뀌지 않았다면 304, JSON 과 바이너리 표현이 같은 ETag 를 쓰므로 Vary: Accept
+        mockMvc.perform(get("/v3/members").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT)));
+
+        //회원이 추가되면 버전이 바뀌어서 다시 조회한다.
+        em.persist(new Member("member3", 30));
+        em.flush();
+
+        String changedEtag = mockMvc.perform(get("/v3/members").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(changedEtag).isNotEqualTo(etag);
+    }
+
+    @Test
+    void queryMembers() throws Exception {
+        mockMvc.perform(get("/members/query")
+                        .param("username", "member")
+                        .param("age", "15", "30")
+                        .param("password", "ignored")) //허용하지 않은 파라미터는 무시
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].username").value("member2"));
+
+        //인덱스가 없는 속성으로는 정렬할 수 없다.
+        mockMvc.perform(get("/members/query").param("username", "member").param("sort", "team.name"))
+                .andExpect(status().isBadRequest());
+
+        //페이지 크기는 최대 100
+        mockMvc.perform(get("/members/query").param("username", "member").param("size", "1000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size").value(100));
+
+        //조건 없는 전체 조회는 받지 않는다.
+        mockMvc.perform(get("/members/query").param("password", "ignored"))
+                .andExpect(status().isBadRequest());
+
+        //offset 최대 10000
+        mockMvc.perform(get("/members/query").param("username", "member").param("size", "100").param("page", "100"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/members/query").param("username", "member").param("size", "100").param("page", "101"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -1,5 +1,6 @@
 package study.querydsl.entitiy;
 
+import org.hibernate.Hibernate;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.Commit;
@@ -50,4 +51,34 @@ class MemberTest {
             //System.out.println("member.getTeam() = " + member.getTeam());
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void changeTeamWithoutLoadingMembers() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 50; i++) {
+            em.persist(new Member("member" + i, i, teamA));
+        }
+        Member mover = new Member("mover", 10, teamB);
+        em.persist(mover);
+
+        em.flush();
+        em.clear();
+
+        Team findTeamA = em.find(Team.class, teamA.getId());
+        Member findMover = em.find(Member.class, mover.getId());
+        Team previousTeam = findMover.getTeam();
+
+        //when
+        findMover.changeTeam(findTeamA);
+
+        //then
+        assertFalse(Hibernate.isInitialized(previousTeam)); //이전 팀 프록시를 조회하지 않는다.
+        assertFalse(Hibernate.isInitialized(findTeamA.getMembers()));
+        assertEquals(51, findTeamA.countMembers());
+        assertTrue(findTeamA.hasMember(findMover));
+        assertFalse(Hibernate.isInitialized(findTeamA.getMembers()));
+    }
+}
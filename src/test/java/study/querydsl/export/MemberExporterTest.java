@@ -0,0 +1,114 @@
+package study.querydsl.export;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entitiy.Member;
+import study.querydsl.entitiy.Team;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 구간마다 다른 스레드, 다른 EntityManager 로 조회하므로 데이터를 커밋하고 정리한다.
+ */
+@SpringBootTest(properties = {"export.parallelism=3", "export.partition-size=4"})
+class MemberExporterTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    TransactionTemplate transactionTemplate;
+    @Autowired
+    MemberExporter memberExporter;
+
+    List<String> expected = new ArrayList<>();
+
+    @BeforeEach
+    void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            for (int i = 0; i < 25; i++) {
+                Member member = new Member("member" + i, i, i % 5 == 0 ? null : teamA);
+                em.persist(member);
+                em.flush();
+                expected.add(member.getId() + ",member" + i + "," + i + ","
+                        + (i % 5 == 0 ? ",": teamA.getId() + ",teamA"));
+            }
+        });
+    }
+
+    @AfterEach
+    void after() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @Test
+    void exportOrdered() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MemberExporter.ExportResult result = memberExporter.export(out, true);
+
+        List<String> lines = lines(out);
+        assertThat(lines.get(0)).isEqualTo("memberId,username,age,teamId,teamName");
+        assertThat(lines.subList(1, lines.size())).containsExactlyElementsOf(expected);
+        assertThat(result.getRows()).isEqualTo(25);
+        assertThat(result.getPartitions()).isGreaterThanOrEqualTo(7); //25건 / 구간 크기 4
+    }
+
+    @Test
+    void exportUnordered() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        memberExporter.export(out, false);
+
+        List<String> lines = lines(out);
+        assertThat(lines.subList(1, lines.size())).containsExactlyInAnyOrderElementsOf(expected);
+    }
+
+    /**
+     * 동시에 실행한 내보내기들이 하나의 조회 스레드 풀(병렬도 3)을 나눠 쓴다.
+     */
+    @Test
+    void concurrentExportsShareExecutor() throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<ByteArrayOutputStream>> exports = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                boolean ordered = i % 2 == 0;
+                exports.add(callers.submit(() -> {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    memberExporter.export(out, ordered);
+                    return out;
+                }));
+            }
+            for (Future<ByteArrayOutputStream> export : exports) {
+                List<String> lines = lines(export.get(30, TimeUnit.SECONDS));
+                assertThat(lines.subList(1, lines.size())).containsExactlyInAnyOrderElementsOf(expected);
+            }
+            //내보내기 3개 x 구간 7개 이상을 조회해도 동시에 조회한 구간은 병렬도(3)를 넘지 않는다.
+            assertThat(memberExporter.peakConcurrentFetches()).isBetween(1, 3);
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    private List<String> lines(ByteArrayOutputStream out) {
+        return Arrays.asList(new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n"));
+    }
+}
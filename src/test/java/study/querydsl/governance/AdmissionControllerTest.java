@@ -0,0 +1,201 @@
+package study.querydsl.governance;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdmissionControllerTest {
+
+    @Test
+    void aimd() {
+        AimdLimit limit = new AimdLimit(10, 2, 12, 0.5, TimeUnit.MILLISECONDS.toNanos(100));
+
+        //한도를 절반도 쓰지 않으면 늘리지 않는다.
+        limit.onSample(TimeUnit.MILLISECONDS.toNanos(10), 2, false);
+        assertThat(limit.getLimit()).isEqualTo(10);
+
+        //빠르고 한도 가까이 사용 중이면 1씩 늘린다. (최대 12)
+        limit.onSample(TimeUnit.MILLISECONDS.toNanos(10), 9, false);
+        assertThat(limit.getLimit()).isEqualTo(11);
+        limit.onSample(TimeUnit.MILLISECONDS.toNanos(10), 11, false);
+        limit.onSample(TimeUnit.MILLISECONDS.toNanos(10), 12, false);
+        assertThat(limit.getLimit()).isEqualTo(12);
+
+        //느리거나 실패하면 절반으로 줄인다. (최소 2)
+        limit.onSample(TimeUnit.MILLISECONDS.toNanos(200), 12, false);
+        assertThat(limit.getLimit()).isEqualTo(6);
+        limit.onSample(TimeUnit.MILLISECONDS.toNanos(10), 6, true);
+        assertThat(limit.getLimit()).isEqualTo(3);
+        limit.decrease();
+        limit.decrease();
+        assertThat(limit.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    void expensiveRequestsAreShedFirst() throws Exception {
+        AdmissionController admission = new AdmissionController(
+                new AimdLimit(4, 1, 10, 0.9, TimeUnit.MILLISECONDS.toNanos(100)), 0.5, 50, 50, null);
+
+        AdmissionController.Permit cheap1 = admission.tryAcquire(RequestCost.CHEAP);
+        AdmissionController.Permit cheap2 = admission.tryAcquire(RequestCost.CHEAP);
+        //비싼 요청은 한도의 절반(2)까지
+        assertThat(admission.tryAcquire(RequestCost.EXPENSIVE)).isNull();
+        //싼 요청은 한도(4)까지
+        AdmissionController.Permit cheap3 = admission.tryAcquire(RequestCost.CHEAP);
+        AdmissionController.Permit cheap4 = admission.tryAcquire(RequestCost.CHEAP);
+        assertThat(cheap3).isNotNull();
+        assertThat(cheap4).isNotNull();
+
+        //한도가 차면 queue-timeout 동안 기다렸다가 거절
+        long start = System.nanoTime();
+        assertThat(admission.tryAcquire(RequestCost.CHEAP)).isNull();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(40);
+
+        //기다리는 동안 자리가 나면 받는다.
+        Thread releaser = new Thread(() -> {
+            sleep(10);
+            admission.release(cheap1, false);
+        });
+        releaser.start();
+        assertThat(admission.tryAcquire(RequestCost.CHEAP)).isNotNull();
+        releaser.join();
+
+        //같은 자리를 두 번 반납해도 한 번만 반영한다.
+        admission.release(cheap2, false);
+        admission.release(cheap2, false);
+        assertThat(admission.stats().getInFlight()).isEqualTo(3);
+        assertThat(admission.stats().getRejectedExpensive()).isEqualTo(1);
+        assertThat(admission.stats().getRejectedCheap()).isEqualTo(1);
+    }
+
+    @Test
+    void streamingIsNotSampled() throws Exception {
+        AtomicLong clock = new AtomicLong();
+        AdmissionController admission = new AdmissionController(
+                new AimdLimit(4, 1, 10, 0.5, TimeUnit.MILLISECONDS.toNanos(1)), 0.5, 50, 50, null, clock::get);
+
+        //다운로드가 느려도 한도를 줄이지 않는다.
+        AdmissionController.Permit export = admission.tryAcquire(RequestCost.EXPENSIVE, false);
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(10));
+        admission.release(export, false);
+        assertThat(admission.stats().getLimit()).isEqualTo(4);
+        assertThat(admission.stats().getLatencyEwmaMillis()).isZero();
+
+        AdmissionController.Permit search = admission.tryAcquire(RequestCost.CHEAP);
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(10));
+        admission.release(search, false);
+        assertThat(admission.stats().getLimit()).isEqualTo(2);
+    }
+
+    /**
+     * 동시에 capacity 개를 넘게 실행하면 그만큼 느려지는 DB
+     * 싼 요청과 비싼 요청(3배 느림)을 같은 수의 클라이언트가 계속 보낸다.
+     * 시뮬레이션 시간(1ms 단위)으로 한 스레드에서 실행하므로 실행 환경과 관계없이 결과가 같다.
+     */
+    @Test
+    void simulatedSlowDatabase() throws Exception {
+        AtomicLong clock = new AtomicLong();
+        //queue-timeout 0: 한도가 차 있으면 기다리지 않고 바로 거절
+        AdmissionController admission = new AdmissionController(
+                new AimdLimit(40, 1, 100, 0.9, TimeUnit.MILLISECONDS.toNanos(40)), 0.5, 0, 50, null, clock::get);
+        SimulatedDatabase database = new SimulatedDatabase(4, 10);
+
+        List<Client> clients = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            clients.add(new Client(i % 2 == 0 ? RequestCost.CHEAP : RequestCost.EXPENSIVE));
+        }
+        int minLimit = admission.stats().getLimit();
+        for (long now = 0; now < 3000; now++) {
+            clock.set(TimeUnit.MILLISECONDS.toNanos(now));
+            for (Client client : clients) {
+                if (client.permit != null && client.finishAt <= now) {
+                    database.finish();
+                    admission.release(client.permit, false);
+                    client.permit = null;
+                    client.completed++;
+                }
+            }
+            for (Client client : clients) {
+                if (client.permit != null || client.retryAt > now) {
+                    continue;
+                }
+                client.permit = admission.tryAcquire(client.cost);
+                if (client.permit == null) {
+                    client.rejected++;
+                    client.retryAt = now + 5;
+                    continue;
+                }
+                client.finishAt = now + database.start(client.cost == RequestCost.CHEAP ? 1 : 3);
+            }
+            minLimit = Math.min(minLimit, admission.stats().getLimit());
+        }
+
+        //DB 가 느려지면 한도가 줄어든다.
+        assertThat(minLimit).isLessThan(40);
+        //비싼 요청이 더 많이 거절되고 싼 요청이 더 많이 처리된다.
+        long cheapCompleted = count(clients, RequestCost.CHEAP, true);
+        long expensiveCompleted = count(clients, RequestCost.EXPENSIVE, true);
+        long cheapRejected = count(clients, RequestCost.CHEAP, false);
+        long expensiveRejected = count(clients, RequestCost.EXPENSIVE, false);
+        double cheapRejectRatio = (double) cheapRejected / (cheapRejected + cheapCompleted);
+        double expensiveRejectRatio = (double) expensiveRejected / (expensiveRejected + expensiveCompleted);
+        assertThat(expensiveRejectRatio).isGreaterThan(cheapRejectRatio);
+        assertThat(cheapCompleted).isGreaterThan(expensiveCompleted);
+    }
+
+    private static long count(List<Client> clients, RequestCost cost, boolean completed) {
+        return clients.stream()
+                .filter(client -> client.cost == cost)
+                .mapToLong(client -> completed ? client.completed : client.rejected)
+                .sum();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class Client {
+        private final RequestCost cost;
+        private AdmissionController.Permit permit;
+        private long finishAt;
+        private long retryAt;
+        private long completed;
+        private long rejected;
+
+        Client(RequestCost cost) {
+            this.cost = cost;
+        }
+    }
+
+    private static class SimulatedDatabase {
+        private final int capacity;
+        private final long baseMillis;
+        private int running;
+
+        SimulatedDatabase(int capacity, long baseMillis) {
+            this.capacity = capacity;
+            this.baseMillis = baseMillis;
+        }
+
+        /**
+         * @return 처리 시간(ms), 시작할 때 동시에 실행 중인 쿼리 수로 정한다.
+         */
+        long start(int cost) {
+            running++;
+            return baseMillis * cost * Math.max(1, running / capacity);
+        }
+
+        void finish() {
+            running--;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package study.querydsl.governance;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "query.admission.initial-limit=2",
+        "query.admission.max-limit=2",
+        "query.admission.min-limit=1",
+        "query.admission.queue-timeout-ms=10"
+})
+@AutoConfigureMockMvc
+@Transactional
+class AdmissionInterceptorTest {
+
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    AdmissionController admissionController;
+
+    @Test
+    void classify() {
+        assertThat(RequestCost.of(request("/v1/members"), 1000)).isEqualTo(RequestCost.EXPENSIVE);
+        assertThat(RequestCost.of(request("/v1/members", "username", "member1"), 1000)).isEqualTo(RequestCost.CHEAP);
+        assertThat(RequestCost.of(request("/v1/members", "consistency", "snapshot"), 1000)).isEqualTo(RequestCost.CHEAP);
+        assertThat(RequestCost.of(request("/v1/members/export"), 1000)).isEqualTo(RequestCost.EXPENSIVE);
+        assertThat(RequestCost.of(request("/v3/members", "page", "0"), 1000)).isEqualTo(RequestCost.CHEAP);
+        assertThat(RequestCost.of(request("/v3/members", "page", "100"), 1000)).isEqualTo(RequestCost.EXPENSIVE);
+        assertThat(RequestCost.of(request("/members/query", "sort", "age,desc"), 1000)).isEqualTo(RequestCost.EXPENSIVE);
+        assertThat(RequestCost.of(request("/members/query", "team.name", "teamA"), 1000)).isEqualTo(RequestCost.CHEAP);
+        assertThat(RequestCost.isStreaming(request("/v1/members/export"))).isTrue();
+        assertThat(RequestCost.isStreaming(request("/v1/members"))).isFalse();
+    }
+
+    @Test
+    void tooManyRequests() throws Exception {
+        AdmissionController.Permit first = admissionController.tryAcquire(RequestCost.CHEAP);
+        AdmissionController.Permit second = admissionController.tryAcquire(RequestCost.CHEAP);
+        try {
+            mockMvc.perform(get("/v3/members"))
+                    .andExpect(status().isTooManyRequests())
+                    .andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+        } finally {
+            admissionController.release(first, false);
+            admissionController.release(second, false);
+        }
+
+        mockMvc.perform(get("/v3/members"))
+                .andExpect(status().isOk());
+        assertThat(admissionController.stats().getInFlight()).isZero();
+    }
+
+    private static MockHttpServletRequest request(String uri, String... params) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        for (int i = 0; i < params.length; i += 2) {
+            request.addParameter(params[i], params[i + 1]);
+        }
+        return request;
+    }
+}
@@ -0,0 +1,198 @@
+package study.querydsl.governance;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entitiy.Member;
+import study.querydsl.entitiy.QMember;
+import study.querydsl.entitiy.Team;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 조회는 QueryGovernor 스레드의 별도 트랜잭션에서 실행되므로 데이터를 커밋하고 정리한다.
+ */
+@SpringBootTest(properties = "query.governance.list.max-rows=300")
+@AutoConfigureMockMvc
+class QueryGovernorTest {
+
+    private static final int MEMBERS = 400;
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    TransactionTemplate transactionTemplate;
+    @Autowired
+    JPAQueryFactory queryFactory;
+    @Autowired
+    QueryGovernor queryGovernor;
+    @Autowired
+    MockMvc mockMvc;
+
+    @BeforeEach
+    void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            for (int i = 0; i < MEMBERS; i++) {
+                em.persist(new Member("member" + i, i % 50, teamA));
+            }
+        });
+    }
+
+    @AfterEach
+    void after() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @Test
+    void truncated() throws Exception {
+        MvcResult result = mockMvc.perform(get("/v1/members"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(QueryGovernor.TRUNCATED_HEADER, "true"))
+                .andExpect(header().string(QueryGovernor.LIMIT_HEADER, "300"))
+                .andExpect(jsonPath("$.length()").value(300));
+    }
+
+    @Test
+    void notTruncated() throws Exception {
+        MvcResult result = mockMvc.perform(get("/v1/members").param("ageLoe", "9"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(QueryGovernor.TRUNCATED_HEADER, "false"))
+                .andExpect(jsonPath("$.length()").value(80));
+    }
+
+    @Test
+    void fieldsTruncated() throws Exception {
+        MvcResult result = mockMvc.perform(get("/v1/members").param("fields", "memberId"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(QueryGovernor.TRUNCATED_HEADER, "true"))
+                .andExpect(jsonPath("$.length()").value(300));
+    }
+
+    @Test
+    void batchTruncatedPerCondition() throws Exception {
+        //ageGoe=0 은 조건이 있어도 전체 회원과 맞는다.
+        mockMvc.perform(post("/v1/members/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"ageGoe\":0},{\"username\":\"member1\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(QueryGovernor.TRUNCATED_HEADER, "true,false"))
+                .andExpect(header().string(QueryGovernor.LIMIT_HEADER, "300"))
+                .andExpect(jsonPath("$[0].length()").value(300))
+                .andExpect(jsonPath("$[1].length()").value(1));
+    }
+
+    @Test
+    void deadline() {
+        long start = System.nanoTime();
+
+        //JDBC 쿼리 타임아웃은 초 단위, 남은 시간을 올림해서 1초
+        assertThatThrownBy(() -> transactionTemplate.execute(status ->
+                QueryDeadline.within(500, this::slowCount)))
+                .isInstanceOf(RuntimeException.class);
+
+        assertThat(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start)).isLessThan(10);
+    }
+
+    @Test
+    void cancelRunningQuery() throws Exception {
+        QueryGovernor.Execution<Long> execution = queryGovernor.execution(60_000, this::slowCount);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            long start = System.nanoTime();
+            Future<Long> future = executor.submit(execution::run);
+            Thread.sleep(300);
+
+            execution.cancel();
+
+            assertThatThrownBy(() -> future.get(10, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+            assertThat(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start)).isLessThan(10);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void cancelBeforeNextQuery() {
+        QueryGovernor.Execution<Long> execution = queryGovernor.execution(60_000, () ->
+                queryFactory.select(QMember.member.count()).from(QMember.member).fetchOne());
+        execution.cancel();
+
+        assertThatThrownBy(execution::run).isInstanceOf(RuntimeException.class);
+    }
+
+    /**
+     * 예산이 0 이면 쿼리를 실행하기 전에 타임아웃
+     * Querydsl SQL 로 실행하는 쿼리(회원 배치 조회의 UNION ALL)에도 페이지 조회 예산이 걸린다.
+     */
+    @Nested
+    @TestPropertySource(properties = "query.governance.page.timeout-ms=0")
+    class PageBudgetExceeded {
+
+        //이 설정으로 만든 컨텍스트의 MockMvc
+        @Autowired
+        MockMvc mockMvc;
+
+        @Test
+        void batch() throws Exception {
+            mockMvc.perform(post("/v1/members/batch")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("[{\"username\":\"member1\"},{\"ageGoe\":40}]"))
+                    .andExpect(status().isServiceUnavailable());
+        }
+    }
+
+    /**
+     * 회원 400명의 3중 cross join (6,400만 행)
+     */
+    private Long slowCount() {
+        QMember m1 = new QMember("m1");
+        QMember m2 = new QMember("m2");
+        QMember m3 = new QMember("m3");
+        return queryFactory
+                .select(m1.count())
+                .from(m1, m2, m3)
+                .fetchOne();
+    }
+}
@@ -0,0 +1,69 @@
+package study.querydsl.init;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StartupSnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void restoreWithSameMapping() {
+        String file = dir.resolve("querydsl.sql").toString();
+        DataSource source = dataSource("snapshot-source");
+        new JdbcTemplate(source).execute("create table member (id bigint primary key, username varchar(255))");
+        new JdbcTemplate(source).update("insert into member values (1, 'member1')");
+        new StartupSnapshot(source, file, "v1").save();
+
+        DataSource target = dataSource("snapshot-target");
+        StartupSnapshot snapshot = new StartupSnapshot(target, file, "v1");
+        Map<String, Object> properties = new HashMap<>();
+        snapshot.customize(properties);
+
+        assertThat(snapshot.isRestored()).isTrue();
+        assertThat(properties).containsEntry(AvailableSettings.HBM2DDL_AUTO, "none");
+        assertThat(new JdbcTemplate(target).queryForObject("select username from member where id = 1", String.class))
+                .isEqualTo("member1");
+    }
+
+    @Test
+    void discardWhenMappingChanged() {
+        String file = dir.resolve("querydsl.sql").toString();
+        DataSource source = dataSource("snapshot-old");
+        new JdbcTemplate(source).execute("create table member (id bigint primary key)");
+        new StartupSnapshot(source, file, "v1").save();
+
+        StartupSnapshot snapshot = new StartupSnapshot(dataSource("snapshot-new"), file, "v2");
+        Map<String, Object> properties = new HashMap<>();
+        snapshot.customize(properties);
+
+        //예전 스키마로 복원하지 않고 DDL 을 실행하도록 둔다.
+        assertThat(snapshot.isRestored()).isFalse();
+        assertThat(properties).doesNotContainKey(AvailableSettings.HBM2DDL_AUTO);
+        assertThat(Files.exists(dir.resolve("querydsl.sql"))).isFalse();
+        assertThat(Files.exists(dir.resolve("querydsl.sql.fingerprint"))).isFalse();
+    }
+
+    @Test
+    void mappingFingerprint() {
+        String fingerprint = StartupSnapshot.mappingFingerprint();
+
+        assertThat(fingerprint).hasSize(64).isEqualTo(StartupSnapshot.mappingFingerprint());
+    }
+
+    private static DataSource dataSource(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+}
@@ -0,0 +1,156 @@
+package study.querydsl.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 닫힌 루프(closed-loop) HTTP 부하 생성기
+ * <p>
+ * concurrency 개의 스레드가 응답을 받자마자 다음 요청을 보낸다. 요청은 가중치(mix)에 따라 엔드포인트를 고르고
+ * 엔드포인트별로 응답 시간을 HdrHistogram 에 기록한다. (응답 본문까지 모두 읽은 시간)
+ * 워밍업 동안의 기록은 버린다. 429(AdmissionController 거절)는 오류와 따로 센다.
+ *
+ * 닫힌 루프라서 서버가 느려지면 요청 수도 줄어든다. (coordinated omission)
+ * 포화 지점은 동시성을 올려도 처리량이 늘지 않고 지연 시간만 늘어나는 지점으로 판단한다.
+ */
+class LoadGenerator {
+
+    private static final long MAX_LATENCY_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final String baseUrl;
+    private final Map<String, Integer> mix;
+    private final Map<String, Function<Random, String>> endpoints;
+
+    /**
+     * @param endpoints 엔드포인트 이름 -> 요청 경로(쿼리 스트링 포함)를 만드는 함수
+     * @param mix       엔드포인트 이름 -> 가중치
+     */
+    LoadGenerator(String baseUrl, Map<String, Function<Random, String>> endpoints, Map<String, Integer> mix) {
+        this.baseUrl = baseUrl;
+        this.endpoints = endpoints;
+        this.mix = mix;
+    }
+
+    Result run(int concurrency, Duration warmup, Duration duration, long seed) throws InterruptedException {
+        Map<String, Recorder> recorders = new LinkedHashMap<>();
+        Map<String, AtomicLong> errors = new LinkedHashMap<>();
+        Map<String, AtomicLong> shed = new LinkedHashMap<>();
+        for (String name : mix.keySet()) {
+            recorders.put(name, new Recorder(MAX_LATENCY_NANOS, 3));
+            errors.put(name, new AtomicLong());
+            shed.put(name, new AtomicLong());
+        }
+        List<String> weighted = weighted();
+
+        long warmupEnd = System.nanoTime() + warmup.toNanos();
+        long end = warmupEnd + duration.toNanos();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            Random random = new Random(seed + i);
+            executor.execute(() -> {
+                while (System.nanoTime() < end) {
+                    String name = weighted.get(random.nextInt(weighted.size()));
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + endpoints.get(name).apply(random)))
+                            .timeout(Duration.ofNanos(MAX_LATENCY_NANOS))
+                            .GET()
+                            .build();
+                    long start = System.nanoTime();
+                    int status;
+                    try {
+                        status = client.send(request, HttpResponse.BodyHandlers.ofByteArray()).statusCode();
+                    } catch (Exception e) {
+                        status = -1;
+                    }
+                    long finished = System.nanoTime();
+                    if (start < warmupEnd) {
+                        continue;
+                    }
+                    if (status == 200) {
+                        recorders.get(name).recordValue(Math.min(finished - start, MAX_LATENCY_NANOS));
+                    } else if (status == 429) {
+                        shed.get(name).incrementAndGet();
+                    } else {
+                        errors.get(name).incrementAndGet();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        if (!executor.awaitTermination(warmup.plus(duration).toMillis() + MAX_LATENCY_NANOS / 1_000_000, TimeUnit.MILLISECONDS)) {
+            executor.shutdownNow();
+        }
+
+        Map<String, EndpointResult> endpointResults = new LinkedHashMap<>();
+        for (String name : mix.keySet()) {
+            Histogram histogram = recorders.get(name).getIntervalHistogram();
+            endpointResults.put(name, new EndpointResult(histogram, errors.get(name).get(), shed.get(name).get(), duration));
+        }
+        return new Result(concurrency, endpointResults, duration);
+    }
+
+    private List<String> weighted() {
+        List<String> weighted = new ArrayList<>();
+        mix.forEach((name, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                weighted.add(name);
+            }
+        });
+        return weighted;
+    }
+
+    static class Result {
+        final int concurrency;
+        final Map<String, EndpointResult> endpoints;
+        final double throughput;
+
+        Result(int concurrency, Map<String, EndpointResult> endpoints, Duration duration) {
+            this.concurrency = concurrency;
+            this.endpoints = endpoints;
+            long count = endpoints.values().stream().mapToLong(result -> result.histogram.getTotalCount()).sum();
+            this.throughput = count / (duration.toNanos() / 1e9);
+        }
+    }
+
+    static class EndpointResult {
+        final Histogram histogram;
+        final long errors;
+        final long shed;
+        final double throughput;
+
+        EndpointResult(Histogram histogram, long errors, long shed, Duration duration) {
+            this.histogram = histogram;
+            this.errors = errors;
+            this.shed = shed;
+            this.throughput = histogram.getTotalCount() / (duration.toNanos() / 1e9);
+        }
+
+        double millis(double percentile) {
+            return histogram.getValueAtPercentile(percentile) / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%9d %7d %7d %10.1f %9.2f %9.2f %9.2f %9.2f", histogram.getTotalCount(), errors,
+                    shed, throughput, millis(50), millis(99), millis(99.9), histogram.getMaxValue() / 1e6);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package study.querydsl.load;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entitiy.Member;
+import study.querydsl.entitiy.Team;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 회원 검색 API 부하 테스트 (./gradlew loadTest)
+ * <p>
+ * 내장 톰캣(RANDOM_PORT)을 띄우고 실제 HTTP 로 /v1, /v2, /v3/members 를 호출한다.
+ * MVC, JSON 직렬화, 커넥션 풀까지 포함한 엔드포인트별 처리량과 p50/p99/p99.9 지연 시간을 동시성 단계별로 출력한다.
+ *
+ * 설정 (-Pload.xxx=...)
+ * - members, teams: 미리 넣을 데이터 수 (기본 10000, 20)
+ * - concurrency: 동시성 단계 (기본 1,4,16)
+ * - warmup-seconds, duration-seconds: 단계별 워밍업, 측정 시간 (기본 5, 15)
+ * - mix: 엔드포인트 가중치 (기본 v1:1,v2:2,v3:7)
+ * - conditions: 검색 조건 가중치 (기본 empty:1,username:3,team:3,age:3), empty 는 조건 없는 전체 조회
+ * - max-page, page-size: v2, v3 에서 조회할 페이지 범위와 크기 (기본 20, 20)
+ * - seed: 난수 시드 (기본 42)
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "logging.level.org.hibernate.SQL=info",
+        "decorator.datasource.p6spy.enable-logging=false",
+        "spring.jpa.properties.hibernate.format_sql=false",
+        "spring.jpa.properties.hibernate.use_sql_comments=false"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class MemberLoadTest {
+
+    private static final int MEMBERS = Integer.getInteger("load.members", 10_000);
+    private static final int TEAMS = Integer.getInteger("load.teams", 20);
+    private static final int MAX_PAGE = Integer.getInteger("load.max-page", 20);
+    private static final int PAGE_SIZE = Integer.getInteger("load.page-size", 20);
+    private static final long SEED = Long.getLong("load.seed", 42);
+
+    @LocalServerPort
+    int port;
+    @Autowired
+    EntityManager em;
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @BeforeAll
+    void seed() {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Team> teams = new ArrayList<>();
+            for (int i = 0; i < TEAMS; i++) {
+                Team team = new Team("team" + i);
+                em.persist(team);
+                teams.add(team);
+            }
+            Random random = new Random(SEED);
+            for (int i = 0; i < MEMBERS; i++) {
+                em.persist(new Member("member" + i, random.nextInt(60) + 1, teams.get(i % TEAMS)));
+                if (i % 1000 == 999) {
+                    em.flush();
+                    em.clear();
+                    for (int t = 0; t < teams.size(); t++) {
+                        teams.set(t, em.find(Team.class, teams.get(t).getId()));
+                    }
+                }
+            }
+        });
+    }
+
+    @AfterAll
+    void cleanUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+            em.createNativeQuery("delete from member_team_view").executeUpdate();
+        });
+    }
+
+    @Test
+    void searchEndpoints() throws Exception {
+        Map<String, Integer> conditions = weights(System.getProperty("load.conditions", "empty:1,username:3,team:3,age:3"));
+        Function<Random, String> condition = condition(conditions);
+
+        Map<String, Function<Random, String>> endpoints = new LinkedHashMap<>();
+        endpoints.put("v1", random -> "/v1/members?" + condition.apply(random));
+        endpoints.put("v2", random -> "/v2/members?" + condition.apply(random) + page(random));
+        endpoints.put("v3", random -> "/v3/members?" + condition.apply(random) + page(random));
+
+        Map<String, Integer> mix = weights(System.getProperty("load.mix", "v1:1,v2:2,v3:7"));
+        LoadGenerator generator = new LoadGenerator("http://localhost:" + port, endpoints, mix);
+        Duration warmup = Duration.ofSeconds(Long.getLong("load.warmup-seconds", 5));
+        Duration duration = Duration.ofSeconds(Long.getLong("load.duration-seconds", 15));
+
+        System.out.printf("members=%d teams=%d mix=%s conditions=%s max-page=%d page-size=%d%n",
+                MEMBERS, TEAMS, mix, conditions, MAX_PAGE, PAGE_SIZE);
+        List<LoadGenerator.Result> results = new ArrayList<>();
+        for (String level : System.getProperty("load.concurrency", "1,4,16").split(",")) {
+            LoadGenerator.Result result = generator.run(Integer.parseInt(level.trim()), warmup, duration, SEED);
+            results.add(result);
+            print(result);
+        }
+        printSaturation(results);
+
+        for (LoadGenerator.Result result : results) {
+            result.endpoints.forEach((name, endpoint) -> {
+                assertThat(endpoint.errors).as("errors of %s at concurrency %d", name, result.concurrency).isZero();
+                assertThat(endpoint.histogram.getTotalCount()).isPositive();
+            });
+        }
+    }
+
+    private Function<Random, String> condition(Map<String, Integer> weights) {
+        List<String> weighted = new ArrayList<>();
+        weights.forEach((name, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                weighted.add(name);
+            }
+        });
+        return random -> {
+            String name = weighted.get(random.nextInt(weighted.size()));
+            switch (name) {
+                case "empty":
+                    return "";
+                case "username":
+                    return "username=member" + random.nextInt(MEMBERS);
+                case "team":
+                    return "teamName=team" + random.nextInt(TEAMS);
+                case "age":
+                    int ageGoe = random.nextInt(50) + 1;
+                    return "ageGoe=" + ageGoe + "&ageLoe=" + (ageGoe + 10);
+                default:
+                    throw new IllegalArgumentException("Unknown condition: " + name);
+            }
+        };
+    }
+
+    private static String page(Random random) {
+        return "&page=" + random.nextInt(MAX_PAGE) + "&size=" + PAGE_SIZE;
+    }
+
+    /**
+     * "v1:1,v2:2" -> {v1=1, v2=2}
+     */
+    private static Map<String, Integer> weights(String value) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : value.split(",")) {
+            String[] pair = entry.trim().split(":");
+            weights.put(pair[0], Integer.parseInt(pair[1]));
+        }
+        return weights;
+    }
+
+    private static void print(LoadGenerator.Result result) {
+        System.out.printf("%nconcurrency=%d throughput=%.1f req/s%n", result.concurrency, result.throughput);
+        System.out.println("endpoint     count  errors    shed      req/s   p50(ms)   p99(ms) p99.9(ms)   max(ms)");
+        result.endpoints.forEach((name, endpoint) -> System.out.printf("%-8s %s%n", name, endpoint));
+    }
+
+    /**
+     * 동시성을 올렸는데 처리량이 10% 미만으로 늘어난 첫 단계를 포화 지점으로 본다.
+     */
+    private static void printSaturation(List<LoadGenerator.Result> results) {
+        for (int i = 1; i < results.size(); i++) {
+            LoadGenerator.Result previous = results.get(i - 1);
+            LoadGenerator.Result current = results.get(i);
+            if (current.throughput < previous.throughput * 1.1) {
+                System.out.printf("%nsaturated at concurrency=%d (%.1f req/s, concurrency=%d gave %.1f req/s)%n",
+                        previous.concurrency, previous.throughput, current.concurrency, current.throughput);
+                return;
+            }
+        }
+        System.out.printf("%nnot saturated up to concurrency=%d%n", results.get(results.size() - 1).concurrency);
+    }
+}
@@ -0,0 +1,45 @@
+package study.querydsl.monitor;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConnectionPoolAutoSizerTest {
+
+    ConnectionPoolAutoSizer sizer = new ConnectionPoolAutoSizer(new ConnectionPoolMonitor(null, 30000), 3, 5, 0.5);
+
+    @Test
+    void growWhenWaitingLongerThanQueries() {
+        //대기 스레드가 있고 대기 시간이 쿼리 시간의 절반(wait-ratio)을 넘으면 하나 늘린다.
+        assertThat(sizer.nextSize(4, 2, 0, 10, 5)).isEqualTo(5);
+        //최대 크기(5)를 넘지 않는다.
+        assertThat(sizer.nextSize(5, 2, 0, 10, 5)).isEqualTo(5);
+
+        //대기 시간이 쿼리 시간에 비해 짧거나 대기 스레드가 없으면 그대로
+        assertThat(sizer.nextSize(4, 2, 0, 2, 5)).isEqualTo(4);
+        assertThat(sizer.nextSize(4, 0, 0, 10, 5)).isEqualTo(4);
+    }
+
+    @Test
+    void shrinkAfterIdleTicks() {
+        //대기가 없고 유휴 커넥션이 남는 구간이 6번 이어져야 하나 줄인다.
+        for (int i = 0; i < 5; i++) {
+            assertThat(sizer.nextSize(5, 0, 3, 0, 5)).isEqualTo(5);
+        }
+        assertThat(sizer.nextSize(5, 0, 3, 0, 5)).isEqualTo(4);
+
+        //중간에 바쁜 구간이 있으면 다시 센다.
+        for (int i = 0; i < 5; i++) {
+            sizer.nextSize(4, 0, 3, 0, 5);
+        }
+        sizer.nextSize(4, 0, 0, 0, 5);
+        assertThat(sizer.nextSize(4, 0, 3, 0, 5)).isEqualTo(4);
+    }
+
+    @Test
+    void neverBelowMinSize() {
+        for (int i = 0; i < 20; i++) {
+            assertThat(sizer.nextSize(3, 0, 3, 0, 5)).isEqualTo(3);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package study.querydsl.monitor;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 커넥션 이벤트를 받으려면 실제로 커넥션을 획득/반납해야 하므로 테스트 트랜잭션을 사용하지 않는다.
+ */
+@SpringBootTest(properties = "monitor.pool.leak-threshold-ms=0")
+class ConnectionPoolMonitorTest {
+
+    @Autowired
+    ConnectionPoolMonitor monitor;
+    @Autowired
+    DataSource dataSource;
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Test
+    void acquireAndUsageByRepositoryMethod() {
+        long acquired = monitor.acquireSnapshot().getCount();
+        long used = usageCount("MemberJpaRepository.findAll");
+
+        memberJpaRepository.findAll();
+
+        assertThat(monitor.acquireSnapshot().getCount()).isGreaterThan(acquired);
+        assertThat(usageCount("MemberJpaRepository.findAll")).isEqualTo(used + 1);
+        //메서드가 끝나면 이전 값으로 되돌린다.
+        assertThat(RepositoryMethodContext.current()).isEqualTo(RepositoryMethodContext.UNKNOWN);
+    }
+
+    @Test
+    void connectionAcquiredByOuterTransaction() {
+        long used = usageCount("MemberJpaRepository.findByUsername");
+
+        //트랜잭션을 시작할 때 획득한 커넥션은 처음 쿼리를 실행한 리포지토리 메서드로 기록한다.
+        transactionTemplate.executeWithoutResult(status -> {
+            memberJpaRepository.findByUsername("nobody");
+            memberJpaRepository.findAll();
+        });
+
+        assertThat(usageCount("MemberJpaRepository.findByUsername")).isEqualTo(used + 1);
+    }
+
+    @Test
+    void leakDetection() throws Exception {
+        String thread = Thread.currentThread().getName();
+        try (Connection connection = dataSource.getConnection()) {
+            //leak-threshold-ms=0 이므로 반납하지 않은 커넥션은 모두 누수 의심
+            assertThat(monitor.suspectedLeaks())
+                    .filteredOn(leak -> leak.getThread().equals(thread))
+                    .singleElement()
+                    .satisfies(leak -> assertThat(leak.getMethod()).isEqualTo(RepositoryMethodContext.UNKNOWN));
+            monitor.detectLeaks();
+            assertThat(monitor.snapshot().getLeased()).isPositive();
+        }
+
+        assertThat(monitor.suspectedLeaks()).noneMatch(leak -> leak.getThread().equals(thread));
+    }
+
+    private long usageCount(String method) {
+        LatencyStats.Snapshot usage = monitor.snapshot().getUsageByMethod().get(method);
+        return usage == null ? 0 : usage.getCount();
+    }
+}
@@ -0,0 +1,114 @@
+package study.querydsl.monitor;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entitiy.Member;
+import study.querydsl.entitiy.QMember;
+import study.querydsl.entitiy.Team;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest(properties = "monitor.slow-query.threshold-ms=0")
+@Transactional
+class IndexAdvisorTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    IndexAdvisor indexAdvisor;
+    @Autowired
+    SlowQueryLog slowQueryLog;
+
+    @BeforeEach
+    void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 100; i++) {
+            em.persist(new Member("member" + i, i, i % 2 == 0 ? teamA : teamB));
+        }
+        em.flush();
+        indexAdvisor.clear();
+        slowQueryLog.clear();
+    }
+
+    @Test
+    void recommendCompositeIndex() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        condition.setAgeGoe(20);
+        memberRepository.search(condition);
+        memberRepository.searchPageComplex(condition, PageRequest.of(0, 10));
+
+        MemberSearchCondition sortByAge = new MemberSearchCondition();
+        sortByAge.setAgeGoe(50);
+        memberRepository.searchPageComplex(sortByAge, PageRequest.of(0, 10, Sort.by("age", "memberId")));
+
+        assertThat(indexAdvisor.recommendations())
+                .extracting("table", "columns", "occurrences", "coveredBy")
+                .contains(
+                        tuple("team", Arrays.asList("name"), 2L, "idx_team_name"),
+                        tuple("member", Arrays.asList("team_id", "age"), 2L, "idx_member_team_age"),
+                        tuple("member", Arrays.asList("age", "id"), 1L, "idx_member_age_id"));
+    }
+
+    @Test
+    void explainUsesDeclaredIndex() throws Exception {
+        String memberPlan = (String) em.createNativeQuery("explain select * from member where username = 'member1'")
+                .getSingleResult();
+        assertThat(memberPlan).containsIgnoringCase("idx_member_username");
+
+        String teamPlan = (String) em.createNativeQuery("explain select * from team where name = 'teamA'")
+                .getSingleResult();
+        assertThat(teamPlan).containsIgnoringCase("idx_team_name");
+    }
+
+    /**
+     * 리포지토리가 만든 SQL 의 실행 계획 (SlowQueryLog 임계치 0 으로 모든 조회의 EXPLAIN 을 남긴다)
+     */
+    @Test
+    void searchSqlUsesCompositeIndex() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        condition.setAgeGoe(20);
+        memberRepository.search(condition);
+
+        assertThat(plans("MemberRepositoryImpl.search"))
+                .anySatisfy(plan -> assertThat(plan)
+                        .containsIgnoringCase("idx_team_name")
+                        .containsIgnoringCase("idx_member_team_age"));
+
+        memberRepository.searchPredicate(QMember.member.age.goe(50), PageRequest.of(0, 10, Sort.by("age")));
+
+        //order by age, id 를 인덱스 순서로 읽는다.
+        assertThat(plans("MemberRepositoryImpl.searchPredicate"))
+                .anySatisfy(plan -> assertThat(plan)
+                        .containsIgnoringCase("idx_member_age_id")
+                        .containsIgnoringCase("index sorted"));
+    }
+
+    private List<String> plans(String repositoryMethod) {
+        return slowQueryLog.recent().stream()
+                .filter(query -> repositoryMethod.equals(query.getRepositoryMethod()))
+                .map(SlowQueryLog.SlowQuery::getPlan)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,129 @@
+package study.querydsl.monitor;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entitiy.Member;
+import study.querydsl.entitiy.Team;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class RepositoryQueryEventTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Test
+    void recordRepositoryQueries() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < 5; i++) {
+            em.persist(new Member("member" + i, 10 + i, teamA));
+        }
+        em.flush();
+        em.clear();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        condition.setAgeGoe(11);
+
+        //녹화 전 호출은 기록하지 않는다.
+        memberRepository.search(condition);
+
+        //when
+        Path file = Files.createTempFile("repository-query", ".jfr");
+        try (Reader profile = new InputStreamReader(
+                getClass().getResourceAsStream("/jfr/repository-query.jfc"), StandardCharsets.UTF_8);
+             Recording recording = new Recording(Configuration.create(profile))) {
+            recording.start();
+            memberRepository.search(condition);
+            memberRepository.searchPageComplex(condition, PageRequest.of(0, 2));
+            recording.stop();
+            recording.dump(file);
+        }
+
+        //then
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals(RepositoryQueryEvent.NAME))
+                .collect(Collectors.toList());
+        assertThat(events).extracting(event -> event.getString("method"))
+                .containsExactly("MemberRepositoryImpl.search", "MemberRepositoryImpl.searchPageComplex");
+
+        RecordedEvent search = events.get(0);
+        assertThat(search.getLong("rows")).isEqualTo(4);
+        assertThat(search.getInt("queries")).isEqualTo(1);
+        assertThat(search.getInt("statements")).isEqualTo(1);
+        assertThat(search.getString("predicateShape")).contains("team.name = ?1").contains("member1.age >= ?2");
+        assertThat(search.getLong("jpqlBuildTime")).isPositive();
+        assertThat(search.getLong("sqlExecutionTime")).isPositive();
+
+        RecordedEvent page = events.get(1);
+        assertThat(page.getLong("rows")).isEqualTo(2);
+        assertThat(page.getInt("queries")).isEqualTo(2); //content + count
+
+        List<RepositoryQueryEventAnalyzer.Summary> summaries = RepositoryQueryEventAnalyzer.summarize(file);
+        assertThat(summaries).extracting(RepositoryQueryEventAnalyzer.Summary::getMethod)
+                .containsExactlyInAnyOrder("MemberRepositoryImpl.search", "MemberRepositoryImpl.searchPageComplex");
+        assertThat(summaries).allSatisfy(summary -> assertThat(summary.getCount()).isEqualTo(1));
+        Files.delete(file);
+    }
+
+    @Test
+    void recordNativeSqlQueries() throws Exception {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.flush();
+        em.clear();
+
+        MemberSearchCondition first = new MemberSearchCondition();
+        first.setUsername("member1");
+        MemberSearchCondition second = new MemberSearchCondition();
+        second.setAgeGoe(10);
+
+        Path file = Files.createTempFile("repository-query", ".jfr");
+        try (Reader profile = new InputStreamReader(
+                getClass().getResourceAsStream("/jfr/repository-query.jfc"), StandardCharsets.UTF_8);
+             Recording recording = new Recording(Configuration.create(profile))) {
+            recording.start();
+            memberRepository.searchBatch(Arrays.asList(first, second));
+            recording.stop();
+            recording.dump(file);
+        }
+
+        //UNION ALL 로 실행하는 Querydsl SQL 쿼리도 생성 시간과 첫 조건 모양을 기록한다.
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals(RepositoryQueryEvent.NAME))
+                .collect(Collectors.toList());
+        assertThat(events).hasSize(1);
+        RecordedEvent batch = events.get(0);
+        assertThat(batch.getString("method")).isEqualTo("MemberRepositoryImpl.searchBatch");
+        assertThat(batch.getInt("queries")).isEqualTo(1);
+        assertThat(batch.getString("predicateShape")).contains("username = ?");
+        assertThat(batch.getLong("jpqlBuildTime")).isPositive();
+        Files.delete(file);
+    }
+}
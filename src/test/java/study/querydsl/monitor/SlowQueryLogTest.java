@@ -0,0 +1,51 @@
+package study.querydsl.monitor;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entitiy.Member;
+import study.querydsl.entitiy.Team;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "monitor.slow-query.threshold-ms=0")
+@Transactional
+class SlowQueryLogTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    SlowQueryLog slowQueryLog;
+
+    @Test
+    void captureRepositoryMethodAndPlan() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.flush();
+        slowQueryLog.clear();
+
+        //when
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("member1");
+        memberRepository.searchPageSimple(condition, PageRequest.of(0, 3));
+
+        //then
+        assertThat(slowQueryLog.recent())
+                .filteredOn(query -> query.getSql().contains("member1"))
+                .isNotEmpty()
+                .allSatisfy(query -> {
+                    assertThat(query.getRepositoryMethod()).isEqualTo("MemberRepositoryImpl.searchPageSimple");
+                    assertThat(query.getPlan()).containsIgnoringCase("member");
+                });
+    }
+}
@@ -0,0 +1,162 @@
+package study.querydsl.paging;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import study.querydsl.cache.DataVersion;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveCountPolicyTest {
+
+    private static final int TOTAL = 1000;
+
+    DataVersion dataVersion = new DataVersion();
+    AdaptiveCountPolicy policy;
+    List<Integer> rows = new ArrayList<>();
+
+    //count 쿼리가 countMillis 만큼 시간을 진행시키는 시계
+    AtomicLong clock = new AtomicLong();
+    AtomicLong countMillis = new AtomicLong();
+    AtomicInteger exactCounts = new AtomicInteger();
+    AtomicInteger cappedCounts = new AtomicInteger();
+
+    @BeforeEach
+    void before() {
+        //EWMA 가 5ms 초과: CACHED, 20ms 초과: CAPPED, 60ms 초과: SLICE
+        policy = new AdaptiveCountPolicy(dataVersion, 5, 20, 60, 0.5, 100, 4, 10, clock::get);
+        for (int i = 0; i < TOTAL; i++) {
+            rows.add(i);
+        }
+    }
+
+    @Test
+    void cheapCountIsExact() {
+        AdaptivePage<Integer> page = page(condition("teamA"), PageRequest.of(1, 10));
+
+        assertThat(page.getCountStrategy()).isEqualTo(CountStrategy.EXACT);
+        assertThat(page.isTotalExact()).isTrue();
+        assertThat(page.getTotalElements()).isEqualTo(TOTAL);
+        assertThat(page.getContent()).containsExactly(10, 11, 12, 13, 14, 15, 16, 17, 18, 19);
+        assertThat(exactCounts).hasValue(1);
+    }
+
+    @Test
+    void expensiveCountIsCapped() {
+        MemberSearchCondition condition = condition("teamA");
+        countMillis.set(30);
+        assertThat(page(condition, PageRequest.of(1, 10)).getCountStrategy()).isEqualTo(CountStrategy.EXACT);
+
+        AdaptivePage<Integer> page = page(condition, PageRequest.of(1, 10));
+
+        //cap(100)건 이상이면 "100+"
+        assertThat(page.getCountStrategy()).isEqualTo(CountStrategy.CAPPED);
+        assertThat(page.isTotalExact()).isFalse();
+        assertThat(page.getTotalElements()).isEqualTo(100);
+        assertThat(page.getContent()).hasSize(10);
+        assertThat(page.hasNext()).isTrue();
+        assertThat(exactCounts).hasValue(1);
+        assertThat(cappedCounts).hasValue(1);
+
+        //다른 조건 모양은 영향이 없다.
+        MemberSearchCondition other = new MemberSearchCondition();
+        other.setAgeGoe(10);
+        countMillis.set(0);
+        assertThat(page(other, PageRequest.of(1, 10)).getCountStrategy()).isEqualTo(CountStrategy.EXACT);
+    }
+
+    @Test
+    void veryExpensiveCountIsSkipped() {
+        MemberSearchCondition condition = condition("teamA");
+        countMillis.set(80);
+        page(condition, PageRequest.of(1, 10));
+
+        AdaptivePage<Integer> page = page(condition, PageRequest.of(1, 10));
+
+        assertThat(page.getCountStrategy()).isEqualTo(CountStrategy.SLICE);
+        assertThat(page.isTotalExact()).isFalse();
+        assertThat(page.getContent()).containsExactly(10, 11, 12, 13, 14, 15, 16, 17, 18, 19);
+        assertThat(page.hasNext()).isTrue();
+        assertThat(page.getTotalElements()).isEqualTo(21);
+        assertThat(exactCounts).hasValue(1);
+        assertThat(cappedCounts).hasValue(0);
+
+        //마지막 페이지
+        AdaptivePage<Integer> last = page(condition, PageRequest.of(99, 10));
+        assertThat(last.hasNext()).isFalse();
+        assertThat(last.getTotalElements()).isEqualTo(TOTAL);
+    }
+
+    @Test
+    void cachedCountIsReusedUntilDataChanges() {
+        MemberSearchCondition condition = condition("teamA");
+        countMillis.set(10);
+        page(condition, PageRequest.of(1, 10));
+
+        AdaptivePage<Integer> first = page(condition, PageRequest.of(1, 10));
+        AdaptivePage<Integer> second = page(condition, PageRequest.of(2, 10));
+
+        assertThat(first.getCountStrategy()).isEqualTo(CountStrategy.CACHED);
+        assertThat(first.isTotalExact()).isTrue();
+        assertThat(second.getTotalElements()).isEqualTo(TOTAL);
+        assertThat(exactCounts).hasValue(2);
+
+        //값이 다른 조건은 따로 센다.
+        page(condition("teamB"), PageRequest.of(1, 10));
+        assertThat(exactCounts).hasValue(3);
+
+        dataVersion.markChanged();
+        page(condition, PageRequest.of(1, 10));
+        assertThat(exactCounts).hasValue(4);
+    }
+
+    @Test
+    void switchesBackWhenCountGetsCheap() {
+        MemberSearchCondition condition = condition("teamA");
+        countMillis.set(30);
+        page(condition, PageRequest.of(1, 10));
+        assertThat(page(condition, PageRequest.of(1, 10)).getCountStrategy()).isEqualTo(CountStrategy.CAPPED);
+
+        //probe-interval(4)번째 요청마다 정확한 count 로 다시 잰다.
+        countMillis.set(0);
+        List<CountStrategy> strategies = new ArrayList<>();
+        for (int i = 0; i < 100 && policy.stats().get("teamName").getStrategy() != CountStrategy.EXACT; i++) {
+            strategies.add(page(condition, PageRequest.of(1, 10)).getCountStrategy());
+        }
+
+        assertThat(policy.stats().get("teamName").getStrategy()).isEqualTo(CountStrategy.EXACT);
+        assertThat(strategies).contains(CountStrategy.CAPPED, CountStrategy.EXACT);
+        //평균이 임계치의 절반 아래로 내려가야 돌아오므로 한번에 돌아오지 않는다.
+        assertThat(strategies.indexOf(CountStrategy.EXACT)).isGreaterThan(0);
+        assertThat(page(condition, PageRequest.of(1, 10)).isTotalExact()).isTrue();
+    }
+
+    private AdaptivePage<Integer> page(MemberSearchCondition condition, Pageable pageable) {
+        return policy.page(condition, pageable,
+                limit -> new ArrayList<>(rows.subList((int) pageable.getOffset(),
+                        (int) Math.min(TOTAL, pageable.getOffset() + limit))),
+                () -> {
+                    exactCounts.incrementAndGet();
+                    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(countMillis.get()));
+                    return TOTAL;
+                },
+                cap -> {
+                    cappedCounts.incrementAndGet();
+                    return Math.min(TOTAL, cap);
+                });
+    }
+
+    private static MemberSearchCondition condition(String teamName) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        return condition;
+    }
+}
@@ -0,0 +1,184 @@
+package study.querydsl.readmodel;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entitiy.Member;
+import study.querydsl.entitiy.Team;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * 조회 모델은 커밋할 때 갱신되므로 데이터를 커밋하고 정리한다.
+ */
+@SpringBootTest
+class MemberTeamViewTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    TransactionTemplate transactionTemplate;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    MemberTeamViewChecker memberTeamViewChecker;
+
+    Long teamAId;
+    Long teamBId;
+    Long member1Id;
+
+    @BeforeEach
+    void before() {
+        //다른 테스트가 벌크 삭제로 남긴 행 정리
+        memberTeamViewChecker.rebuild();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            Member member1 = new Member("member1", 10, teamA);
+            em.persist(member1);
+            em.persist(new Member("member2", 20, teamA));
+            em.persist(new Member("member3", 30, teamB));
+            em.persist(new Member("member4", 40));
+            teamAId = teamA.getId();
+            teamBId = teamB.getId();
+            member1Id = member1.getId();
+        });
+    }
+
+    @AfterEach
+    void after() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+            em.createNativeQuery("delete from member_team_view").executeUpdate();
+        });
+    }
+
+    @Test
+    void persist() {
+        assertSameAsSource();
+        assertThat(memberTeamViewChecker.check().isConsistent()).isTrue();
+    }
+
+    @Test
+    void dirtyCheckingUpdate() {
+        //flush 없이 커밋할 때의 변경 감지로 나가는 수정도 반영된다.
+        transactionTemplate.executeWithoutResult(status -> {
+            Member member1 = em.find(Member.class, member1Id);
+            member1.setAge(11);
+            member1.changeTeam(em.find(Team.class, teamBId));
+        });
+
+        assertSameAsSource();
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamB");
+        assertThat(memberRepository.searchView(condition))
+                .extracting("username", "age")
+                .contains(tuple("member1", 11));
+    }
+
+    @Test
+    void renameTeam() {
+        transactionTemplate.executeWithoutResult(status -> em.find(Team.class, teamAId).setName("teamC"));
+
+        assertSameAsSource();
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamC");
+        assertThat(memberRepository.searchView(condition)).extracting("username")
+                .containsExactlyInAnyOrder("member1", "member2");
+    }
+
+    @Test
+    void remove() {
+        transactionTemplate.executeWithoutResult(status -> em.remove(em.find(Member.class, member1Id)));
+
+        assertSameAsSource();
+        assertThat(memberTeamViewChecker.check().getViewRows()).isEqualTo(3);
+    }
+
+    @Test
+    void rollback() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(new Member("member5", 50));
+            status.setRollbackOnly();
+        });
+
+        assertSameAsSource();
+        assertThat(memberTeamViewChecker.check().isConsistent()).isTrue();
+    }
+
+    @Test
+    void requiresNew() {
+        //안쪽 트랜잭션의 변경은 안쪽이 커밋될 때 반영되고, 바깥 트랜잭션의 롤백과 상관없다.
+        TransactionTemplate requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(new Member("member5", 50));
+            em.flush();
+            requiresNew.executeWithoutResult(inner -> em.find(Member.class, member1Id).setAge(11));
+            status.setRollbackOnly();
+        });
+
+        assertSameAsSource();
+        assertThat(memberTeamViewChecker.check().isConsistent()).isTrue();
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("member1");
+        assertThat(memberRepository.searchView(condition)).extracting("age").containsExactly(11);
+    }
+
+    @Test
+    void bulkUpdateNeedsRebuild() {
+        transactionTemplate.executeWithoutResult(status ->
+                em.createQuery("update Member m set m.age = m.age + 1").executeUpdate());
+
+        MemberTeamViewChecker.Report report = memberTeamViewChecker.check();
+        assertThat(report.isConsistent()).isFalse();
+        assertThat(report.getMissingOrStale()).isEqualTo(4);
+        assertThat(report.getSampleMemberIds()).contains(member1Id);
+
+        assertThat(memberTeamViewChecker.rebuild()).isEqualTo(4);
+        assertThat(memberTeamViewChecker.check().isConsistent()).isTrue();
+        assertSameAsSource();
+    }
+
+    @Test
+    void searchPageView() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(15);
+
+        Page<MemberTeamDto> page = memberRepository.searchPageView(condition, PageRequest.of(0, 2));
+
+        assertThat(page.getTotalElements()).isEqualTo(3);
+        assertThat(page.getContent()).hasSize(2);
+    }
+
+    private void assertSameAsSource() {
+        MemberSearchCondition all = new MemberSearchCondition();
+        List<MemberTeamDto> source = memberRepository.search(all);
+        List<MemberTeamDto> view = memberRepository.searchView(all);
+        source.sort(Comparator.comparing(MemberTeamDto::getMemberId));
+        view.sort(Comparator.comparing(MemberTeamDto::getMemberId));
+        assertThat(view).isEqualTo(source);
+    }
+}
@@ -0,0 +1,70 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberRankDto;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entitiy.Member;
+import study.querydsl.entitiy.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberRankingRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MemberRankingRepository memberRankingRepository;
+
+    @BeforeEach
+    void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("member5", 50)); //팀 없는 회원은 팀별 순위에서 제외
+
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void findOldestPerTeam() throws Exception {
+        List<MemberTeamDto> result = memberRankingRepository.findOldestPerTeam(1);
+
+        assertThat(result).extracting("username").containsExactly("member2", "member4");
+        assertThat(result).extracting("teamName").containsExactly("teamA", "teamB");
+    }
+
+    @Test
+    void findOldestPerTeamLimit() throws Exception {
+        List<MemberTeamDto> result = memberRankingRepository.findOldestPerTeam(2);
+
+        assertThat(result).extracting("username").containsExactly("member2", "member1", "member4", "member3");
+    }
+
+    @Test
+    void rankByAge() throws Exception {
+        List<MemberRankDto> result = memberRankingRepository.rankByAge();
+
+        assertThat(result).hasSize(5);
+        MemberRankDto member4 = result.stream()
+                .filter(dto -> dto.getUsername().equals("member4"))
+                .findFirst().get();
+        assertThat(member4.getTeamRank()).isEqualTo(1L);
+        assertThat(member4.getAgePercentRank()).isEqualTo(0.75);
+    }
+}
@@ -0,0 +1,106 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entitiy.Member;
+import study.querydsl.entitiy.Team;
+import study.querydsl.paging.AdaptiveCountPolicy;
+import study.querydsl.paging.AdaptivePage;
+import study.querydsl.paging.CountStrategy;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * searchPageComplex 의 count 방법별 실제 쿼리
+ * 임계치를 0 으로 두면 첫 count 이후 그 조건 모양은 바로 더 싼 방법으로 바뀐다.
+ */
+@SpringBootTest(properties = {
+        "paging.count.cached-ms=0",
+        "paging.count.capped-ms=0",
+        "paging.count.slice-ms=100000",
+        "paging.count.cap=3",
+        "paging.count.probe-interval=1000"
+})
+@Transactional
+class MemberRepositoryCountStrategyTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    AdaptiveCountPolicy countPolicy;
+
+    @BeforeEach
+    void before() {
+        countPolicy.clear();
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 4; i++) {
+            em.persist(new Member("member" + i, 10 + i, teamA));
+        }
+        em.persist(new Member("member4", 20, teamB));
+        em.persist(new Member("member5", 30));
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void capped() {
+        //첫 요청은 정확한 count 로 비용을 잰다.
+        AdaptivePage<MemberTeamDto> first = page("teamA");
+        assertThat(first.getCountStrategy()).isEqualTo(CountStrategy.EXACT);
+        assertThat(first.getTotalElements()).isEqualTo(4);
+
+        //cap(3)건을 넘으면 "3+"
+        AdaptivePage<MemberTeamDto> capped = page("teamA");
+        assertThat(capped.getCountStrategy()).isEqualTo(CountStrategy.CAPPED);
+        assertThat(capped.isTotalExact()).isFalse();
+        assertThat(capped.getTotalElements()).isEqualTo(3);
+        assertThat(capped.getContent()).hasSize(2);
+        assertThat(capped.hasNext()).isTrue();
+
+        //cap 이하면 정확한 건수, 팀 이름 조건은 조인한 team 으로 센다.
+        AdaptivePage<MemberTeamDto> exact = page("teamB");
+        assertThat(exact.getCountStrategy()).isEqualTo(CountStrategy.CAPPED);
+        assertThat(exact.isTotalExact()).isTrue();
+        assertThat(exact.getTotalElements()).isEqualTo(1);
+    }
+
+    private AdaptivePage<MemberTeamDto> page(String teamName) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        return (AdaptivePage<MemberTeamDto>) memberRepository.searchPageComplex(condition, PageRequest.of(0, 2));
+    }
+
+    @Nested
+    @TestPropertySource(properties = "paging.count.slice-ms=0")
+    class Slice {
+
+        @Test
+        void slice() {
+            page("teamA");
+
+            AdaptivePage<MemberTeamDto> slice = page("teamA");
+
+            //count 없이 지금까지 본 건수 + 다음 페이지가 있으면 1
+            assertThat(slice.getCountStrategy()).isEqualTo(CountStrategy.SLICE);
+            assertThat(slice.isTotalExact()).isFalse();
+            assertThat(slice.getContent()).hasSize(2);
+            assertThat(slice.hasNext()).isTrue();
+            assertThat(slice.getTotalElements()).isEqualTo(3);
+        }
+    }
+}
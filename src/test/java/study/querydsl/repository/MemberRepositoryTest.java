@@ -1,10 +1,14 @@
 package study.querydsl.repository;
 
+import com.querydsl.core.types.Predicate;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
@@ -13,9 +17,12 @@ import study.querydsl.entitiy.QMember;
 import study.querydsl.entitiy.Team;
 
 import javax.persistence.EntityManager;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
@@ -143,6 +150,160 @@ class MemberRepositoryTest {
         assertThat(result.getContent()).extracting("username").containsExactly("member1", "member2", "member3");
     }
 
+    @Test
+    void searchSlice() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        //when
+        Slice<MemberTeamDto> first = memberRepository.searchSlice(condition, PageRequest.of(0, 3));
+        Slice<MemberTeamDto> last = memberRepository.searchSlice(condition, PageRequest.of(1, 3));
+
+        //then
+        assertThat(first.getContent()).extracting("username").containsExactly("member1", "member2", "member3");
+        assertThat(first.hasNext()).isTrue();
+        assertThat(last.getContent()).extracting("username").containsExactly("member4");
+        assertThat(last.hasNext()).isFalse();
+    }
+
+    @Test
+    void searchSliceSorted() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 20, teamA));
+        em.persist(new Member("member2", 10, teamA));
+        em.persist(new Member("member3", 20, teamA));
+        em.persist(new Member("member4", 10, teamA));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        //when (나이 내림차순, 같은 나이는 id 순서)
+        Slice<MemberTeamDto> first = memberRepository.searchSlice(condition,
+                PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "age")));
+        Slice<MemberTeamDto> last = memberRepository.searchSlice(condition,
+                PageRequest.of(1, 3, Sort.by(Sort.Direction.DESC, "age")));
+
+        //then
+        assertThat(first.getContent()).extracting("username").containsExactly("member1", "member3", "member2");
+        assertThat(last.getContent()).extracting("username").containsExactly("member4");
+
+        assertThatThrownBy(() -> memberRepository.searchSlice(condition, PageRequest.of(0, 3, Sort.by("teamName"))))
+                .isInstanceOf(InvalidDataAccessApiUsageException.class);
+    }
+
+    @Test
+    void searchPredicateOnTeamAlias() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamB));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40));
+
+        QMember member = QMember.member;
+
+        //member.team.name 은 조인한 team 별칭으로, member.team.id 는 외래키 그대로
+        assertThat(MemberRepositoryImpl.onTeamAlias(member.team.name.eq("teamB")).toString())
+                .isEqualTo("team.name = teamB");
+        Predicate byTeamId = member.team.id.eq(teamA.getId());
+        assertThat(MemberRepositoryImpl.onTeamAlias(byTeamId)).isSameAs(byTeamId);
+
+        //when
+        Page<MemberTeamDto> result = memberRepository.searchPredicate(
+                member.team.name.eq("teamB").and(member.age.goe(20)), PageRequest.of(0, 1));
+
+        //then
+        assertThat(result.getContent()).extracting("username").containsExactly("member2");
+        assertThat(result.getTotalElements()).isEqualTo(2);
+    }
+
+    @Test
+    void searchBatch() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.flush();
+
+        MemberSearchCondition teamBCondition = new MemberSearchCondition();
+        teamBCondition.setTeamName("teamB");
+        MemberSearchCondition ageCondition = new MemberSearchCondition();
+        ageCondition.setAgeGoe(20);
+        ageCondition.setAgeLoe(30);
+        MemberSearchCondition usernameCondition = new MemberSearchCondition();
+        usernameCondition.setUsername("member1");
+
+        //when
+        List<List<MemberTeamDto>> result = memberRepository.searchBatch(
+                Arrays.asList(teamBCondition, ageCondition, usernameCondition));
+
+        //then
+        assertThat(result).hasSize(3);
+        assertThat(result.get(0)).extracting("username").containsExactly("member3", "member4");
+        assertThat(result.get(1)).extracting("username").containsExactly("member2", "member3");
+        assertThat(result.get(2)).extracting("username").containsExactly("member1");
+
+        //조건마다 회원 id 순서로 limit 건까지
+        List<List<MemberTeamDto>> limited = memberRepository.searchBatch(
+                Arrays.asList(teamBCondition, ageCondition, usernameCondition), 1);
+        assertThat(limited.get(0)).extracting("username").containsExactly("member3");
+        assertThat(limited.get(1)).extracting("username").containsExactly("member2");
+        assertThat(limited.get(2)).extracting("username").containsExactly("member1");
+
+        //조건이 없는 검색은 전체 조회가 되므로 받지 않는다.
+        assertThatThrownBy(() -> memberRepository.searchBatch(
+                Arrays.asList(usernameCondition, new MemberSearchCondition())))
+                .isInstanceOf(InvalidDataAccessApiUsageException.class)
+                .hasMessageContaining("Batch condition 1");
+    }
+
+    @Test
+    void searchFields() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        Member member1 = new Member("member1", 10, teamA);
+        em.persist(member1);
+        em.persist(new Member("member2", 20));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(10);
+
+        //when
+        List<Map<String, Object>> result = memberRepository.searchFields(condition, Arrays.asList("username", "teamId", "memberId"));
+
+        //then (회원 id 순서)
+        assertThat(result).hasSize(2);
+        assertThat(result.get(0)).containsOnlyKeys("memberId", "username", "teamId");
+        assertThat(result.get(0)).containsEntry("memberId", member1.getId())
+                .containsEntry("username", "member1")
+                .containsEntry("teamId", teamA.getId());
+        assertThat(result.get(1)).containsEntry("teamId", null);
+
+        assertThatThrownBy(() -> memberRepository.searchFields(condition, Arrays.asList("password")))
+                .isInstanceOf(InvalidDataAccessApiUsageException.class);
+    }
+
     /**
      * 한계점
      * 조인X (묵시적 조인은 가능하지만 left join이 불가능하다.)
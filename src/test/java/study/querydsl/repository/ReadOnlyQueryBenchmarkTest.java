@@ -0,0 +1,152 @@
+package study.querydsl.repository;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entitiy.Member;
+import study.querydsl.entitiy.Team;
+
+import javax.persistence.EntityManager;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 엔티티 10,000건 조회 비용 비교 (./gradlew benchmark)
+ * - managed: 일반 조회, 엔티티마다 스냅샷을 만들고 flush 할 때 변경 감지
+ * - readOnly: org.hibernate.readOnly + FlushMode.MANUAL 힌트
+ * - stateless: StatelessSession, 영속성 컨텍스트 없음
+ *
+ * 조회 + flush 까지 현재 스레드가 할당한 메모리와 CPU 시간을 측정한다. (반복 측정의 중앙값)
+ */
+@Tag("benchmark")
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ReadOnlyQueryBenchmarkTest {
+
+    private static final int ROWS = 10_000;
+    private static final int WARMUP = 3;
+    private static final int ITERATIONS = 7;
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    TransactionTemplate transactionTemplate;
+    @Autowired
+    MemberTestRepository memberTestRepository;
+
+    @BeforeAll
+    void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team team = new Team("team");
+            em.persist(team);
+            for (int i = 0; i < ROWS; i++) {
+                em.persist(new Member("member" + i, i % 100, team));
+                if (i % 1000 == 0) {
+                    em.flush();
+                    em.clear();
+                    team = em.find(Team.class, team.getId());
+                }
+            }
+        });
+    }
+
+    @AfterAll
+    void after() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @Test
+    void readOnlyQueries() throws Exception {
+        Result managed = measure("managed", memberTestRepository::basicSelect);
+        Result readOnly = measure("readOnly", memberTestRepository::basicSelectReadOnly);
+        Result stateless = measure("stateless", memberTestRepository::basicSelectStateless);
+
+        System.out.println("mode        allocated(KB)   cpu(ms)   managed entities");
+        for (Result result : Arrays.asList(managed, readOnly, stateless)) {
+            System.out.println(result);
+        }
+
+        assertThat(managed.managedEntities).isEqualTo(ROWS);
+        assertThat(readOnly.managedEntities).isEqualTo(ROWS);
+        assertThat(stateless.managedEntities).isZero();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Member> members = memberTestRepository.basicSelectReadOnly();
+            assertThat(em.unwrap(Session.class).isReadOnly(members.get(0))).isTrue();
+        });
+    }
+
+    private Result measure(String mode, Supplier<List<Member>> query) {
+        long[] allocated = new long[ITERATIONS];
+        long[] cpu = new long[ITERATIONS];
+        int[] managedEntities = new int[1];
+
+        for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+            int iteration = i - WARMUP;
+            transactionTemplate.executeWithoutResult(status -> {
+                long allocatedBefore = allocatedBytes();
+                long cpuBefore = cpuNanos();
+
+                List<Member> members = query.get();
+                em.flush(); //변경 감지 비용 포함
+
+                long allocatedAfter = allocatedBytes();
+                long cpuAfter = cpuNanos();
+                assertThat(members).hasSize(ROWS);
+                if (iteration >= 0) {
+                    allocated[iteration] = allocatedAfter - allocatedBefore;
+                    cpu[iteration] = cpuAfter - cpuBefore;
+                    managedEntities[0] = em.unwrap(Session.class).getStatistics().getEntityCount();
+                }
+            });
+        }
+        return new Result(mode, median(allocated), median(cpu), managedEntities[0]);
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static long cpuNanos() {
+        return ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime();
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static class Result {
+        private final String mode;
+        private final long allocatedBytes;
+        private final long cpuNanos;
+        private final int managedEntities;
+
+        Result(String mode, long allocatedBytes, long cpuNanos, int managedEntities) {
+            this.mode = mode;
+            this.allocatedBytes = allocatedBytes;
+            this.cpuNanos = cpuNanos;
+            this.managedEntities = managedEntities;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-10s %14d %9.1f %18d", mode, allocatedBytes / 1024, cpuNanos / 1_000_000.0, managedEntities);
+        }
+    }
+}
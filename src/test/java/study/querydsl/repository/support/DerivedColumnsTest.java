@@ -0,0 +1,91 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.types.dsl.NumberExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entitiy.Member;
+import study.querydsl.entitiy.QMember;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entitiy.QMember.member;
+
+@SpringBootTest
+@Transactional
+class DerivedColumnsTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @BeforeEach
+    void before() {
+        em.persist(new Member("Member1", 10));
+        em.persist(new Member("member2", 25));
+        em.persist(new Member("MEMBER3", 40));
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void lowerUsername() throws Exception {
+        String jpql = queryFactory
+                .selectFrom(member)
+                .where(member.username.lower().eq("member1"))
+                .toString();
+        assertThat(jpql).contains("member1.usernameLower").doesNotContain("lower(");
+
+        List<String> result = queryFactory
+                .select(member.username)
+                .from(member)
+                .where(member.username.equalsIgnoreCase("MEMBER1"))
+                .fetch();
+        assertThat(result).containsExactly("Member1");
+
+        //별칭이 달라도 바꾼다.
+        QMember m = new QMember("m");
+        List<String> prefix = queryFactory
+                .select(m.username)
+                .from(m)
+                .where(m.username.startsWithIgnoreCase("MEM"))
+                .orderBy(m.username.lower().asc())
+                .fetch();
+        assertThat(prefix).containsExactly("Member1", "member2", "MEMBER3");
+    }
+
+    @Test
+    void ageBucket() throws Exception {
+        //QuerydslBasicTest.orderByWithCase 와 같은 식
+        NumberExpression<Integer> rankPath = DerivedColumns.ageBucket(member);
+
+        String jpql = queryFactory.select(member.username).from(member).orderBy(rankPath.desc()).toString();
+        assertThat(jpql).contains("member1.ageBucket").doesNotContain("case");
+
+        List<String> result = queryFactory
+                .select(member.username)
+                .from(member)
+                .orderBy(rankPath.desc(), member.age.asc())
+                .fetch();
+        assertThat(result).containsExactly("MEMBER3", "Member1", "member2");
+    }
+
+    @Test
+    void bulkUpdate() throws Exception {
+        //벌크 수정은 엔티티 콜백을 거치지 않지만 계산 컬럼은 DB가 다시 계산한다.
+        queryFactory.update(member).set(member.age, 25).execute();
+
+        Long count = queryFactory
+                .select(member.count())
+                .from(member)
+                .where(DerivedColumns.ageBucket(member).eq(1))
+                .fetchOne();
+        assertThat(count).isEqualTo(3);
+    }
+}
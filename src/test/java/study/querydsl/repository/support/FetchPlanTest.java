@@ -0,0 +1,152 @@
+package study.querydsl.repository.support;
+
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entitiy.Member;
+import study.querydsl.entitiy.Team;
+import study.querydsl.monitor.SlowQueryLog;
+import study.querydsl.repository.MemberTestRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {"monitor.slow-query.threshold-ms=0", "monitor.slow-query.explain=false"})
+@Transactional
+class FetchPlanTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MemberTestRepository memberTestRepository;
+    @Autowired
+    SlowQueryLog slowQueryLog;
+
+    Statistics statistics;
+    MemberSearchCondition condition = new MemberSearchCondition();
+
+    @BeforeEach
+    void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 8; i++) {
+            em.persist(new Member("member" + i, 10 + i, i % 2 == 0 ? teamA : teamB));
+        }
+        em.flush();
+        em.clear();
+
+        statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        slowQueryLog.clear();
+    }
+
+    @AfterEach
+    void after() {
+        statistics.setStatisticsEnabled(false);
+    }
+
+    @Test
+    void noFetchPlan() {
+        Page<Member> page = memberTestRepository.applyPagination(condition, PageRequest.of(0, 3));
+
+        assertThat(page.getContent()).hasSize(3);
+        assertThat(page.getContent()).noneMatch(member -> Hibernate.isInitialized(member.getTeam()));
+    }
+
+    @Test
+    void toOneIsFetchJoined() {
+        Page<Member> page = memberTestRepository.applyPagination(condition, PageRequest.of(0, 3), FetchPlan.of("team"));
+
+        assertThat(page.getContent()).hasSize(3);
+        assertThat(page.getTotalElements()).isEqualTo(8);
+        assertThat(page.getContent()).allMatch(member -> Hibernate.isInitialized(member.getTeam()));
+        assertThat(page.getContent()).extracting(member -> member.getTeam().getName())
+                .containsOnly("teamA", "teamB");
+        //content + count, count 쿼리에는 fetch join 이 없다.
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        //명시한 left join 이 fetch join 으로 바뀌고 team 을 한번 더 조인하지 않는다.
+        List<String> contentSql = executedSql().stream()
+                .filter(sql -> !sql.contains("count("))
+                .collect(Collectors.toList());
+        assertThat(contentSql).hasSize(1);
+        assertThat(StringUtils.countOccurrencesOf(contentSql.get(0), " join team ")).isEqualTo(1);
+    }
+
+    @Test
+    void namedEntityGraph() {
+        Page<Member> page = memberTestRepository.searchPageByApplyPage(condition, PageRequest.of(1, 3),
+                FetchPlan.graph("Member.team"));
+
+        assertThat(page.getContent()).hasSize(3);
+        assertThat(page.getTotalElements()).isEqualTo(8);
+        assertThat(page.getContent()).allMatch(member -> Hibernate.isInitialized(member.getTeam()));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void collectionIsBatchFetchedWhenPaging() {
+        Page<Member> page = memberTestRepository.applyPagination(condition, PageRequest.of(0, 3),
+                FetchPlan.of("team.members"));
+
+        //메모리에서 페이징하지 않고 DB 에서 3건만 조회한다.
+        assertThat(page.getContent()).hasSize(3);
+        assertThat(page.getTotalElements()).isEqualTo(8);
+        assertThat(page.getContent()).allSatisfy(member -> {
+            assertThat(Hibernate.isInitialized(member.getTeam())).isTrue();
+            assertThat(Hibernate.isInitialized(member.getTeam().getMembers())).isTrue();
+            assertThat(member.getTeam().getMembers()).hasSize(4);
+        });
+        //content(+team) + count + 팀 컬렉션 한번에
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    @Test
+    void collectionThroughToOneWithoutPaging() {
+        Page<Member> page = memberTestRepository.applyPagination(condition, Pageable.unpaged(),
+                FetchPlan.of("team", "team.members"));
+
+        assertThat(page.getContent()).hasSize(8).doesNotHaveDuplicates();
+        //팀 컬렉션은 팀마다 한번씩만 담긴다.
+        assertThat(page.getContent()).allSatisfy(member -> assertThat(member.getTeam().getMembers()).hasSize(4));
+        //count 는 생략, content(+team) + 팀 컬렉션 한번에
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void notAnAssociation() {
+        assertThatThrownBy(() -> memberTestRepository.applyPagination(condition, PageRequest.of(0, 3),
+                FetchPlan.of("username")))
+                .isInstanceOf(InvalidDataAccessApiUsageException.class)
+                .hasMessageContaining("Not an association: Member.username");
+    }
+
+    /**
+     * 실행한 SQL, 주석(JPQL)을 빼고 공백을 정리한 소문자
+     */
+    private List<String> executedSql() {
+        return slowQueryLog.recent().stream()
+                .map(SlowQueryLog.SlowQuery::getSql)
+                .map(sql -> sql.replaceAll("(?s)/\\*.*?\\*/", " ").replaceAll("\\s+", " ").trim().toLowerCase())
+                .filter(sql -> sql.startsWith("select"))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,48 @@
+package study.querydsl.repository.support;
+
+import org.junit.jupiter.api.Test;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.sql.SMember;
+import study.querydsl.repository.sql.STeam;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entitiy.QMember.member;
+import static study.querydsl.entitiy.QMemberTeamView.memberTeamView;
+import static study.querydsl.entitiy.QTeam.team;
+import static study.querydsl.repository.support.MemberConditions.MEMBER_TEAM;
+import static study.querydsl.repository.support.MemberConditions.MEMBER_TEAM_VIEW;
+
+class MemberConditionsTest {
+
+    @Test
+    void emptyCondition() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername(" ");
+
+        assertThat(MEMBER_TEAM.predicates(condition)).containsOnlyNulls();
+        assertThat(MEMBER_TEAM.allOf(condition)).isNull();
+    }
+
+    @Test
+    void allConditions() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("member1");
+        condition.setTeamName("teamA");
+        condition.setAgeGoe(10);
+        condition.setAgeLoe(20);
+
+        assertThat(MEMBER_TEAM.allOf(condition)).isEqualTo(member.username.eq("member1")
+                .and(team.name.eq("teamA"))
+                .and(member.age.goe(10))
+                .and(member.age.loe(20)));
+
+        //같은 조건을 다른 경로로 (조회 모델, Querydsl SQL)
+        assertThat(MEMBER_TEAM_VIEW.predicates(condition)).containsExactly(memberTeamView.username.eq("member1"),
+                memberTeamView.teamName.eq("teamA"), memberTeamView.age.goe(10), memberTeamView.age.loe(20));
+
+        SMember m = new SMember("m");
+        STeam t = new STeam("t");
+        assertThat(MemberConditions.of(m.username, t.name, m.age).predicates(condition))
+                .containsExactly(m.username.eq("member1"), t.name.eq("teamA"), m.age.goe(10), m.age.loe(20));
+    }
+}
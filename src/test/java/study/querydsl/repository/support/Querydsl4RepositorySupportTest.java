@@ -0,0 +1,98 @@
+package study.querydsl.repository.support;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entitiy.Member;
+import study.querydsl.entitiy.Team;
+import study.querydsl.repository.MemberTestRepository;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class Querydsl4RepositorySupportTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MemberTestRepository memberTestRepository;
+
+    @BeforeEach
+    void before() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        //나이가 같은 회원이 있어서 식별자로 순서를 확정해야 한다.
+        em.persist(new Member("member1", 20, teamA));
+        em.persist(new Member("member2", 10, teamA));
+        em.persist(new Member("member3", 20, teamA));
+        em.persist(new Member("member4", 10, teamA));
+        em.persist(new Member("member5", 30, teamA));
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void applySlicing() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        Slice<Member> first = memberTestRepository.applySlicing(condition, PageRequest.of(0, 3, Sort.by("age")));
+        Slice<Member> last = memberTestRepository.applySlicing(condition, PageRequest.of(1, 3, Sort.by("age")));
+
+        assertThat(first.getContent()).extracting("username").containsExactly("member2", "member4", "member1");
+        assertThat(first.hasNext()).isTrue();
+        assertThat(last.getContent()).extracting("username").containsExactly("member3", "member5");
+        assertThat(last.hasNext()).isFalse();
+    }
+
+    @Test
+    void applySlicingUnpaged() throws Exception {
+        Slice<Member> slice = memberTestRepository.applySlicing(new MemberSearchCondition(), Pageable.unpaged());
+
+        assertThat(slice.getContent()).extracting("username")
+                .containsExactly("member1", "member2", "member3", "member4", "member5");
+        assertThat(slice.hasNext()).isFalse();
+    }
+
+    /**
+     * StatelessSession 도 현재 트랜잭션의 커넥션으로 조회하므로 커밋하지 않은 변경이 보인다.
+     */
+    @Test
+    void fetchStatelessInCurrentTransaction() throws Exception {
+        em.persist(new Member("member6", 40));
+
+        List<Member> members = memberTestRepository.basicSelectStateless();
+
+        assertThat(members).extracting("username").contains("member6").hasSize(6);
+        assertThat(em.contains(members.get(0))).isFalse();
+    }
+
+    @Test
+    void toSlice() throws Exception {
+        Pageable pageable = PageRequest.of(0, 3);
+
+        Slice<String> hasNext = Querydsl4RepositorySupport.toSlice(new ArrayList<>(Arrays.asList("a", "b", "c", "d")), pageable);
+        assertThat(hasNext.getContent()).containsExactly("a", "b", "c");
+        assertThat(hasNext.hasNext()).isTrue();
+
+        Slice<String> exact = Querydsl4RepositorySupport.toSlice(Arrays.asList("a", "b", "c"), pageable);
+        assertThat(exact.getContent()).containsExactly("a", "b", "c");
+        assertThat(exact.hasNext()).isFalse();
+
+        Slice<String> empty = Querydsl4RepositorySupport.toSlice(List.of(), pageable);
+        assertThat(empty.getContent()).isEmpty();
+        assertThat(empty.hasNext()).isFalse();
+    }
+}
@@ -0,0 +1,124 @@
+package study.querydsl.shard;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entitiy.Team;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "shard.count=3")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ShardedMemberRepositoryTest {
+
+    @Autowired
+    ShardedMemberRepository shardedMemberRepository;
+    @Autowired
+    MemberShards memberShards;
+    @Autowired
+    MemberRepository memberRepository;
+
+    List<MemberTeamDto> all = new ArrayList<>();
+
+    @BeforeAll
+    void before() {
+        List<Team> teams = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            teams.add(shardedMemberRepository.saveTeam("team" + i));
+        }
+        for (int i = 0; i < 40; i++) {
+            Team team = teams.get(i % teams.size());
+            shardedMemberRepository.saveMember("member" + i, i % 17, team);
+        }
+        all = shardedMemberRepository.search(new MemberSearchCondition());
+    }
+
+    @Test
+    void scatterGather() throws Exception {
+        assertThat(all).hasSize(40);
+        //식별자는 샤드 구간으로 나뉘어 있다.
+        assertThat(all).extracting(MemberTeamDto::getMemberId).doesNotHaveDuplicates();
+        assertThat(all.stream().map(dto -> memberShards.shardForId(dto.getMemberId())).distinct().count())
+                .isGreaterThan(1);
+
+        //나이 내림차순 2페이지
+        Page<MemberTeamDto> page = shardedMemberRepository.searchPageComplex(new MemberSearchCondition(),
+                PageRequest.of(1, 7, Sort.by(Sort.Direction.DESC, "age")));
+
+        List<MemberTeamDto> expected = all.stream()
+                .sorted(Comparator.comparingInt(MemberTeamDto::getAge).reversed()
+                        .thenComparing(MemberTeamDto::getMemberId))
+                .skip(7)
+                .limit(7)
+                .collect(Collectors.toList());
+        assertThat(page.getContent()).containsExactlyElementsOf(expected);
+        assertThat(page.getTotalElements()).isEqualTo(40);
+    }
+
+    @Test
+    void routeSingleTeam() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("team2");
+
+        assertThat(shardedMemberRepository.targetShards(condition)).hasSize(1);
+
+        Page<MemberTeamDto> page = shardedMemberRepository.searchPageComplex(condition, PageRequest.of(0, 3));
+        assertThat(page.getContent()).hasSize(3).extracting("teamName").containsOnly("team2");
+        assertThat(page.getTotalElements()).isEqualTo(8);
+    }
+
+    @Test
+    void memberRepositoryRoutesToShards() throws Exception {
+        //기존 리포지토리 API 로 조회해도 샤드 결과와 같다.
+        assertThat(memberRepository.search(new MemberSearchCondition()))
+                .containsExactlyInAnyOrderElementsOf(all);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("team2");
+        Page<MemberTeamDto> page = memberRepository.searchPageComplex(condition, PageRequest.of(0, 3));
+        assertThat(page.getContent()).extracting("teamName").containsOnly("team2");
+        assertThat(page.getTotalElements()).isEqualTo(8);
+    }
+
+    @Test
+    @Timeout(30)
+    void cancelOtherShardsOnFailure() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        //한 샤드는 오래 걸리는 SQL 을 실행하고, 다른 샤드는 실패한다.
+        assertThatThrownBy(() -> shardedMemberRepository.scatter(Arrays.asList(0, 1), em -> {
+            if (calls.getAndIncrement() == 0) {
+                started.countDown();
+                return em.createNativeQuery("select sum(x) from system_range(1, 100000000000)").getSingleResult();
+            }
+            try {
+                started.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IllegalStateException("shard down");
+        })).isInstanceOf(IllegalStateException.class).hasMessage("shard down");
+
+        //취소된 SQL 이 커넥션을 돌려줘서 다음 조회가 바로 실행된다.
+        assertThat(shardedMemberRepository.search(new MemberSearchCondition())).hasSize(40);
+    }
+}
@@ -0,0 +1,103 @@
+package study.querydsl.snapshot;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entitiy.Member;
+import study.querydsl.entitiy.Team;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entitiy.QMember.member;
+import static study.querydsl.entitiy.QTeam.team;
+
+/**
+ * 스냅샷은 트랜잭션 밖에서 공유되므로 데이터를 커밋하고 정리한다.
+ * max-staleness-ms=0 이면 데이터가 바뀐 뒤 처음 검색할 때 다시 읽는다.
+ */
+@SpringBootTest(properties = "snapshot.max-staleness-ms=0")
+class MemberSnapshotTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    TransactionTemplate transactionTemplate;
+    @Autowired
+    MemberSnapshot memberSnapshot;
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @BeforeEach
+    void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            em.persist(new Member("member1", 10, teamA));
+            em.persist(new Member("member2", 20, teamA));
+            em.persist(new Member("member3", 30, teamB));
+            em.persist(new Member("member4", 40, teamB));
+            em.persist(new Member("member5", 50));
+        });
+    }
+
+    @AfterEach
+    void after() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @Test
+    void sameAsDatabase() throws Exception {
+        for (MemberSearchCondition condition : Arrays.asList(
+                condition(null, null, null, null),
+                condition("member1", null, null, null),
+                condition(null, "teamB", null, null),
+                condition(null, null, 20, 40),
+                condition(null, "teamA", 15, null))) {
+            List<MemberTeamDto> snapshot = memberSnapshot.search(condition);
+            List<MemberTeamDto> database = transactionTemplate.execute(status -> memberJpaRepository.search(condition));
+            assertThat(snapshot).containsExactlyInAnyOrderElementsOf(database);
+        }
+    }
+
+    @Test
+    void predicateAndOrder() throws Exception {
+        List<MemberTeamDto> result = memberSnapshot.search(
+                member.age.between(15, 35).or(team.name.eq("teamB")).or(member.team.id.isNull()),
+                Arrays.asList(team.name.desc(), member.age.asc()));
+
+        //team.name 내림차순이면 null 이 마지막
+        assertThat(result).extracting("username").containsExactly("member3", "member4", "member2", "member5");
+    }
+
+    @Test
+    void refreshAfterWrite() throws Exception {
+        assertThat(memberSnapshot.search(new MemberSearchCondition())).hasSize(5);
+
+        transactionTemplate.executeWithoutResult(status -> em.persist(new Member("member6", 60)));
+
+        assertThat(memberSnapshot.search(new MemberSearchCondition())).hasSize(6);
+    }
+
+    private MemberSearchCondition condition(String username, String teamName, Integer ageGoe, Integer ageLoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername(username);
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        condition.setAgeLoe(ageLoe);
+        return condition;
+    }
+}